@@ -0,0 +1,82 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.speedy.jackson.CachingJsonNodeFactory;
+import org.speedy.jackson.JsonArena;
+import org.speedy.jackson.JsonDsl;
+import org.speedy.jackson.JsonDslContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A request document which is built, serialized and dropped for every invocation, with a json dsl context which
+ * allocates new containers and tuples or with the context of an arena which is reset after the serialization. Both
+ * use a caching json node factory and write to the same generator, run with -prof gc to compare the allocation
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArenaBenchmark {
+
+    private JsonDslContext plain;
+    private JsonArena arena;
+    private ByteArrayOutputStream outputStream;
+    private JsonGenerator generator;
+    private SerializerProvider provider;
+
+    @Setup
+    public void setUp() throws IOException {
+        CachingJsonNodeFactory jsonNodeFactory = new CachingJsonNodeFactory();
+        plain = JsonDsl.with(jsonNodeFactory);
+        arena = new JsonArena(jsonNodeFactory, 256, 16384);
+        outputStream = new ByteArrayOutputStream(4096);
+        generator = Fixtures.OBJECT_MAPPER.getFactory().createGenerator(outputStream);
+        provider = Fixtures.OBJECT_MAPPER.getSerializerProviderInstance();
+    }
+
+    @Benchmark
+    public int plainContext() throws IOException {
+        return write(request(plain));
+    }
+
+    @Benchmark
+    public int arenaContext() throws IOException {
+        int size = write(request(arena.context()));
+        arena.reset();
+        return size;
+    }
+
+    private int write(ObjectNode document) throws IOException {
+        outputStream.reset();
+        document.serialize(generator, provider);
+        generator.flush();
+        return outputStream.size();
+    }
+
+    private static ObjectNode request(JsonDslContext json) {
+        return json.jsonDocument(
+                json.tuple("id", 42),
+                json.tuple("method", "POST"),
+                json.tuple("path", "/orders"),
+                json.tuple("headers", json.object(
+                        json.tuple("accept", "application/json"),
+                        json.tuple("content-type", "application/json"),
+                        json.tuple("x-request-id", "replay"))),
+                json.tuple("body", json.object(
+                        json.tuple("customer", json.object(
+                                json.tuple("name", "Jane"),
+                                json.tuple("country", "BE"))),
+                        json.tuple("lines", json.array(
+                                json.object(json.tuple("sku", "A-1"), json.tuple("quantity", 2)),
+                                json.object(json.tuple("sku", "B-2"), json.tuple("quantity", 1)))),
+                        json.tuple("tags", json.array("replay", "priority")))));
+    }
+}
@@ -0,0 +1,82 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.speedy.jackson.JsonDsl.array;
+
+/**
+ * The primitive {@code array(int...)} and {@code array(double...)} overloads compared to parsing and converting
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private int[] ints;
+    private double[] doubles;
+    private String intJson;
+    private String doubleJson;
+
+    @Setup
+    public void setUp() {
+        ints = new int[size];
+        doubles = new double[size];
+        for (int i = 0; i < size; i++) {
+            ints[i] = i * 31;
+            doubles[i] = i * 0.25d;
+        }
+        intJson = Fixtures.toJson(ints);
+        doubleJson = Fixtures.toJson(doubles);
+    }
+
+    @Benchmark
+    public ArrayNode intArray() {
+        return array(ints);
+    }
+
+    @Benchmark
+    public ArrayNode doubleArray() {
+        return array(doubles);
+    }
+
+    @Benchmark
+    public byte[] intArrayToBytes() throws IOException {
+        return Fixtures.OBJECT_MAPPER.writeValueAsBytes(array(ints));
+    }
+
+    @Benchmark
+    public byte[] doubleArrayToBytes() throws IOException {
+        return Fixtures.OBJECT_MAPPER.writeValueAsBytes(array(doubles));
+    }
+
+    @Benchmark
+    public JsonNode intReadTree() throws IOException {
+        return Fixtures.OBJECT_MAPPER.readTree(intJson);
+    }
+
+    @Benchmark
+    public JsonNode doubleReadTree() throws IOException {
+        return Fixtures.OBJECT_MAPPER.readTree(doubleJson);
+    }
+
+    @Benchmark
+    public JsonNode intValueToTree() {
+        return Fixtures.OBJECT_MAPPER.valueToTree(ints);
+    }
+
+    @Benchmark
+    public JsonNode doubleValueToTree() {
+        return Fixtures.OBJECT_MAPPER.valueToTree(doubles);
+    }
+}
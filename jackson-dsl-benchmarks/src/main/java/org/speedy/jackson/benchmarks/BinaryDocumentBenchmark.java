@@ -0,0 +1,98 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.speedy.jackson.BinaryDocument;
+import org.speedy.jackson.JsonDsl;
+import org.speedy.jackson.JsonDslContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A customer document kept as a json tree or encoded as a binary document, compares building, serializing and reading
+ * one field of a document which is wrapped again for every read as when it is replayed from a large buffer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryDocumentBenchmark {
+
+    @Param({"100"})
+    public int customers;
+
+    private String[] names;
+    private JsonDslContext json;
+    private ObjectNode tree;
+    private BinaryDocument binary;
+    private ByteBuffer target;
+    private ByteArrayOutputStream outputStream;
+
+    @Setup
+    public void setUp() {
+        names = Fixtures.fieldNames(customers);
+        json = JsonDsl.with(JsonNodeFactory.instance);
+        tree = json.jsonDocument(tuples());
+        binary = json.binaryDocument(tuples());
+        target = ByteBuffer.allocateDirect(binary.size());
+        outputStream = new ByteArrayOutputStream(binary.size() * 2);
+    }
+
+    @Benchmark
+    public ObjectNode buildTree() {
+        return json.jsonDocument(tuples());
+    }
+
+    @Benchmark
+    public BinaryDocument buildBinary() {
+        target.clear();
+        return json.binaryDocument(target, tuples());
+    }
+
+    @Benchmark
+    public int writeTree() throws IOException {
+        outputStream.reset();
+        Fixtures.OBJECT_MAPPER.writeValue(outputStream, tree);
+        return outputStream.size();
+    }
+
+    @Benchmark
+    public int writeBinary() throws IOException {
+        outputStream.reset();
+        binary.writeTo(outputStream);
+        return outputStream.size();
+    }
+
+    @Benchmark
+    public JsonNode readTree() {
+        return tree.get(names[customers / 2]).get("address").get("city");
+    }
+
+    @Benchmark
+    public JsonNode readBinary() {
+        return BinaryDocument.wrap(binary.getBuffer()).root().get(names[customers / 2]).get("address").get("city");
+    }
+
+    private JsonDsl.Tuple<?>[] tuples() {
+        JsonDsl.Tuple<?>[] tuples = new JsonDsl.Tuple<?>[customers];
+        for (int i = 0; i < customers; i++) {
+            tuples[i] = json.tuple(names[i], json.object(
+                    json.tuple("id", i),
+                    json.tuple("name", "customer " + i),
+                    json.tuple("address", json.object(
+                            json.tuple("street", "Main street"),
+                            json.tuple("city", "Ghent"),
+                            json.tuple("zip", "9000"))),
+                    json.tuple("balance", 1250.75 + i),
+                    json.tuple("tags", json.array("new", "active"))));
+        }
+        return tuples;
+    }
+}
@@ -0,0 +1,93 @@
+package org.speedy.jackson.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.speedy.jackson.BatchSink;
+import org.speedy.jackson.BulkStatistics;
+import org.speedy.jackson.JsonBulk;
+import org.speedy.jackson.JsonDsl;
+import org.speedy.jackson.JsonStreamDsl;
+import org.speedy.jackson.JsonTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows written as newline terminated documents, one tree per row serialized separately and in batches with
+ * {@link JsonBulk} from a stream description and from a template
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkBenchmark {
+
+    @Param({"10000"})
+    public int rows;
+
+    private Order[] orders;
+    private ByteArrayOutputStream outputStream;
+    private BatchSink sink;
+    private JsonBulk<Order> streamBulk;
+    private JsonBulk<Order> templateBulk;
+
+    @Setup
+    public void setUp() {
+        orders = new Order[rows];
+        for (int i = 0; i < rows; i++) {
+            orders[i] = new Order(i, i % 2 == 0 ? "OPEN" : "CLOSED", i * 0.5d);
+        }
+        outputStream = new ByteArrayOutputStream(rows * 64);
+        sink = BatchSink.of(outputStream);
+        streamBulk = JsonBulk.of(order -> JsonStreamDsl.jsonDocument(
+                JsonStreamDsl.tuple("id", order.id),
+                JsonStreamDsl.tuple("status", order.status),
+                JsonStreamDsl.tuple("amount", order.amount)));
+        JsonTemplate template = JsonTemplate.compile(JsonStreamDsl.jsonDocument(
+                JsonStreamDsl.tuple("id", JsonStreamDsl.placeholder("id")),
+                JsonStreamDsl.tuple("status", JsonStreamDsl.placeholder("status")),
+                JsonStreamDsl.tuple("amount", JsonStreamDsl.placeholder("amount"))));
+        templateBulk = JsonBulk.of(template, order -> new Object[]{order.id, order.status, order.amount});
+    }
+
+    @Benchmark
+    public int treePerRow() throws IOException {
+        outputStream.reset();
+        for (Order order : orders) {
+            outputStream.write(Fixtures.OBJECT_MAPPER.writeValueAsBytes(JsonDsl.jsonDocument(
+                    JsonDsl.tuple("id", order.id),
+                    JsonDsl.tuple("status", order.status),
+                    JsonDsl.tuple("amount", order.amount))));
+            outputStream.write('\n');
+        }
+        return outputStream.size();
+    }
+
+    @Benchmark
+    public BulkStatistics streamBulk() throws IOException {
+        outputStream.reset();
+        return streamBulk.run(Arrays.asList(orders), sink);
+    }
+
+    @Benchmark
+    public BulkStatistics templateBulk() throws IOException {
+        outputStream.reset();
+        return templateBulk.run(Arrays.asList(orders), sink);
+    }
+
+    private static final class Order {
+
+        private final long id;
+        private final String status;
+        private final double amount;
+
+        Order(long id, String status, double amount) {
+            this.id = id;
+            this.status = status;
+            this.amount = amount;
+        }
+    }
+}
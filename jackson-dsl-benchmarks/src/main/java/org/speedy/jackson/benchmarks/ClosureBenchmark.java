@@ -0,0 +1,76 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.speedy.jackson.JsonDsl8;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.speedy.jackson.JsonDsl8.*;
+
+/**
+ * A document of ten fields built with closures, with tuples, by parsing and by converting a map. <br/>
+ * Closure names are fixed at compile time, so this document has a fixed size
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClosureBenchmark {
+
+    private String json;
+    private Map<String, Object> map;
+
+    @Setup
+    public void setUp() {
+        json = tuples().toString();
+        map = Fixtures.OBJECT_MAPPER.convertValue(tuples(), Map.class);
+    }
+
+    @Benchmark
+    public ObjectNode closures() {
+        return JsonDsl8.jsonDocument(
+                (id) -> number(1L),
+                (name) -> text("name"),
+                (status) -> text("ACTIVE"),
+                (amount) -> number(12.5d),
+                (count) -> number(3),
+                (active) -> bool(true),
+                (tags) -> array("a", "b", "c"),
+                (address) -> object(tuple("street", "main"), tuple("number", 1)),
+                (created) -> number(145646464969L),
+                (comment) -> nil()
+        );
+    }
+
+    @Benchmark
+    public ObjectNode tuples() {
+        return jsonDocument(
+                tuple("id", 1L),
+                tuple("name", "name"),
+                tuple("status", "ACTIVE"),
+                tuple("amount", 12.5d),
+                tuple("count", 3),
+                tuple("active", true),
+                tuple("tags", array("a", "b", "c")),
+                tuple("address", object(tuple("street", "main"), tuple("number", 1))),
+                tuple("created", 145646464969L),
+                tuple("comment", nil())
+        );
+    }
+
+    @Benchmark
+    public JsonNode readTree() throws IOException {
+        return Fixtures.OBJECT_MAPPER.readTree(json);
+    }
+
+    @Benchmark
+    public JsonNode valueToTree() {
+        return Fixtures.OBJECT_MAPPER.valueToTree(map);
+    }
+}
@@ -0,0 +1,43 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.speedy.jackson.JsonDsl8;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.speedy.jackson.JsonDsl8.*;
+
+/**
+ * Latency of the first document in a fresh jvm, which includes resolving the closure names
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class ClosureStartupBenchmark {
+
+    @Benchmark
+    public ObjectNode firstClosureDocument() {
+        return JsonDsl8.jsonDocument(
+                (id) -> number(1L),
+                (name) -> text("name"),
+                (status) -> text("ACTIVE"),
+                (amount) -> number(12.5d),
+                (tags) -> array("a", "b", "c")
+        );
+    }
+
+    @Benchmark
+    public ObjectNode firstTupleDocument() {
+        return jsonDocument(
+                tuple("id", 1L),
+                tuple("name", "name"),
+                tuple("status", "ACTIVE"),
+                tuple("amount", 12.5d),
+                tuple("tags", array("a", "b", "c"))
+        );
+    }
+}
@@ -0,0 +1,47 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.speedy.jackson.JsonDsl.*;
+
+/**
+ * Serializing a document that is mostly a static section, with and without marking that section constant
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstantBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private ObjectNode document;
+    private ObjectNode constantDocument;
+
+    @Setup
+    public void setUp() {
+        String[] codes = Fixtures.fieldNames(size);
+        ObjectNode metadata = object(
+                tuple("source", "fixture-generator"),
+                tuple("codes", array(codes)));
+        document = jsonDocument(tuple("id", 1), tuple("metadata", metadata));
+        constantDocument = jsonDocument(tuple("id", 1), tuple("metadata", constant(metadata)));
+    }
+
+    @Benchmark
+    public byte[] plainSection() throws JsonProcessingException {
+        return Fixtures.OBJECT_MAPPER.writeValueAsBytes(document);
+    }
+
+    @Benchmark
+    public byte[] constantSection() throws JsonProcessingException {
+        return Fixtures.OBJECT_MAPPER.writeValueAsBytes(constantDocument);
+    }
+}
@@ -0,0 +1,56 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.speedy.jackson.JsonDsl;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.speedy.jackson.JsonDsl.*;
+
+/**
+ * Wide objects and long arrays created from varargs, where the dsl knows the number of children up front
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContainerBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private String[] strings;
+    private JsonNode[] nodes;
+    private JsonDsl.Tuple<?>[] tuples;
+
+    @Setup
+    public void setUp() {
+        strings = Fixtures.fieldNames(size);
+        nodes = new JsonNode[size];
+        tuples = new JsonDsl.Tuple<?>[size];
+        for (int i = 0; i < size; i++) {
+            nodes[i] = text(strings[i]);
+            tuples[i] = tuple(strings[i], nodes[i]);
+        }
+    }
+
+    @Benchmark
+    public ArrayNode stringArray() {
+        return array(strings);
+    }
+
+    @Benchmark
+    public ArrayNode nodeArray() {
+        return array(nodes);
+    }
+
+    @Benchmark
+    public ObjectNode wideObject() {
+        return object(tuples);
+    }
+}
@@ -0,0 +1,72 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.speedy.jackson.JsonDsl;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.speedy.jackson.JsonDsl.jsonDocument;
+import static org.speedy.jackson.JsonDsl.tuple;
+
+/**
+ * Flat documents built with {@code jsonDocument(Tuple...)} compared to parsing and converting the same content
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int fields;
+
+    private String[] names;
+    private String[] texts;
+    private String json;
+    private Map<String, Object> map;
+
+    @Setup
+    public void setUp() {
+        names = Fixtures.fieldNames(fields);
+        texts = new String[fields];
+        for (int i = 0; i < fields; i += 3) {
+            texts[i] = (String) Fixtures.flatValue(i);
+        }
+        map = Fixtures.flatMap(names);
+        json = Fixtures.toJson(map);
+    }
+
+    @Benchmark
+    public ObjectNode tuples() {
+        JsonDsl.Tuple<?>[] tuples = new JsonDsl.Tuple<?>[fields];
+        for (int i = 0; i < fields; i++) {
+            switch (i % 3) {
+                case 0:
+                    tuples[i] = tuple(names[i], texts[i]);
+                    break;
+                case 1:
+                    tuples[i] = tuple(names[i], (long) i);
+                    break;
+                default:
+                    tuples[i] = tuple(names[i], i + 0.5d);
+            }
+        }
+        return jsonDocument(tuples);
+    }
+
+    @Benchmark
+    public JsonNode readTree() throws IOException {
+        return Fixtures.OBJECT_MAPPER.readTree(json);
+    }
+
+    @Benchmark
+    public JsonNode valueToTree() {
+        return Fixtures.OBJECT_MAPPER.valueToTree(map);
+    }
+}
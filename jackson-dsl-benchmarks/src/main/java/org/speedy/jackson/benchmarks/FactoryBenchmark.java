@@ -0,0 +1,70 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.speedy.jackson.CachingJsonNodeFactory;
+import org.speedy.jackson.JsonDsl;
+import org.speedy.jackson.JsonDslContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Documents built with the static dsl, which looks up the json node factory in a thread local for every node,
+ * compared to a {@link JsonDslContext} bound to a factory
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FactoryBenchmark {
+
+    @Param({"100", "100000"})
+    public int fields;
+
+    private String[] names;
+    private JsonDslContext context;
+    private JsonDslContext cachingContext;
+
+    @Setup
+    public void setUp() {
+        names = Fixtures.fieldNames(fields);
+        context = JsonDsl.with(JsonNodeFactory.instance);
+        cachingContext = JsonDsl.with(new CachingJsonNodeFactory());
+    }
+
+    @Benchmark
+    public ObjectNode staticDsl() {
+        JsonDsl.Tuple<?>[] tuples = new JsonDsl.Tuple<?>[fields];
+        for (int i = 0; i < fields; i++) {
+            tuples[i] = JsonDsl.tuple(names[i], JsonDsl.object(
+                    JsonDsl.tuple("status", i % 2 == 0 ? "ACTIVE" : "INACTIVE"),
+                    JsonDsl.tuple("code", i % 50)
+            ));
+        }
+        return JsonDsl.jsonDocument(tuples);
+    }
+
+    @Benchmark
+    public ObjectNode contextDsl() {
+        return build(context);
+    }
+
+    @Benchmark
+    public ObjectNode cachingContextDsl() {
+        return build(cachingContext);
+    }
+
+    private ObjectNode build(JsonDslContext json) {
+        JsonDsl.Tuple<?>[] tuples = new JsonDsl.Tuple<?>[fields];
+        for (int i = 0; i < fields; i++) {
+            tuples[i] = json.tuple(names[i], json.object(
+                    json.tuple("status", i % 2 == 0 ? "ACTIVE" : "INACTIVE"),
+                    json.tuple("code", i % 50)
+            ));
+        }
+        return json.jsonDocument(tuples);
+    }
+}
@@ -0,0 +1,56 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Equivalent inputs for the dsl, {@link ObjectMapper#readTree(String)} and {@link ObjectMapper#valueToTree(Object)}
+ */
+final class Fixtures {
+
+    static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private Fixtures() {
+    }
+
+    static String[] fieldNames(int fields) {
+        String[] names = new String[fields];
+        for (int i = 0; i < fields; i++) {
+            names[i] = "field" + i;
+        }
+        return names;
+    }
+
+    static Map<String, Object> flatMap(String[] names) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            map.put(names[i], flatValue(i));
+        }
+        return map;
+    }
+
+    /**
+     * the value of the i-th field of a flat document: alternating texts, longs and doubles
+     */
+    static Object flatValue(int i) {
+        switch (i % 3) {
+            case 0:
+                return "value" + i;
+            case 1:
+                return (long) i;
+            default:
+                return i + 0.5d;
+        }
+    }
+
+    static String toJson(Object value) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.speedy.jackson.FrozenDocument;
+import org.speedy.jackson.JsonDsl;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.speedy.jackson.JsonDsl.*;
+
+/**
+ * Variants of a fixture which change one nested field, created with a deep copy or as an update of a frozen document
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrozenDocumentBenchmark {
+
+    @Param({"100", "10000"})
+    public int fields;
+
+    private ObjectNode document;
+    private FrozenDocument frozenDocument;
+    private String name;
+
+    @Setup
+    public void setUp() {
+        String[] names = Fixtures.fieldNames(fields);
+        JsonDsl.Tuple<?>[] tuples = new JsonDsl.Tuple<?>[fields];
+        for (int i = 0; i < fields; i++) {
+            tuples[i] = tuple(names[i], object(tuple("status", "ACTIVE"), tuple("code", i)));
+        }
+        document = jsonDocument(tuples);
+        frozenDocument = freeze(document);
+        name = names[fields / 2];
+    }
+
+    @Benchmark
+    public ObjectNode deepCopyVariant() {
+        ObjectNode variant = document.deepCopy();
+        ((ObjectNode) variant.get(name)).put("status", "INACTIVE");
+        return variant;
+    }
+
+    @Benchmark
+    public FrozenDocument frozenVariant() {
+        return frozenDocument.with("/" + name + "/status", text("INACTIVE"));
+    }
+}
@@ -0,0 +1,72 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.speedy.jackson.JsonDsl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.speedy.jackson.JsonDsl.*;
+
+/**
+ * A document of about 10MB serialized again after one leaf changed, as a plain tree and as an incremental copy which
+ * reuses the bytes of the unchanged containers
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IncrementalBenchmark {
+
+    @Param({"200"})
+    public int sections;
+
+    @Param({"1000"})
+    public int items;
+
+    private ObjectNode plainDocument;
+    private ObjectNode incrementalDocument;
+    private ByteArrayOutputStream outputStream;
+    private int version;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonDsl.Tuple<?>[] sectionTuples = new JsonDsl.Tuple<?>[sections];
+        for (int s = 0; s < sections; s++) {
+            ArrayNode itemArray = Fixtures.OBJECT_MAPPER.createArrayNode();
+            for (int i = 0; i < items; i++) {
+                itemArray.add(object(tuple("id", s * items + i), tuple("name", "item" + i),
+                        tuple("status", "ACTIVE"), tuple("amount", i * 0.5d)));
+            }
+            sectionTuples[s] = tuple("section" + s, object(tuple("items", itemArray)));
+        }
+        plainDocument = jsonDocument(sectionTuples);
+        incrementalDocument = JsonDsl.incremental(plainDocument);
+        outputStream = new ByteArrayOutputStream(16 * 1024 * 1024);
+        Fixtures.OBJECT_MAPPER.writeValue(outputStream, incrementalDocument);
+    }
+
+    @Benchmark
+    public int plainTree() throws IOException {
+        return changeAndWrite(plainDocument);
+    }
+
+    @Benchmark
+    public int incrementalCopy() throws IOException {
+        return changeAndWrite(incrementalDocument);
+    }
+
+    private int changeAndWrite(ObjectNode document) throws IOException {
+        version++;
+        ObjectNode item = (ObjectNode) document.get("section" + version % sections).get("items").get(items / 2);
+        item.put("status", "STATUS" + version);
+        outputStream.reset();
+        Fixtures.OBJECT_MAPPER.writeValue(outputStream, document);
+        return outputStream.size();
+    }
+}
@@ -0,0 +1,64 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.speedy.jackson.JsonDsl;
+import org.speedy.jackson.JsonDslContext;
+import org.speedy.jackson.JsonInterner;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Documents with repeated address and currency blocks, created with a plain json dsl context or with a context which
+ * deduplicates equal subtrees, the interner is shared by all invocations as for a corpus of documents
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InternerBenchmark {
+
+    @Param({"1000"})
+    public int customers;
+
+    private String[] names;
+    private JsonDslContext plain;
+    private JsonDslContext deduplicating;
+
+    @Setup
+    public void setUp() {
+        names = Fixtures.fieldNames(customers);
+        plain = JsonDsl.with(JsonNodeFactory.instance);
+        deduplicating = JsonDsl.with(JsonNodeFactory.instance, new JsonInterner());
+    }
+
+    @Benchmark
+    public ObjectNode plainContext() {
+        return document(plain);
+    }
+
+    @Benchmark
+    public ObjectNode deduplicatingContext() {
+        return document(deduplicating);
+    }
+
+    private ObjectNode document(JsonDslContext json) {
+        JsonDsl.Tuple<?>[] tuples = new JsonDsl.Tuple<?>[customers];
+        for (int i = 0; i < customers; i++) {
+            tuples[i] = json.tuple(names[i], json.object(
+                    json.tuple("id", i),
+                    json.tuple("address", json.object(
+                            json.tuple("street", "Main street"),
+                            json.tuple("city", "Ghent"),
+                            json.tuple("zip", "9000"))),
+                    json.tuple("currency", json.object(
+                            json.tuple("code", "EUR"),
+                            json.tuple("digits", 2))),
+                    json.tuple("tags", json.array("new", "active"))));
+        }
+        return json.jsonDocument(tuples);
+    }
+}
@@ -0,0 +1,67 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.speedy.jackson.JsonDsl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.speedy.jackson.JsonDsl.*;
+
+/**
+ * Documents with a few generated payloads of which a consumer reads one field only, the payloads are created eagerly
+ * or as lazy objects which are never computed
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LazyBenchmark {
+
+    @Param({"1000"})
+    public int payloadSize;
+
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        names = Fixtures.fieldNames(payloadSize);
+    }
+
+    @Benchmark
+    public JsonNode eagerPayloads() {
+        ObjectNode document = jsonDocument(
+                tuple("id", 42L),
+                tuple("request", payload()),
+                tuple("response", payload()));
+        return document.get("id");
+    }
+
+    @Benchmark
+    public JsonNode lazyPayloads() {
+        Callable<ObjectNode> payload = new Callable<ObjectNode>() {
+
+            public ObjectNode call() {
+                return payload();
+            }
+
+        };
+        ObjectNode document = jsonDocument(
+                tuple("id", 42L),
+                tuple("request", lazyObject(payload)),
+                tuple("response", lazyObject(payload)));
+        return document.get("id");
+    }
+
+    private ObjectNode payload() {
+        JsonDsl.Tuple<?>[] tuples = new JsonDsl.Tuple<?>[payloadSize];
+        for (int i = 0; i < payloadSize; i++) {
+            tuples[i] = tuple(names[i], "value " + i);
+        }
+        return object(tuples);
+    }
+}
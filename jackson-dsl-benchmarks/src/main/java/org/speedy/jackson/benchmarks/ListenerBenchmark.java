@@ -0,0 +1,54 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.speedy.jackson.HistogramJsonDslListener;
+import org.speedy.jackson.JsonDsl;
+import org.speedy.jackson.JsonDslListener;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.speedy.jackson.JsonDsl.*;
+
+/**
+ * A small document built without a listener, with a listener of the build times and with a listener which also
+ * counts the nodes of every document
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListenerBenchmark {
+
+    @Param({"none", "times", "statistics"})
+    public String listener;
+
+    private JsonDslListener jsonDslListener;
+
+    @Setup
+    public void setUp() {
+        if (!"none".equals(listener)) {
+            jsonDslListener = new HistogramJsonDslListener("statistics".equals(listener));
+            JsonDsl.addListener(jsonDslListener);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (jsonDslListener != null) {
+            JsonDsl.removeListener(jsonDslListener);
+        }
+    }
+
+    @Benchmark
+    public ObjectNode document() {
+        return jsonDocument(
+                tuple("id", 42L),
+                tuple("status", "ACTIVE"),
+                tuple("address", object(tuple("street", "main"), tuple("number", 1))),
+                tuple("tags", array("a", "b", "c"))
+        );
+    }
+}
@@ -0,0 +1,112 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.speedy.jackson.NdjsonReader;
+import org.speedy.jackson.NdjsonWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.speedy.jackson.JsonDsl.*;
+
+/**
+ * Writing documents to a newline delimited json file as strings and with {@link NdjsonWriter}, replaying the file
+ * line by line and with {@link NdjsonReader}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-D" + NdjsonWriter.UNMAP_PROPERTY + "=true")
+public class NdjsonBenchmark {
+
+    @Param({"100000"})
+    public int documents;
+
+    private ObjectNode[] nodes;
+    private Path writePath;
+    private Path readPath;
+
+    @Setup
+    public void setUp() throws IOException {
+        nodes = new ObjectNode[documents];
+        for (int i = 0; i < documents; i++) {
+            nodes[i] = jsonDocument(tuple("id", i), tuple("status", "ACTIVE"), tuple("amount", i * 0.5d));
+        }
+        writePath = Files.createTempFile("ndjson-benchmark", ".ndjson");
+        readPath = Files.createTempFile("ndjson-benchmark", ".ndjson");
+        try (NdjsonWriter writer = NdjsonWriter.open(readPath)) {
+            for (ObjectNode node : nodes) {
+                writer.write(node);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(writePath);
+        Files.deleteIfExists(readPath);
+    }
+
+    @Benchmark
+    public long writeStrings() throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(writePath, StandardCharsets.UTF_8)) {
+            for (ObjectNode node : nodes) {
+                writer.write(Fixtures.OBJECT_MAPPER.writeValueAsString(node));
+                writer.newLine();
+            }
+        }
+        return Files.size(writePath);
+    }
+
+    @Benchmark
+    public long writeChannel() throws IOException {
+        try (NdjsonWriter writer = NdjsonWriter.open(writePath)) {
+            for (ObjectNode node : nodes) {
+                writer.write(node);
+            }
+            return writer.getBytes();
+        }
+    }
+
+    @Benchmark
+    public long writeMapped() throws IOException {
+        try (NdjsonWriter writer = NdjsonWriter.mapped(writePath)) {
+            for (ObjectNode node : nodes) {
+                writer.write(node);
+            }
+            return writer.getBytes();
+        }
+    }
+
+    @Benchmark
+    public long readLines() throws IOException {
+        long bytes = 0;
+        try (BufferedReader reader = Files.newBufferedReader(readPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                bytes += line.length();
+            }
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public long readMapped() throws IOException {
+        long bytes = 0;
+        try (NdjsonReader reader = NdjsonReader.open(readPath)) {
+            for (ByteBuffer record : reader) {
+                bytes += record.remaining();
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,65 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.speedy.jackson.JsonDsl.*;
+
+/**
+ * A document with an array of nested objects, each item holds ten fields spread over an object and an array
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NestedBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int fields;
+
+    private String json;
+    private Map<String, Object> map;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        ObjectNode document = tree();
+        json = document.toString();
+        map = Fixtures.OBJECT_MAPPER.convertValue(document, Map.class);
+    }
+
+    @Benchmark
+    public ObjectNode tree() {
+        JsonNode[] items = new JsonNode[Math.max(1, fields / 10)];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = object(
+                    tuple("id", i),
+                    tuple("name", "item"),
+                    tuple("price", object(
+                            tuple("amount", i + 0.99d),
+                            tuple("currency", "EUR"))),
+                    tuple("tags", array("new", "sale")),
+                    tuple("dimensions", array(10, 20, 30)));
+        }
+        ArrayNode array = array(items);
+        return jsonDocument(tuple("count", items.length), tuple("items", array));
+    }
+
+    @Benchmark
+    public JsonNode readTree() throws IOException {
+        return Fixtures.OBJECT_MAPPER.readTree(json);
+    }
+
+    @Benchmark
+    public JsonNode valueToTree() {
+        return Fixtures.OBJECT_MAPPER.valueToTree(map);
+    }
+}
@@ -0,0 +1,55 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.speedy.jackson.JsonDsl8.*;
+
+/**
+ * A large array of small objects built sequentially and on fork join pools of several sizes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelArrayBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int poolSize;
+
+    @Param({"100000"})
+    public int size;
+
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        pool = new ForkJoinPool(poolSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public ArrayNode sequential() {
+        return array(IntStream.range(0, size).boxed(), ParallelArrayBenchmark::element);
+    }
+
+    @Benchmark
+    public ArrayNode parallel() {
+        return parallelArray(IntStream.range(0, size).boxed(), ParallelArrayBenchmark::element, pool);
+    }
+
+    private static ObjectNode element(int i) {
+        return object(tuple("id", i), tuple("status", "ACTIVE"), tuple("code", "C" + i));
+    }
+}
@@ -0,0 +1,102 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.speedy.jackson.JsonDsl;
+import org.speedy.jackson.ProjectionMask;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.speedy.jackson.JsonDsl.*;
+
+/**
+ * Documents of which a fraction of the sections is selected and written, built in full, built in full and pruned
+ * afterwards, or built with a projection mask and lazy sections so the sections outside the mask are never created.
+ * Run with -prof gc to compare the allocation
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    private static final int SECTIONS = 100;
+    private static final int SECTION_SIZE = 20;
+
+    private static final OutputStream DISCARD = new OutputStream() {
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+
+    };
+
+    @Param({"0.01", "0.1", "0.5", "1"})
+    public double fraction;
+
+    private String[] sectionNames;
+    private String[] fieldNames;
+    private ProjectionMask mask;
+
+    @Setup
+    public void setUp() {
+        sectionNames = Fixtures.fieldNames(SECTIONS);
+        fieldNames = Fixtures.fieldNames(SECTION_SIZE);
+        String[] paths = new String[Math.max(1, (int) Math.round(SECTIONS * fraction))];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = sectionNames[i * SECTIONS / paths.length];
+        }
+        mask = ProjectionMask.compile(paths);
+    }
+
+    @Benchmark
+    public void fullDocument() throws IOException {
+        JsonDsl.Tuple<?>[] tuples = new JsonDsl.Tuple<?>[SECTIONS];
+        for (int i = 0; i < SECTIONS; i++) {
+            tuples[i] = tuple(sectionNames[i], section(i));
+        }
+        Fixtures.OBJECT_MAPPER.writeValue(DISCARD, jsonDocument(tuples));
+    }
+
+    @Benchmark
+    public void prunedAfterwards() throws IOException {
+        JsonDsl.Tuple<?>[] tuples = new JsonDsl.Tuple<?>[SECTIONS];
+        for (int i = 0; i < SECTIONS; i++) {
+            tuples[i] = tuple(sectionNames[i], section(i));
+        }
+        Fixtures.OBJECT_MAPPER.writeValue(DISCARD, mask.apply(jsonDocument(tuples)));
+    }
+
+    @Benchmark
+    public void projectedLazy() throws IOException {
+        JsonDsl.Tuple<?>[] tuples = new JsonDsl.Tuple<?>[SECTIONS];
+        for (int i = 0; i < SECTIONS; i++) {
+            final int section = i;
+            tuples[i] = tuple(sectionNames[i], lazyObject(new Callable<ObjectNode>() {
+
+                public ObjectNode call() {
+                    return section(section);
+                }
+
+            }));
+        }
+        Fixtures.OBJECT_MAPPER.writeValue(DISCARD, jsonDocument(mask, tuples));
+    }
+
+    private ObjectNode section(int section) {
+        JsonDsl.Tuple<?>[] tuples = new JsonDsl.Tuple<?>[SECTION_SIZE];
+        for (int i = 0; i < SECTION_SIZE; i++) {
+            tuples[i] = tuple(fieldNames[i], section * SECTION_SIZE + i);
+        }
+        return object(tuples);
+    }
+}
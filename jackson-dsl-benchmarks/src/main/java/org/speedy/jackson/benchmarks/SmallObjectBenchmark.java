@@ -0,0 +1,65 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+import org.speedy.jackson.JsonDsl;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.speedy.jackson.JsonDsl.*;
+
+/**
+ * Objects with a few fields, the dsl keeps their fields in two arrays, a plain object node in a linked hash map
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SmallObjectBenchmark {
+
+    private JsonDsl.Tuple<?> id;
+    private JsonDsl.Tuple<?> status;
+    private JsonDsl.Tuple<?> amount;
+    private JsonDsl.Tuple<?> currency;
+    private ObjectNode dslObject;
+    private ObjectNode plainObject;
+
+    @Setup
+    public void setUp() {
+        id = tuple("id", 42L);
+        status = tuple("status", "ACTIVE");
+        amount = tuple("amount", 12.5d);
+        currency = tuple("currency", "EUR");
+        dslObject = dslObject();
+        plainObject = plainObject();
+    }
+
+    @Benchmark
+    public ObjectNode dslObject() {
+        return object(id, status, amount, currency);
+    }
+
+    @Benchmark
+    public ObjectNode plainObject() {
+        ObjectNode objectNode = JsonNodeFactory.instance.objectNode();
+        objectNode.set(id.getName(), id.getValue());
+        objectNode.set(status.getName(), status.getValue());
+        objectNode.set(amount.getName(), amount.getValue());
+        objectNode.set(currency.getName(), currency.getValue());
+        return objectNode;
+    }
+
+    @Benchmark
+    public JsonNode dslLookup() {
+        return dslObject.get("currency");
+    }
+
+    @Benchmark
+    public JsonNode plainLookup() {
+        return plainObject.get("currency");
+    }
+}
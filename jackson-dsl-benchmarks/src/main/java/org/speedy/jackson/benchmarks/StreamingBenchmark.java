@@ -0,0 +1,56 @@
+package org.speedy.jackson.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.speedy.jackson.JsonDsl;
+import org.speedy.jackson.JsonStreamDsl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing a flat document built as a tree with {@link JsonDsl} and described with {@link JsonStreamDsl}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamingBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int fields;
+
+    private String[] names;
+    private ByteArrayOutputStream outputStream;
+
+    @Setup
+    public void setUp() {
+        names = Fixtures.fieldNames(fields);
+        outputStream = new ByteArrayOutputStream(fields * 32);
+    }
+
+    @Benchmark
+    public int tree() throws IOException {
+        JsonDsl.Tuple<?>[] tuples = new JsonDsl.Tuple<?>[fields];
+        for (int i = 0; i < fields; i++) {
+            tuples[i] = JsonDsl.tuple(names[i], i);
+        }
+        outputStream.reset();
+        Fixtures.OBJECT_MAPPER.writeTree(Fixtures.OBJECT_MAPPER.getFactory().createGenerator(outputStream),
+                JsonDsl.jsonDocument(tuples));
+        return outputStream.size();
+    }
+
+    @Benchmark
+    public int stream() throws IOException {
+        JsonStreamDsl.StreamTuple[] tuples = new JsonStreamDsl.StreamTuple[fields];
+        for (int i = 0; i < fields; i++) {
+            tuples[i] = JsonStreamDsl.tuple(names[i], i);
+        }
+        outputStream.reset();
+        JsonStreamDsl.jsonDocument(tuples).writeTo(outputStream);
+        return outputStream.size();
+    }
+}
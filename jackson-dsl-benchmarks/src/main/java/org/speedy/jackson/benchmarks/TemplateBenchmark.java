@@ -0,0 +1,57 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.*;
+import org.speedy.jackson.JsonDsl;
+import org.speedy.jackson.JsonStreamDsl;
+import org.speedy.jackson.JsonTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A document with three changing values, rebuilt with the dsl on every iteration or bound to a compiled template
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateBenchmark {
+
+    private JsonTemplate template;
+    private long sequence;
+
+    @Setup
+    public void setUp() {
+        template = JsonTemplate.compile(JsonStreamDsl.jsonDocument(
+                JsonStreamDsl.tuple("id", JsonStreamDsl.placeholder("id")),
+                JsonStreamDsl.tuple("type", "ORDER"),
+                JsonStreamDsl.tuple("status", JsonStreamDsl.placeholder("status")),
+                JsonStreamDsl.tuple("customer", JsonStreamDsl.object(
+                        JsonStreamDsl.tuple("name", "customer"),
+                        JsonStreamDsl.tuple("country", "BE"))),
+                JsonStreamDsl.tuple("tags", JsonStreamDsl.array("priority", "export")),
+                JsonStreamDsl.tuple("amount", JsonStreamDsl.placeholder("amount"))));
+    }
+
+    @Benchmark
+    public byte[] dsl() throws JsonProcessingException {
+        long id = sequence++;
+        return Fixtures.OBJECT_MAPPER.writeValueAsBytes(JsonDsl.jsonDocument(
+                JsonDsl.tuple("id", id),
+                JsonDsl.tuple("type", "ORDER"),
+                JsonDsl.tuple("status", "OPEN"),
+                JsonDsl.tuple("customer", JsonDsl.object(
+                        JsonDsl.tuple("name", "customer"),
+                        JsonDsl.tuple("country", "BE"))),
+                JsonDsl.tuple("tags", JsonDsl.array("priority", "export")),
+                JsonDsl.tuple("amount", id * 0.5d)));
+    }
+
+    @Benchmark
+    public byte[] template() {
+        long id = sequence++;
+        return template.toBytes(id, "OPEN", id * 0.5d);
+    }
+}
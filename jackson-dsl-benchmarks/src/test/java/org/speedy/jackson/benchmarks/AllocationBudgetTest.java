@@ -0,0 +1,148 @@
+package org.speedy.jackson.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.speedy.jackson.JsonDsl;
+import org.speedy.jackson.JsonDsl8;
+import org.speedy.jackson.JsonStreamDsl;
+import org.speedy.jackson.JsonTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.speedy.jackson.JsonDsl8.*;
+
+/**
+ * Checks the bytes allocated per operation of the dsl hot paths against the budgets of allocation-budgets.properties
+ * <br/>
+ * Every operation is warmed up, then measured in rounds with the per thread allocation counter of the
+ * {@link com.sun.management.ThreadMXBean}, the lowest average of the rounds is compared to the budget. An operation
+ * fails when it allocates more than its budget plus {@link #TOLERANCE_PERCENT} percent and {@link #TOLERANCE_BYTES}
+ * bytes, which absorbs the differences between jvm versions and the alignment of the arrays. With
+ * -DallocationBudgets.record=true the measured values are printed in the format of the budget file
+ */
+class AllocationBudgetTest {
+
+    private static final String BUDGETS = "/allocation-budgets.properties";
+    private static final int WARMUP_ITERATIONS = 50000;
+    private static final int ROUNDS = 5;
+    private static final int ITERATIONS = 10000;
+    private static final int TOLERANCE_PERCENT = 10;
+    private static final int TOLERANCE_BYTES = 16;
+
+    /**
+     * the results are stored here so the allocations can not be eliminated
+     */
+    static volatile Object sink;
+
+    private static com.sun.management.ThreadMXBean threadMXBean;
+
+    @BeforeAll
+    static void enableAllocationCounter() {
+        threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported(),
+                "The per thread allocation counter is not supported by this jvm");
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @TestFactory
+    List<DynamicTest> allocationBudgets() throws IOException {
+        final boolean record = Boolean.getBoolean("allocationBudgets.record");
+        final Properties budgets = loadBudgets();
+        List<DynamicTest> tests = new ArrayList<>();
+        for (final Map.Entry<String, Callable<Object>> operation : operations().entrySet()) {
+            final String name = operation.getKey();
+            tests.add(DynamicTest.dynamicTest(name, () -> {
+                long allocated = measure(operation.getValue());
+                if (record) {
+                    System.out.println(name + "=" + allocated);
+                    return;
+                }
+                String budget = budgets.getProperty(name);
+                assertNotNull(budget, name + " allocates " + allocated + " B/op and has no budget");
+                long limit = Long.parseLong(budget.trim());
+                long tolerated = limit + limit * TOLERANCE_PERCENT / 100 + TOLERANCE_BYTES;
+                assertTrue(allocated <= tolerated, name + " allocates " + allocated + " B/op, the budget is " + limit
+                        + " B/op, tolerated up to " + tolerated + " B/op");
+            }));
+        }
+        return tests;
+    }
+
+    /**
+     * @return the lowest average number of bytes allocated per call over the rounds
+     */
+    private static long measure(Callable<Object> operation) throws Exception {
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink = operation.call();
+        }
+        long lowest = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = threadMXBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink = operation.call();
+            }
+            long after = threadMXBean.getThreadAllocatedBytes(threadId);
+            lowest = Math.min(lowest, (after - before) / ITERATIONS);
+        }
+        return lowest;
+    }
+
+    private static Properties loadBudgets() throws IOException {
+        Properties budgets = new Properties();
+        try (InputStream inputStream = AllocationBudgetTest.class.getResourceAsStream(BUDGETS)) {
+            assertNotNull(inputStream, "Missing " + BUDGETS);
+            budgets.load(inputStream);
+        }
+        return budgets;
+    }
+
+    /**
+     * the measured operations, the inputs are created once so only the operation itself is measured
+     */
+    private static Map<String, Callable<Object>> operations() {
+        Map<String, Callable<Object>> operations = new LinkedHashMap<>();
+        String[] names = Fixtures.fieldNames(100);
+        JsonDsl.Tuple<?>[] tuples = new JsonDsl.Tuple<?>[names.length];
+        for (int i = 0; i < names.length; i++) {
+            tuples[i] = tuple(names[i], i);
+        }
+        JsonDsl.Tuple<?> id = tuple("id", 42L);
+        JsonDsl.Tuple<?> status = tuple("status", "ACTIVE");
+        int[] ints = new int[100];
+        String[] strings = {"a", "b", "c", "d", "e", "f", "g", "h", "i", "j"};
+        JsonDsl8.TupleClosure<JsonNode> closure = (amount) -> number(12.5d);
+        closure.getName();
+        ObjectNode smallObject = object(id, status);
+        JsonTemplate template = JsonTemplate.compile(JsonStreamDsl.jsonDocument(
+                JsonStreamDsl.tuple("id", JsonStreamDsl.placeholder("id")),
+                JsonStreamDsl.tuple("status", JsonStreamDsl.placeholder("status"))));
+        Object[] values = {42L, "ACTIVE"};
+
+        operations.put("tuple.long", () -> tuple("id", 42L));
+        operations.put("tuple.string", () -> tuple("status", "ACTIVE"));
+        operations.put("object.2", () -> object(id, status));
+        operations.put("object.100", () -> object(tuples));
+        operations.put("jsonDocument.100", () -> jsonDocument(tuples));
+        operations.put("array.int.100", () -> array(ints));
+        operations.put("array.string.10", () -> array(strings));
+        operations.put("closure.name.resolved", closure::getName);
+        operations.put("object.2.get", () -> smallObject.get("status"));
+        operations.put("template.toBytes", () -> template.toBytes(values));
+        return operations;
+    }
+}
@@ -0,0 +1,32 @@
+package org.speedy.jackson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Receiver of the batches written by {@link JsonBulk} <br/>
+ * A batch holds newline terminated utf-8 json documents, the buffer is reused for the next batch once the sink returns
+ */
+@FunctionalInterface
+public interface BatchSink {
+
+    /**
+     * receive a batch of documents
+     *
+     * @param buffer    the buffer, it is only valid until this method returns
+     * @param length    the number of bytes of the batch, starting at index 0 of the buffer
+     * @param documents the number of documents of the batch
+     * @throws IOException when the batch fails to be written
+     */
+    void write(byte[] buffer, int length, int documents) throws IOException;
+
+    /**
+     * create a sink which writes the batches to an output stream, the output stream is neither flushed nor closed
+     *
+     * @param outputStream the output stream
+     * @return the batch sink
+     */
+    static BatchSink of(OutputStream outputStream) {
+        return (buffer, length, documents) -> outputStream.write(buffer, 0, length);
+    }
+}
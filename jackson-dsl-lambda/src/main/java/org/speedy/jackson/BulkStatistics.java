@@ -0,0 +1,79 @@
+package org.speedy.jackson;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a {@link JsonBulk} run
+ */
+public final class BulkStatistics {
+
+    private final long rows;
+    private final long bytes;
+    private final long batches;
+    private final long nanos;
+
+    BulkStatistics(long rows, long bytes, long batches, long nanos) {
+        this.rows = rows;
+        this.bytes = bytes;
+        this.batches = batches;
+        this.nanos = nanos;
+    }
+
+    /**
+     * @return the number of rows written as documents
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of bytes handed to the sink, including the newline of each document
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of batches handed to the sink
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * @param unit the time unit
+     * @return the elapsed time of the run, including the time spent in the sink
+     */
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the number of rows per second
+     */
+    public double getRowsPerSecond() {
+        return perSecond(rows);
+    }
+
+    /**
+     * @return the number of bytes per second
+     */
+    public double getBytesPerSecond() {
+        return perSecond(bytes);
+    }
+
+    private double perSecond(long count) {
+        return nanos > 0 ? count * 1e9d / nanos : 0d;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkStatistics{rows=" + rows
+                + ", bytes=" + bytes
+                + ", batches=" + batches
+                + ", millis=" + TimeUnit.NANOSECONDS.toMillis(nanos)
+                + ", rowsPerSecond=" + Math.round(getRowsPerSecond())
+                + ", bytesPerSecond=" + Math.round(getBytesPerSecond())
+                + '}';
+    }
+}
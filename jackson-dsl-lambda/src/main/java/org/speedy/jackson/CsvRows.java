@@ -0,0 +1,129 @@
+package org.speedy.jackson;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Rows of a csv source <br/>
+ * Fields are separated by a separator character, a field in double quotes may contain separators, line breaks and
+ * doubled quotes. Lines end with \n or \r\n, an empty line is a row with one empty field. The reader is not closed
+ */
+final class CsvRows implements Iterator<String[]> {
+
+    private static final int EOF = -1;
+
+    private final Reader reader;
+    private final char separator;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder field = new StringBuilder(64);
+    private final List<String> fields = new ArrayList<>();
+    private int position;
+    private int limit;
+    private String[] next;
+
+    CsvRows(Reader reader, char separator) {
+        this.reader = reader;
+        this.separator = separator;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = readRow();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public String[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String[] row = next;
+        next = null;
+        return row;
+    }
+
+    private String[] readRow() throws IOException {
+        int c = read();
+        if (c == EOF) {
+            return null;
+        }
+        fields.clear();
+        while (true) {
+            field.setLength(0);
+            if (c == '"') {
+                c = readQuoted();
+                if (c != separator && c != '\n' && c != '\r' && c != EOF) {
+                    throw new IOException("Unexpected character " + (char) c + " after quoted field " + field);
+                }
+            } else {
+                while (c != separator && c != '\n' && c != '\r' && c != EOF) {
+                    field.append((char) c);
+                    c = read();
+                }
+            }
+            fields.add(field.toString());
+            if (c == separator) {
+                c = read();
+                continue;
+            }
+            if (c == '\r' && peek() == '\n') {
+                read();
+            }
+            return fields.toArray(new String[fields.size()]);
+        }
+    }
+
+    /**
+     * @return the character after the closing quote
+     */
+    private int readQuoted() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == EOF) {
+                throw new IOException("Unterminated quoted field " + field);
+            }
+            if (c == '"') {
+                c = read();
+                if (c != '"') {
+                    return c;
+                }
+            }
+            field.append((char) c);
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
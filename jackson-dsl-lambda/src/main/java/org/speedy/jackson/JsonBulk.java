@@ -0,0 +1,205 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Bulk generation of json documents from rows <br/>
+ * Every row is mapped to a document by a shape, the documents are written newline terminated into a buffer which is
+ * handed to a {@link BatchSink} every batch size documents. One buffer and one json generator are used for the whole
+ * run, so a row costs the shape and the serialization only. A bulk is immutable and can be run by several threads
+ *
+ * @param <R> the type of the rows
+ */
+public final class JsonBulk<R> {
+
+    /**
+     * the default number of documents of a batch
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final RowWriter<R> rowWriter;
+    private final int batchSize;
+
+    private JsonBulk(RowWriter<R> rowWriter, int batchSize) {
+        this.rowWriter = rowWriter;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * create a bulk which maps a row to a document description
+     *
+     * @param shape the mapper of a row to its document, for example row -> jsonDocument(tuple("id", row.getId()))
+     * @param <R>   the type of the rows
+     * @return the bulk
+     */
+    public static <R> JsonBulk<R> of(Function<? super R, ? extends JsonStream> shape) {
+        Objects.requireNonNull(shape, "shape");
+        return new JsonBulk<>((generator, row) -> shape.apply(row).write(generator, Bindings.NONE), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * create a bulk which fills the placeholders of a template with the values of a row, this is the fastest shape
+     *
+     * @param template the compiled template
+     * @param values   the mapper of a row to the values of the placeholders
+     * @param <R>      the type of the rows
+     * @return the bulk
+     */
+    public static <R> JsonBulk<R> of(JsonTemplate template, Function<? super R, Object[]> values) {
+        Objects.requireNonNull(template, "template");
+        Objects.requireNonNull(values, "values");
+        return new JsonBulk<>((generator, row) -> template.writeTo(generator, values.apply(row)), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * create the rows of a comma separated source, the header line, if any, is the first row
+     *
+     * @param reader the csv source, it is not closed
+     * @return the iterator of the rows, it throws an {@link java.io.UncheckedIOException} when the source fails to read
+     */
+    public static Iterator<String[]> csvRows(Reader reader) {
+        return csvRows(reader, ',');
+    }
+
+    /**
+     * create the rows of a csv source, the header line, if any, is the first row
+     *
+     * @param reader    the csv source, it is not closed
+     * @param separator the field separator
+     * @return the iterator of the rows, it throws an {@link java.io.UncheckedIOException} when the source fails to read
+     */
+    public static Iterator<String[]> csvRows(Reader reader, char separator) {
+        return new CsvRows(reader, separator);
+    }
+
+    /**
+     * create a bulk with another batch size
+     *
+     * @param batchSize the number of documents of a batch
+     * @return the bulk
+     */
+    public JsonBulk<R> batchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        return new JsonBulk<>(rowWriter, batchSize);
+    }
+
+    /**
+     * write a document for every row of an iterable
+     *
+     * @param rows the rows
+     * @param sink the sink of the batches
+     * @return the throughput of the run
+     * @throws IOException when the sink fails to write
+     */
+    public BulkStatistics run(Iterable<? extends R> rows, BatchSink sink) throws IOException {
+        return run(rows.iterator(), sink);
+    }
+
+    /**
+     * write a document for every row of a stream, the stream is consumed sequentially
+     *
+     * @param rows the rows
+     * @param sink the sink of the batches
+     * @return the throughput of the run
+     * @throws IOException when the sink fails to write
+     */
+    public BulkStatistics run(Stream<? extends R> rows, BatchSink sink) throws IOException {
+        return run(rows.iterator(), sink);
+    }
+
+    /**
+     * write a document for every row of an iterator
+     *
+     * @param rows the rows
+     * @param sink the sink of the batches
+     * @return the throughput of the run
+     * @throws IOException when the sink fails to write
+     */
+    public BulkStatistics run(Iterator<? extends R> rows, BatchSink sink) throws IOException {
+        long start = System.nanoTime();
+        long rowCount = 0;
+        long byteCount = 0;
+        long batchCount = 0;
+        BatchBuffer buffer = new BatchBuffer();
+        JsonGenerator generator = JsonStream.jsonFactory.createGenerator(buffer);
+        try {
+            generator.setRootValueSeparator(null);
+            boolean reported = sink instanceof NdjsonWriter;
+            int documents = 0;
+            while (rows.hasNext()) {
+                long rowStart = reported ? JsonDslListeners.NOT_TIMED : JsonDslListeners.startSerialization();
+                boolean written = false;
+                try {
+                    int position = buffer.size() + generator.getOutputBuffered();
+                    rowWriter.write(generator, rows.next());
+                    generator.writeRaw('\n');
+                    written = true;
+                    JsonDslListeners.documentSerialized(buffer.size() + generator.getOutputBuffered() - position,
+                            rowStart);
+                } finally {
+                    if (!written) {
+                        JsonDslListeners.serializationFailed(rowStart);
+                    }
+                }
+                rowCount++;
+                if (++documents == batchSize) {
+                    byteCount += flush(generator, buffer, sink, documents);
+                    batchCount++;
+                    documents = 0;
+                }
+            }
+            if (documents > 0) {
+                byteCount += flush(generator, buffer, sink, documents);
+                batchCount++;
+            }
+        } finally {
+            generator.close();
+        }
+        return new BulkStatistics(rowCount, byteCount, batchCount, System.nanoTime() - start);
+    }
+
+    /**
+     * @return the number of bytes handed to the sink
+     */
+    private static int flush(JsonGenerator generator, BatchBuffer buffer, BatchSink sink, int documents)
+            throws IOException {
+        generator.flush();
+        int length = buffer.size();
+        sink.write(buffer.buffer(), length, documents);
+        buffer.reset();
+        return length;
+    }
+
+    /**
+     * writes a row as a document
+     */
+    @FunctionalInterface
+    private interface RowWriter<R> {
+
+        void write(JsonGenerator generator, R row) throws IOException;
+    }
+
+    /**
+     * output stream whose buffer is handed to the sink without copying and is kept for the next batch
+     */
+    private static final class BatchBuffer extends ByteArrayOutputStream {
+
+        BatchBuffer() {
+            super(64 * 1024);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.speedy.jackson;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
@@ -8,19 +9,33 @@ import java.io.Serializable;
 import java.lang.invoke.SerializedLambda;
 import java.lang.reflect.Method;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
 /**
  * Json Dsl utility which adds closure support to {@link JsonDsl} <br/>
- * Remarque: Code needs to be compiled with Java 8u60 or higher and with -parameters flag to use closures with this dsl
+ * Remarque: Code needs to be compiled with the local variable tables of -g or -g:vars to use closures with this dsl,
+ * plain javac only writes -g:source,lines while Maven and Gradle pass -g by default
  * Created by derammelaere on 2/02/2016.
  */
 public abstract class JsonDsl8 extends JsonDsl {
 
     /**
-     * create a object node and registers the given {@link JsonNodeFactory} in a {@link ThreadLocal} at the start and
-     * removes it at the end
+     * resolved tuple closure names, cached per lambda class so the reflection is done only once per closure
+     */
+    private static final ClassValue<ClosureName> closureNames = new ClassValue<ClosureName>() {
+
+        @Override
+        protected ClosureName computeValue(Class<?> type) {
+            return new ClosureName();
+        }
+
+    };
+
+    /**
+     * create a object node with the given {@link JsonNodeFactory}, the closures are evaluated with this factory
      *
      * @param jsonNodeFactory the object node factory
      * @param closures        the child tuple closures
@@ -31,8 +46,7 @@ public abstract class JsonDsl8 extends JsonDsl {
     }
 
     /**
-     * create a object node and registers a {@link JsonNodeFactory} in a {@link ThreadLocal} at the start (if not present)
-     * and removes it at the end
+     * create a object node with the {@link JsonNodeFactory} of the current scope
      *
      * @param closures the child tuple closures
      * @return the json document
@@ -51,6 +65,173 @@ public abstract class JsonDsl8 extends JsonDsl {
         return object((Tuple<?>[]) closures);
     }
 
+    /**
+     * create a json document with the closures selected by a projection mask, the closures outside the mask are not
+     * called, see {@link ProjectionMask}
+     *
+     * @param mask     the projection mask
+     * @param closures the child tuple closures
+     * @return the json document
+     */
+    public static ObjectNode jsonDocument(ProjectionMask mask, TupleClosure<?>... closures) {
+        return jsonDocument(mask, (Tuple<?>[]) closures);
+    }
+
+    /**
+     * create a object node with the closures selected by a projection mask, the closures outside the mask are not
+     * called, see {@link ProjectionMask}
+     *
+     * @param mask     the projection mask
+     * @param closures the child tuple closures
+     * @return the object node
+     */
+    public static ObjectNode object(ProjectionMask mask, TupleClosure<?>... closures) {
+        return object(mask, (Tuple<?>[]) closures);
+    }
+
+    /**
+     * encode a json document into a new direct byte buffer, the root object node is not created, see
+     * {@link BinaryDocument}
+     *
+     * @param closures the child tuple closures
+     * @return the binary document
+     */
+    public static BinaryDocument binaryDocument(TupleClosure<?>... closures) {
+        return binaryDocument((Tuple<?>[]) closures);
+    }
+
+    /**
+     * create a tuple of which the object node is created by the closure when it is first read, changed or serialized,
+     * the closure is called at most once, see {@link JsonDsl#lazyObject(java.util.concurrent.Callable)}
+     *
+     * @param closure the tuple closure which creates the object node
+     * @return the tuple with the lazy object node
+     */
+    public static Tuple<ObjectNode> lazyObject(TupleClosure<? extends ObjectNode> closure) {
+        String name = closure.getName();
+        return tuple(name, lazyObject(() -> closure.apply(name)));
+    }
+
+    /**
+     * create a tuple of which the array node is created by the closure when it is first read, changed or serialized,
+     * the closure is called at most once, see {@link JsonDsl#lazyArray(java.util.concurrent.Callable)}
+     *
+     * @param closure the tuple closure which creates the array node
+     * @return the tuple with the lazy array node
+     */
+    public static Tuple<ArrayNode> lazyArray(TupleClosure<? extends ArrayNode> closure) {
+        String name = closure.getName();
+        return tuple(name, lazyArray(() -> closure.apply(name)));
+    }
+
+    /**
+     * create a array node with the mapped elements of a stream
+     *
+     * @param stream the elements
+     * @param mapper the mapper of an element to its json node
+     * @param <T>    the type of the elements
+     * @return the array node
+     */
+    public static <T> ArrayNode array(Stream<T> stream, Function<? super T, ? extends JsonNode> mapper) {
+        return ParallelArrays.sequential(JsonNodeFactoryScope.current(), stream.spliterator(), mapper);
+    }
+
+    /**
+     * create a array node with the mapped elements of an iterable
+     *
+     * @param iterable the elements
+     * @param mapper   the mapper of an element to its json node
+     * @param <T>      the type of the elements
+     * @return the array node
+     */
+    public static <T> ArrayNode array(Iterable<T> iterable, Function<? super T, ? extends JsonNode> mapper) {
+        return ParallelArrays.sequential(JsonNodeFactoryScope.current(), iterable.spliterator(), mapper);
+    }
+
+    /**
+     * create a array node with the mapped elements of a spliterator
+     *
+     * @param spliterator the elements
+     * @param mapper      the mapper of an element to its json node
+     * @param <T>         the type of the elements
+     * @return the array node
+     */
+    public static <T> ArrayNode array(Spliterator<T> spliterator, Function<? super T, ? extends JsonNode> mapper) {
+        return ParallelArrays.sequential(JsonNodeFactoryScope.current(), spliterator, mapper);
+    }
+
+    /**
+     * create a array node with the mapped elements of a stream, the elements are mapped in chunks on the common
+     * {@link ForkJoinPool} and added in encounter order
+     *
+     * @param stream the elements
+     * @param mapper the mapper of an element to its json node, it is called from several threads
+     * @param <T>    the type of the elements
+     * @return the array node
+     */
+    public static <T> ArrayNode parallelArray(Stream<T> stream, Function<? super T, ? extends JsonNode> mapper) {
+        return parallelArray(stream.spliterator(), mapper, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * create a array node with the mapped elements of a stream, the elements are mapped in chunks on a
+     * {@link ForkJoinPool} and added in encounter order
+     *
+     * @param stream the elements
+     * @param mapper the mapper of an element to its json node, it is called from several threads
+     * @param pool   the fork join pool
+     * @param <T>    the type of the elements
+     * @return the array node
+     */
+    public static <T> ArrayNode parallelArray(Stream<T> stream, Function<? super T, ? extends JsonNode> mapper,
+                                              ForkJoinPool pool) {
+        return parallelArray(stream.spliterator(), mapper, pool);
+    }
+
+    /**
+     * create a array node with the mapped elements of an iterable, the elements are mapped in chunks on the common
+     * {@link ForkJoinPool} and added in encounter order
+     *
+     * @param iterable the elements
+     * @param mapper   the mapper of an element to its json node, it is called from several threads
+     * @param <T>      the type of the elements
+     * @return the array node
+     */
+    public static <T> ArrayNode parallelArray(Iterable<T> iterable, Function<? super T, ? extends JsonNode> mapper) {
+        return parallelArray(iterable.spliterator(), mapper, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * create a array node with the mapped elements of an iterable, the elements are mapped in chunks on a
+     * {@link ForkJoinPool} and added in encounter order
+     *
+     * @param iterable the elements
+     * @param mapper   the mapper of an element to its json node, it is called from several threads
+     * @param pool     the fork join pool
+     * @param <T>      the type of the elements
+     * @return the array node
+     */
+    public static <T> ArrayNode parallelArray(Iterable<T> iterable, Function<? super T, ? extends JsonNode> mapper,
+                                              ForkJoinPool pool) {
+        return parallelArray(iterable.spliterator(), mapper, pool);
+    }
+
+    /**
+     * create a array node with the mapped elements of a spliterator, the elements are mapped in chunks on a
+     * {@link ForkJoinPool} and added in encounter order <br/>
+     * the json node factory of the calling thread is bound while the chunks are mapped
+     *
+     * @param spliterator the elements
+     * @param mapper      the mapper of an element to its json node, it is called from several threads
+     * @param pool        the fork join pool
+     * @param <T>         the type of the elements
+     * @return the array node
+     */
+    public static <T> ArrayNode parallelArray(Spliterator<T> spliterator, Function<? super T, ? extends JsonNode> mapper,
+                                              ForkJoinPool pool) {
+        return ParallelArrays.parallel(JsonNodeFactoryScope.current(), spliterator, mapper, pool);
+    }
+
     /**
      * functional interface for tuple
      * which requires a parameter with the name of the tuple and as a return value, the right value of this tuple
@@ -58,18 +239,16 @@ public abstract class JsonDsl8 extends JsonDsl {
     public interface TupleClosure<T extends JsonNode> extends Tuple<T>, Function<String, T>, Serializable {
 
         default void checkParameters() {
-            if (getLambdaMethod().getParameterCount() != 1) {
-                throw new IllegalArgumentException("One parameter needs to be passed to the tuple closure.");
-            }
-            if ("arg0".equals(getParameterName(0))) {
-                throw new IllegalStateException("Code needs to be compiled with Java 8u60 or higher and -parameters flag");
+            RuntimeException noParameterName = ClosureName.noParameterName(getLambdaMethod());
+            if (noParameterName != null) {
+                throw noParameterName;
             }
         }
 
         default Class<?> getLambdaClass(SerializedLambda lambda) {
             try {
-                String className = lambda.getImplClass().replaceAll("/", ".");
-                return Class.forName(className);
+                String className = lambda.getImplClass().replace('/', '.');
+                return Class.forName(className, false, getClass().getClassLoader());
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
@@ -84,10 +263,9 @@ public abstract class JsonDsl8 extends JsonDsl {
                     .orElseThrow(NoSuchMethodRuntimeException::new);
         }
 
-		default String getLeft(){
-            checkParameters();
-            return getParameterName(0);
-		}
+        default String getLeft() {
+            return closureNames.get(getClass()).resolve(this);
+        }
 
         default String getName() {
             return getLeft();
@@ -102,13 +280,7 @@ public abstract class JsonDsl8 extends JsonDsl {
         }
 
         default SerializedLambda getSerializedLambda() {
-            try {
-                Method replaceMethod = getClass().getDeclaredMethod("writeReplace");
-                replaceMethod.setAccessible(true);
-                return (SerializedLambda) replaceMethod.invoke(this);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
+            return LambdaParameterNames.serializedLambda(this);
         }
 
         default T getValue() {
@@ -116,6 +288,63 @@ public abstract class JsonDsl8 extends JsonDsl {
         }
     }
 
+    /**
+     * the resolved name of a tuple closure class, or the reason why the class has no parameter name <br/>
+     * The name is read from the local variable table of the compiled lambda, the -parameters reflection is only used
+     * when the class was compiled without debug information
+     */
+    private static final class ClosureName {
+        private volatile String name;
+        private volatile RuntimeException failure;
+
+        String resolve(TupleClosure<?> closure) {
+            RuntimeException cachedFailure = failure;
+            if (cachedFailure != null) {
+                throw cachedFailure;
+            }
+            long start = JsonDslListeners.startClosureName();
+            String resolvedName = name;
+            if (resolvedName != null) {
+                JsonDslListeners.closureNameResolved(closure.getClass(), true, start);
+                return resolvedName;
+            }
+            try {
+                resolvedName = LambdaParameterNames.lastParameterName(closure.getSerializedLambda(),
+                        closure.getClass().getClassLoader());
+                if (resolvedName == null) {
+                    Method method = closure.getLambdaMethod();
+                    RuntimeException noParameterName = noParameterName(method);
+                    if (noParameterName != null) {
+                        // the class has no parameter name, every later call fails the same way
+                        failure = noParameterName;
+                        throw noParameterName;
+                    }
+                    resolvedName = method.getParameters()[0].getName();
+                }
+            } catch (RuntimeException e) {
+                // other failures, for example of the class loader, are not cached and are tried again
+                JsonDslListeners.closureNameFailed(start);
+                throw e;
+            }
+            name = resolvedName;
+            JsonDslListeners.closureNameResolved(closure.getClass(), false, start);
+            return resolvedName;
+        }
+
+        /**
+         * @return the exception of a lambda method which has no usable parameter name, or null when it has one
+         */
+        static RuntimeException noParameterName(Method method) {
+            if (method.getParameterCount() != 1) {
+                return new IllegalArgumentException("One parameter needs to be passed to the tuple closure.");
+            }
+            if ("arg0".equals(method.getParameters()[0].getName())) {
+                return new IllegalStateException("Code needs to be compiled with -g or -g:vars to use tuple closures");
+            }
+            return null;
+        }
+    }
+
     public static class NoSuchMethodRuntimeException extends RuntimeException {
         public NoSuchMethodRuntimeException() {
         }
@@ -0,0 +1,269 @@
+package org.speedy.jackson;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandleInfo;
+import java.lang.invoke.SerializedLambda;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the parameter names of lambda implementation methods from the LocalVariableTable of the compiled class.
+ * This only needs the local variable tables javac writes with -g, not the -parameters flag, and avoids
+ * {@link Class#getDeclaredMethods()} on the class that declares the closures. The serialized form of a lambda is taken
+ * from the serialization machinery and the class file is read as a resource of its class, so neither needs
+ * setAccessible or an opened package.
+ */
+final class LambdaParameterNames {
+
+    /**
+     * parameter names of all methods of a class, keyed by method name and descriptor, indexed by local variable slot
+     */
+    private static final ClassValue<Map<String, String[]>> classParameterNames = new ClassValue<Map<String, String[]>>() {
+
+        @Override
+        protected Map<String, String[]> computeValue(Class<?> type) {
+            return read(type);
+        }
+
+    };
+
+    private LambdaParameterNames() {
+    }
+
+    /**
+     * get the name of the last parameter of the implementation method of a lambda
+     *
+     * @param lambda      the serialized form of the lambda
+     * @param classLoader the class loader of the lambda
+     * @return the parameter name or null when the class has no local variable table for this method
+     */
+    static String lastParameterName(SerializedLambda lambda, ClassLoader classLoader) {
+        Class<?> implClass;
+        try {
+            implClass = Class.forName(lambda.getImplClass().replace('/', '.'), false, classLoader);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        String[] slotNames = classParameterNames.get(implClass)
+                .get(lambda.getImplMethodName() + lambda.getImplMethodSignature());
+        if (slotNames == null) {
+            return null;
+        }
+        int slot = lambda.getImplMethodKind() == MethodHandleInfo.REF_invokeStatic ? 0 : 1;
+        String descriptor = lambda.getImplMethodSignature();
+        int lastSlot = -1;
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            lastSlot = slot;
+            char type = descriptor.charAt(i);
+            if (type == 'J' || type == 'D') {
+                slot += 2;
+                i++;
+            } else {
+                slot++;
+                while (descriptor.charAt(i) == '[') {
+                    i++;
+                }
+                if (descriptor.charAt(i) == 'L') {
+                    i = descriptor.indexOf(';', i);
+                }
+                i++;
+            }
+        }
+        return lastSlot >= 0 && lastSlot < slotNames.length ? slotNames[lastSlot] : null;
+    }
+
+    /**
+     * get the serialized form of a serializable lambda, as written by its writeReplace method <br/>
+     * The lambda is written to a stream which replaces the serialized form by null, so the captured arguments are
+     * never serialized
+     *
+     * @param lambda the serializable lambda
+     * @return the serialized form of the lambda
+     */
+    static SerializedLambda serializedLambda(Serializable lambda) {
+        try {
+            SerializedLambdaCapture capture = new SerializedLambdaCapture();
+            capture.writeObject(lambda);
+            if (capture.serializedLambda == null) {
+                throw new IllegalArgumentException(lambda.getClass() + " is not a serializable lambda");
+            }
+            return capture.serializedLambda;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Map<String, String[]> read(Class<?> type) {
+        String name = type.getName();
+        try (InputStream inputStream = type.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+            if (inputStream == null) {
+                return new HashMap<>();
+            }
+            return read(new DataInputStream(new ByteArrayInputStream(readAll(inputStream))));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int length;
+        while ((length = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, length);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static Map<String, String[]> read(DataInputStream in) throws IOException {
+        Map<String, String[]> parameterNames = new HashMap<>();
+        in.skipBytes(8);
+        String[] utf8 = readConstantPool(in);
+        in.skipBytes(6);
+        in.skipBytes(2 * in.readUnsignedShort());
+        int fieldCount = in.readUnsignedShort();
+        for (int i = 0; i < fieldCount; i++) {
+            in.skipBytes(6);
+            skipAttributes(in);
+        }
+        int methodCount = in.readUnsignedShort();
+        for (int i = 0; i < methodCount; i++) {
+            in.skipBytes(2);
+            String key = utf8[in.readUnsignedShort()] + utf8[in.readUnsignedShort()];
+            int attributeCount = in.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                String attributeName = utf8[in.readUnsignedShort()];
+                int attributeLength = in.readInt();
+                if ("Code".equals(attributeName)) {
+                    String[] slotNames = readCode(in, utf8);
+                    if (slotNames != null) {
+                        parameterNames.put(key, slotNames);
+                    }
+                } else {
+                    in.skipBytes(attributeLength);
+                }
+            }
+        }
+        return parameterNames;
+    }
+
+    private static String[] readConstantPool(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        String[] utf8 = new String[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1:
+                    utf8[i] = in.readUTF();
+                    break;
+                case 7:
+                case 8:
+                case 16:
+                case 19:
+                case 20:
+                    in.skipBytes(2);
+                    break;
+                case 15:
+                    in.skipBytes(3);
+                    break;
+                case 3:
+                case 4:
+                case 9:
+                case 10:
+                case 11:
+                case 12:
+                case 17:
+                case 18:
+                    in.skipBytes(4);
+                    break;
+                case 5:
+                case 6:
+                    in.skipBytes(8);
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        return utf8;
+    }
+
+    private static String[] readCode(DataInputStream in, String[] utf8) throws IOException {
+        in.skipBytes(2);
+        int maxLocals = in.readUnsignedShort();
+        in.skipBytes(in.readInt());
+        in.skipBytes(8 * in.readUnsignedShort());
+        String[] slotNames = null;
+        int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            String attributeName = utf8[in.readUnsignedShort()];
+            int attributeLength = in.readInt();
+            if ("LocalVariableTable".equals(attributeName)) {
+                if (slotNames == null) {
+                    slotNames = new String[maxLocals];
+                }
+                int entryCount = in.readUnsignedShort();
+                for (int j = 0; j < entryCount; j++) {
+                    int startPc = in.readUnsignedShort();
+                    in.skipBytes(2);
+                    String name = utf8[in.readUnsignedShort()];
+                    in.skipBytes(2);
+                    int slot = in.readUnsignedShort();
+                    if (startPc == 0 && slot < maxLocals) {
+                        slotNames[slot] = name;
+                    }
+                }
+            } else {
+                in.skipBytes(attributeLength);
+            }
+        }
+        return slotNames;
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            in.skipBytes(2);
+            in.skipBytes(in.readInt());
+        }
+    }
+
+    /**
+     * object stream which keeps the serialized form of the written lambda and writes null instead
+     */
+    private static final class SerializedLambdaCapture extends ObjectOutputStream {
+
+        private SerializedLambda serializedLambda;
+
+        SerializedLambdaCapture() throws IOException {
+            super(new OutputStream() {
+
+                @Override
+                public void write(int b) {
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                }
+
+            });
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object object) {
+            if (object instanceof SerializedLambda) {
+                serializedLambda = (SerializedLambda) object;
+            }
+            return null;
+        }
+    }
+}
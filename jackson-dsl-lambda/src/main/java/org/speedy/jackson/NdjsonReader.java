@@ -0,0 +1,210 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reader of a newline delimited json file <br/>
+ * The file is memory mapped in windows, a record is a read only slice of the mapped window without copying. Empty
+ * lines are skipped and a \r before the newline is not part of the record. A slice is valid while the reader is open
+ */
+public final class NdjsonReader implements Iterable<ByteBuffer>, Closeable {
+
+    /**
+     * the default size of a mapped window, a record must fit in a window
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+
+    private NdjsonReader(FileChannel channel, int windowSize) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * open a file with windows of {@link #DEFAULT_WINDOW_SIZE}
+     *
+     * @param path the path of the file
+     * @return the reader
+     * @throws IOException when the file fails to open
+     */
+    public static NdjsonReader open(Path path) throws IOException {
+        return open(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * open a file
+     *
+     * @param path       the path of the file
+     * @param windowSize the size of a mapped window, a record must fit in a window
+     * @return the reader
+     * @throws IOException when the file fails to open
+     */
+    public static NdjsonReader open(Path path, int windowSize) throws IOException {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+        }
+        return new NdjsonReader(FileChannel.open(path, StandardOpenOption.READ), windowSize);
+    }
+
+    /**
+     * read a record into a json node
+     *
+     * @param record the record
+     * @return the json node
+     * @throws IOException when the record is not valid json
+     */
+    public static JsonNode readTree(ByteBuffer record) throws IOException {
+        return JsonStream.objectMapper.readTree(new ByteBufferBackedInputStream(record.duplicate()));
+    }
+
+    /**
+     * @return the size of the file in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * iterate the records of the file, every iterator starts at the beginning of the file
+     *
+     * @return the iterator of the records, it throws an {@link UncheckedIOException} when the file fails to map
+     */
+    @Override
+    public Iterator<ByteBuffer> iterator() {
+        return new RecordIterator();
+    }
+
+    /**
+     * @return the sequential stream of the records
+     */
+    public Stream<ByteBuffer> records() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * @return the sequential stream of the records read into json nodes
+     */
+    public Stream<JsonNode> nodes() {
+        return records().map(record -> {
+            try {
+                return readTree(record);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private final class RecordIterator implements Iterator<ByteBuffer> {
+
+        private long windowStart;
+        private MappedByteBuffer window;
+        private ByteBuffer readOnlyWindow;
+        private int position;
+        private ByteBuffer next;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = readRecord();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public ByteBuffer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ByteBuffer record = next;
+            next = null;
+            return record;
+        }
+
+        private ByteBuffer readRecord() throws IOException {
+            while (true) {
+                if (window == null || position == window.limit() && !isLast()) {
+                    if (!map(window == null ? 0 : windowStart + position)) {
+                        return null;
+                    }
+                }
+                int limit = window.limit();
+                int end = position;
+                while (end < limit && window.get(end) != '\n') {
+                    end++;
+                }
+                if (end == limit && !isLast()) {
+                    if (position == 0) {
+                        throw new IOException("Record at " + windowStart + " is longer than the window of "
+                                + windowSize + " bytes");
+                    }
+                    map(windowStart + position);
+                    continue;
+                }
+                if (end == position && end == limit) {
+                    return null;
+                }
+                int start = position;
+                position = end < limit ? end + 1 : end;
+                int recordEnd = end > start && window.get(end - 1) == '\r' ? end - 1 : end;
+                if (recordEnd > start) {
+                    return slice(start, recordEnd);
+                }
+            }
+        }
+
+        private boolean isLast() {
+            return windowStart + window.limit() == size;
+        }
+
+        /**
+         * @return false when the offset is the end of the file
+         */
+        private boolean map(long offset) throws IOException {
+            if (offset >= size) {
+                return false;
+            }
+            windowStart = offset;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, size - offset));
+            readOnlyWindow = window.asReadOnlyBuffer();
+            position = 0;
+            return true;
+        }
+
+        private ByteBuffer slice(int start, int end) {
+            ByteBuffer record = readOnlyWindow.duplicate();
+            ((Buffer) record).limit(end).position(start);
+            return record.slice();
+        }
+    }
+}
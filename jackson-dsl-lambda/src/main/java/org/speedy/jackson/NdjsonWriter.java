@@ -0,0 +1,392 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Newline delimited json file sink <br/>
+ * Documents are serialized straight into a large direct buffer which is written to a {@link FileChannel} when it is
+ * full, or into a memory mapped region of the file which grows in segments. A segment is unmapped as soon as the next
+ * one is mapped, and the file is truncated to the written size on close once the last segment is unmapped. Segments
+ * are only mapped when they can be unmapped: with the cleaner of the direct buffer on java 8, and with
+ * sun.misc.Unsafe on java 9 and higher when the system property {@value #UNMAP_PROPERTY} is true. Otherwise a mapped
+ * writer writes through a direct buffer. A writer is not thread safe, it is also a {@link BatchSink} of
+ * {@link JsonBulk}
+ */
+public final class NdjsonWriter implements BatchSink, Closeable {
+
+    /**
+     * the default size of the direct buffer
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * the default size of a mapped segment
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * the system property which allows a mapped writer to unmap its segments with sun.misc.Unsafe on java 9 and higher
+     */
+    public static final String UNMAP_PROPERTY = "org.speedy.jackson.ndjson.unmap";
+
+    private final Output output;
+    private final JsonGenerator generator;
+    private long documents;
+
+    private NdjsonWriter(Output output) throws IOException {
+        this.output = output;
+        this.generator = JsonStream.jsonFactory.createGenerator(output);
+        this.generator.setRootValueSeparator(null);
+    }
+
+    /**
+     * create a writer which writes a file through a direct buffer of {@link #DEFAULT_BUFFER_SIZE}, an existing file
+     * is replaced
+     *
+     * @param path the path of the file
+     * @return the writer
+     * @throws IOException when the file fails to open
+     */
+    public static NdjsonWriter open(Path path) throws IOException {
+        return open(path, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * create a writer which writes a file through a direct buffer, an existing file is replaced
+     *
+     * @param path       the path of the file
+     * @param bufferSize the size of the direct buffer
+     * @return the writer
+     * @throws IOException when the file fails to open
+     */
+    public static NdjsonWriter open(Path path, int bufferSize) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        return new NdjsonWriter(new ChannelOutput(channel, bufferSize));
+    }
+
+    /**
+     * create a writer which writes a file through memory mapped segments of {@link #DEFAULT_SEGMENT_SIZE}, an
+     * existing file is replaced
+     *
+     * @param path the path of the file
+     * @return the writer
+     * @throws IOException when the file fails to open
+     */
+    public static NdjsonWriter mapped(Path path) throws IOException {
+        return mapped(path, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * create a writer which writes a file through memory mapped segments, an existing file is replaced. When the
+     * segments can not be unmapped the writer writes through a direct buffer of {@link #DEFAULT_BUFFER_SIZE}
+     *
+     * @param path        the path of the file
+     * @param segmentSize the size of a mapped segment, the file grows by this size
+     * @return the writer
+     * @throws IOException when the file fails to open
+     */
+    public static NdjsonWriter mapped(Path path, int segmentSize) throws IOException {
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("Segment size must be positive: " + segmentSize);
+        }
+        if (!Unmapper.isAvailable()) {
+            return open(path);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new NdjsonWriter(new MappedOutput(channel, segmentSize));
+    }
+
+    /**
+     * write a document
+     *
+     * @param jsonNode the document, for example created with {@link JsonDsl#jsonDocument(JsonDsl.Tuple[])}
+     * @throws IOException when the file fails to write
+     */
+    public void write(JsonNode jsonNode) throws IOException {
+        long start = JsonDslListeners.startSerialization();
+        boolean written = false;
+        try {
+            long position = position();
+            JsonStream.objectMapper.writeTree(generator, jsonNode);
+            generator.writeRaw('\n');
+            documents++;
+            written = true;
+            JsonDslListeners.documentSerialized(position() - position, start);
+        } finally {
+            if (!written) {
+                JsonDslListeners.serializationFailed(start);
+            }
+        }
+    }
+
+    /**
+     * write a document
+     *
+     * @param jsonStream the document, for example created with {@link JsonStreamDsl#jsonDocument}
+     * @throws IOException when the file fails to write
+     */
+    public void write(JsonStream jsonStream) throws IOException {
+        long start = JsonDslListeners.startSerialization();
+        boolean written = false;
+        try {
+            long position = position();
+            jsonStream.write(generator, Bindings.NONE);
+            generator.writeRaw('\n');
+            documents++;
+            written = true;
+            JsonDslListeners.documentSerialized(position() - position, start);
+        } finally {
+            if (!written) {
+                JsonDslListeners.serializationFailed(start);
+            }
+        }
+    }
+
+    /**
+     * write a batch of newline terminated documents, the documents are reported to the listeners of the dsl as
+     * serialized by this writer, so {@link JsonBulk} does not report them again
+     *
+     * @param buffer    the buffer
+     * @param length    the number of bytes of the batch
+     * @param documents the number of documents of the batch
+     * @throws IOException when the file fails to write
+     */
+    @Override
+    public void write(byte[] buffer, int length, int documents) throws IOException {
+        long start = JsonDslListeners.startSerialization();
+        boolean written = false;
+        try {
+            generator.flush();
+            output.write(buffer, 0, length);
+            this.documents += documents;
+            written = true;
+            JsonDslListeners.batchSerialized(length, documents, start);
+        } finally {
+            if (!written) {
+                JsonDslListeners.serializationFailed(start);
+            }
+        }
+    }
+
+    /**
+     * @return the number of documents written
+     */
+    public long getDocuments() {
+        return documents;
+    }
+
+    /**
+     * @return the number of bytes written, including the bytes still buffered
+     * @throws IOException when the buffered bytes of the generator fail to write
+     */
+    public long getBytes() throws IOException {
+        generator.flush();
+        return output.written;
+    }
+
+    /**
+     * @return the number of bytes written to the output and buffered by the generator
+     */
+    private long position() {
+        return output.written + generator.getOutputBuffered();
+    }
+
+    /**
+     * write the buffered bytes, truncate the file to the written size and close it
+     *
+     * @throws IOException when the file fails to write
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            generator.close();
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * output stream into a file channel which counts the written bytes
+     */
+    private abstract static class Output extends OutputStream {
+
+        final FileChannel channel;
+        long written;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+    }
+
+    private static final class ChannelOutput extends Output {
+
+        private final ByteBuffer buffer;
+
+        ChannelOutput(FileChannel channel, int bufferSize) {
+            super(channel);
+            this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (length > buffer.remaining()) {
+                drain();
+                if (length > buffer.capacity()) {
+                    writeFully(ByteBuffer.wrap(bytes, offset, length));
+                    written += length;
+                    return;
+                }
+            }
+            buffer.put(bytes, offset, length);
+            written += length;
+        }
+
+        private void drain() throws IOException {
+            ((Buffer) buffer).flip();
+            writeFully(buffer);
+            ((Buffer) buffer).clear();
+        }
+
+        private void writeFully(ByteBuffer source) throws IOException {
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+                channel.truncate(written);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    private static final class MappedOutput extends Output {
+
+        private final int segmentSize;
+        private long segmentStart;
+        private MappedByteBuffer segment;
+
+        MappedOutput(FileChannel channel, int segmentSize) throws IOException {
+            super(channel);
+            this.segmentSize = segmentSize;
+            this.segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            written += length;
+            while (length > 0) {
+                if (!segment.hasRemaining()) {
+                    MappedByteBuffer full = segment;
+                    segment = null;
+                    Unmapper.unmap(full);
+                    segmentStart += segmentSize;
+                    segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentStart, segmentSize);
+                }
+                int count = Math.min(length, segment.remaining());
+                segment.put(bytes, offset, count);
+                offset += count;
+                length -= count;
+            }
+        }
+
+        /**
+         * the file is only truncated once the last segment is unmapped, a failed unmap leaves the file as it is
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                MappedByteBuffer last = segment;
+                segment = null;
+                if (last != null) {
+                    Unmapper.unmap(last);
+                }
+                channel.truncate(written);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * releases a mapped segment before the garbage collector does, a file with a mapped region can not be truncated on
+     * Windows <br/>
+     * The release needs the cleaner of sun.nio.ch.DirectBuffer on java 8, or sun.misc.Unsafe.invokeCleaner on java 9
+     * and higher, which is only looked up when {@link #UNMAP_PROPERTY} is true as it opens the unsafe instance. A
+     * released segment must not be used anymore
+     */
+    private static final class Unmapper {
+
+        private static final MethodHandle unmap = unmapHandle();
+
+        /**
+         * @return true when a segment can be unmapped
+         */
+        static boolean isAvailable() {
+            return unmap != null;
+        }
+
+        static void unmap(MappedByteBuffer segment) throws IOException {
+            try {
+                unmap.invokeExact((ByteBuffer) segment);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IOException(e);
+            }
+        }
+
+        private static MethodHandle unmapHandle() {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            try {
+                Class<?> directBuffer = Class.forName("sun.nio.ch.DirectBuffer");
+                Class<?> cleanerClass = Class.forName("sun.misc.Cleaner");
+                MethodHandle cleaner = lookup.findVirtual(directBuffer, "cleaner", MethodType.methodType(cleanerClass));
+                MethodHandle clean = lookup.findVirtual(cleanerClass, "clean", MethodType.methodType(void.class));
+                return MethodHandles.filterReturnValue(cleaner, clean)
+                        .asType(MethodType.methodType(void.class, ByteBuffer.class));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // java 9 and higher, the package of the direct buffer is not exported
+            }
+            if (!Boolean.getBoolean(UNMAP_PROPERTY)) {
+                return null;
+            }
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                MethodHandle invokeCleaner = lookup.findVirtual(unsafeClass, "invokeCleaner",
+                        MethodType.methodType(void.class, ByteBuffer.class));
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                return invokeCleaner.bindTo(theUnsafe.get(null));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                return null;
+            }
+        }
+    }
+}
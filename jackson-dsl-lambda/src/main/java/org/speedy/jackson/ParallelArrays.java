@@ -0,0 +1,130 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Builds the elements of an array node on a {@link ForkJoinPool} <br/>
+ * The spliterator is split into chunks which are mapped in parallel, the chunks are joined in encounter order. The
+ * json node factory of the calling thread is bound while a chunk is mapped, so nested dsl calls use the same factory
+ */
+final class ParallelArrays {
+
+    /**
+     * the minimum number of elements of a chunk
+     */
+    private static final long MIN_CHUNK_SIZE = 1024;
+
+    private ParallelArrays() {
+    }
+
+    /**
+     * create a array node with the mapped elements of a spliterator
+     *
+     * @param jsonNodeFactory the json node factory
+     * @param spliterator     the elements
+     * @param mapper          the mapper of an element to its json node
+     * @return the array node
+     */
+    static <T> ArrayNode sequential(JsonNodeFactory jsonNodeFactory, Spliterator<T> spliterator,
+                                    Function<? super T, ? extends JsonNode> mapper) {
+        ArrayNode arrayNode = TupleDsl.newArrayNode(jsonNodeFactory, initialCapacity(spliterator));
+        spliterator.forEachRemaining(element -> arrayNode.add(mapper.apply(element)));
+        return arrayNode;
+    }
+
+    /**
+     * create a array node with the mapped elements of a spliterator, the elements are mapped on a fork join pool
+     *
+     * @param jsonNodeFactory the json node factory
+     * @param spliterator     the elements
+     * @param mapper          the mapper of an element to its json node
+     * @param pool            the fork join pool
+     * @return the array node
+     */
+    static <T> ArrayNode parallel(JsonNodeFactory jsonNodeFactory, Spliterator<T> spliterator,
+                                  Function<? super T, ? extends JsonNode> mapper, ForkJoinPool pool) {
+        long size = spliterator.estimateSize();
+        long chunkSize = size == Long.MAX_VALUE
+                ? MIN_CHUNK_SIZE
+                : Math.max(MIN_CHUNK_SIZE, size / (pool.getParallelism() * 4L));
+        List<List<JsonNode>> chunks = pool.invoke(new ChunkTask<>(jsonNodeFactory, spliterator, mapper, chunkSize));
+        int total = 0;
+        for (List<JsonNode> chunk : chunks) {
+            total += chunk.size();
+        }
+        ArrayNode arrayNode = TupleDsl.newArrayNode(jsonNodeFactory, total);
+        for (List<JsonNode> chunk : chunks) {
+            for (JsonNode element : chunk) {
+                arrayNode.add(element);
+            }
+        }
+        return arrayNode;
+    }
+
+    /**
+     * @return the exact size of a spliterator or a default capacity when the size is unknown
+     */
+    private static int initialCapacity(Spliterator<?> spliterator) {
+        long size = spliterator.getExactSizeIfKnown();
+        return size >= 0 && size < Integer.MAX_VALUE ? (int) size : 16;
+    }
+
+    /**
+     * maps the elements of a spliterator into a list of chunks in encounter order
+     */
+    private static final class ChunkTask<T> extends RecursiveTask<List<List<JsonNode>>> {
+
+        private final JsonNodeFactory jsonNodeFactory;
+        private final Spliterator<T> spliterator;
+        private final Function<? super T, ? extends JsonNode> mapper;
+        private final long chunkSize;
+
+        ChunkTask(JsonNodeFactory jsonNodeFactory, Spliterator<T> spliterator,
+                  Function<? super T, ? extends JsonNode> mapper, long chunkSize) {
+            this.jsonNodeFactory = jsonNodeFactory;
+            this.spliterator = spliterator;
+            this.mapper = mapper;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected List<List<JsonNode>> compute() {
+            Spliterator<T> prefix = spliterator.estimateSize() > chunkSize ? spliterator.trySplit() : null;
+            if (prefix == null) {
+                List<List<JsonNode>> chunks = new ArrayList<>(1);
+                chunks.add(map());
+                return chunks;
+            }
+            ChunkTask<T> prefixTask = new ChunkTask<>(jsonNodeFactory, prefix, mapper, chunkSize);
+            prefixTask.fork();
+            List<List<JsonNode>> suffixChunks =
+                    new ChunkTask<>(jsonNodeFactory, spliterator, mapper, chunkSize).compute();
+            List<List<JsonNode>> chunks = prefixTask.join();
+            chunks.addAll(suffixChunks);
+            return chunks;
+        }
+
+        private List<JsonNode> map() {
+            List<JsonNode> chunk = new ArrayList<>(initialCapacity(spliterator));
+            try {
+                return JsonNodeFactoryScope.call(jsonNodeFactory, () -> {
+                    spliterator.forEachRemaining(element -> chunk.add(mapper.apply(element)));
+                    return chunk;
+                });
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
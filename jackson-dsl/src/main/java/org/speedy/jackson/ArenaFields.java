@@ -0,0 +1,289 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map of the fields of a recycled object node of a {@link JsonArena} <br/>
+ * The names and values are kept in insertion order in two arrays which keep their capacity when the map is cleared,
+ * objects with more than {@link CompactObjectMap#THRESHOLD} fields are indexed by an open addressing table of slot
+ * numbers. The entries are views of a slot and are created once per slot, so a map which is cleared and refilled
+ * with the same number of fields is filled and iterated without allocating entries
+ */
+final class ArenaFields extends AbstractMap<String, JsonNode> {
+
+    private String[] names = new String[CompactObjectMap.THRESHOLD];
+    private JsonNode[] values = new JsonNode[CompactObjectMap.THRESHOLD];
+    private SlotEntry[] entries = new SlotEntry[CompactObjectMap.THRESHOLD];
+    private int[] index;
+    private int size;
+    private int modCount;
+    private Set<Map.Entry<String, JsonNode>> entrySet;
+
+    /**
+     * @return the number of fields the map holds without growing
+     */
+    int capacity() {
+        return names.length;
+    }
+
+    private int indexOf(Object name) {
+        if (!indexed()) {
+            for (int i = 0; i < size; i++) {
+                String candidate = names[i];
+                if (candidate == name || name != null && name.equals(candidate)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        if (name == null) {
+            return -1;
+        }
+        int mask = index.length - 1;
+        for (int i = hash(name) & mask; index[i] != 0; i = (i + 1) & mask) {
+            int slot = index[i] - 1;
+            if (names[slot] == name || name.equals(names[slot])) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private static int hash(Object name) {
+        int hash = name.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private void addToIndex(int slot) {
+        int mask = index.length - 1;
+        int i = hash(names[slot]) & mask;
+        while (index[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        index[i] = slot + 1;
+    }
+
+    private void rebuildIndex() {
+        if (!indexed()) {
+            return;
+        }
+        int length = Integer.highestOneBit(size * 2 - 1) << 1;
+        if (index == null || index.length < length) {
+            index = new int[length];
+        } else {
+            Arrays.fill(index, 0);
+        }
+        for (int slot = 0; slot < size; slot++) {
+            addToIndex(slot);
+        }
+    }
+
+    private boolean indexed() {
+        return size > CompactObjectMap.THRESHOLD;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return indexOf(name) >= 0;
+    }
+
+    @Override
+    public JsonNode get(Object name) {
+        int slot = indexOf(name);
+        return slot >= 0 ? values[slot] : null;
+    }
+
+    @Override
+    public JsonNode put(String name, JsonNode value) {
+        int slot = indexOf(name);
+        if (slot >= 0) {
+            JsonNode previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        modCount++;
+        if (size == names.length) {
+            int length = size * 2;
+            names = Arrays.copyOf(names, length);
+            values = Arrays.copyOf(values, length);
+            entries = Arrays.copyOf(entries, length);
+        }
+        names[size] = name;
+        values[size] = value;
+        size++;
+        if (size == CompactObjectMap.THRESHOLD + 1 || indexed() && size * 2 > index.length) {
+            rebuildIndex();
+        } else if (indexed()) {
+            addToIndex(size - 1);
+        }
+        return null;
+    }
+
+    @Override
+    public JsonNode remove(Object name) {
+        int slot = indexOf(name);
+        if (slot < 0) {
+            return null;
+        }
+        JsonNode previous = values[slot];
+        removeAt(slot);
+        return previous;
+    }
+
+    private void removeAt(int slot) {
+        modCount++;
+        int moved = size - slot - 1;
+        if (moved > 0) {
+            System.arraycopy(names, slot + 1, names, slot, moved);
+            System.arraycopy(values, slot + 1, values, slot, moved);
+        }
+        size--;
+        names[size] = null;
+        values[size] = null;
+        rebuildIndex();
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    public Set<Map.Entry<String, JsonNode>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<String, JsonNode>>() {
+
+                @Override
+                public Iterator<Map.Entry<String, JsonNode>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void clear() {
+                    ArenaFields.this.clear();
+                }
+
+            };
+        }
+        return entrySet;
+    }
+
+    private SlotEntry entry(int slot) {
+        SlotEntry entry = entries[slot];
+        if (entry == null) {
+            entry = new SlotEntry(slot);
+            entries[slot] = entry;
+        }
+        return entry;
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<String, JsonNode>> {
+
+        private int next;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            checkModCount();
+            return next < size;
+        }
+
+        public Map.Entry<String, JsonNode> next() {
+            checkModCount();
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return entry(last);
+        }
+
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            checkModCount();
+            removeAt(last);
+            next = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+
+        private void checkModCount() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * entry of a slot, it reads the current name and value of the slot
+     */
+    private final class SlotEntry implements Map.Entry<String, JsonNode> {
+
+        private final int slot;
+
+        SlotEntry(int slot) {
+            this.slot = slot;
+        }
+
+        public String getKey() {
+            return names[slot];
+        }
+
+        public JsonNode getValue() {
+            return values[slot];
+        }
+
+        public JsonNode setValue(JsonNode value) {
+            JsonNode previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) object;
+            String name = getKey();
+            JsonNode value = getValue();
+            return (name == null ? entry.getKey() == null : name.equals(entry.getKey()))
+                    && (value == null ? entry.getValue() == null : value.equals(entry.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            String name = getKey();
+            JsonNode value = getValue();
+            return (name == null ? 0 : name.hashCode()) ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.math.BigDecimal;
+
+/**
+ * Json dsl context which takes its object nodes, array nodes and tuples from a {@link JsonArena}, a context is
+ * created with the arena and returned by {@link JsonArena#context()}
+ */
+final class ArenaJsonDslContext extends JsonDslContext {
+
+    private final JsonArena arena;
+
+    ArenaJsonDslContext(JsonNodeFactory jsonNodeFactory, JsonArena arena) {
+        super(jsonNodeFactory);
+        this.arena = arena;
+    }
+
+    @Override
+    public ObjectNode object(JsonDsl.Tuple<?>... tuples) {
+        ObjectNode objectNode = arena.objectNode(tuples.length);
+        for (JsonDsl.Tuple<?> tuple : tuples) {
+            objectNode.set(tuple.getName(), tuple.getValue());
+        }
+        return objectNode;
+    }
+
+    @Override
+    public ObjectNode object(JsonDsl.Tuple<?> t1) {
+        ObjectNode objectNode = arena.objectNode(1);
+        objectNode.set(t1.getName(), t1.getValue());
+        return objectNode;
+    }
+
+    @Override
+    public ObjectNode object(JsonDsl.Tuple<?> t1, JsonDsl.Tuple<?> t2) {
+        ObjectNode objectNode = arena.objectNode(2);
+        objectNode.set(t1.getName(), t1.getValue());
+        objectNode.set(t2.getName(), t2.getValue());
+        return objectNode;
+    }
+
+    @Override
+    public ObjectNode object(JsonDsl.Tuple<?> t1, JsonDsl.Tuple<?> t2, JsonDsl.Tuple<?> t3) {
+        ObjectNode objectNode = arena.objectNode(3);
+        objectNode.set(t1.getName(), t1.getValue());
+        objectNode.set(t2.getName(), t2.getValue());
+        objectNode.set(t3.getName(), t3.getValue());
+        return objectNode;
+    }
+
+    @Override
+    public ObjectNode object(JsonDsl.Tuple<?> t1, JsonDsl.Tuple<?> t2, JsonDsl.Tuple<?> t3, JsonDsl.Tuple<?> t4) {
+        ObjectNode objectNode = arena.objectNode(4);
+        objectNode.set(t1.getName(), t1.getValue());
+        objectNode.set(t2.getName(), t2.getValue());
+        objectNode.set(t3.getName(), t3.getValue());
+        objectNode.set(t4.getName(), t4.getValue());
+        return objectNode;
+    }
+
+    @Override
+    public ObjectNode object(String name, String value) {
+        ObjectNode objectNode = arena.objectNode(1);
+        objectNode.set(name, getJsonNodeFactory().textNode(value));
+        return objectNode;
+    }
+
+    @Override
+    public ObjectNode object(String name, JsonNode value) {
+        ObjectNode objectNode = arena.objectNode(1);
+        objectNode.set(name, value);
+        return objectNode;
+    }
+
+    @Override
+    public ArrayNode array(JsonNode... jsonNodes) {
+        ArrayNode arrayNode = arena.arrayNode(jsonNodes.length);
+        for (JsonNode jsonNode : jsonNodes) {
+            arrayNode.add(jsonNode);
+        }
+        return arrayNode;
+    }
+
+    @Override
+    public ArrayNode array(String... stringObjects) {
+        ArrayNode arrayNode = arena.arrayNode(stringObjects.length);
+        for (String stringObject : stringObjects) {
+            arrayNode.add(stringObject);
+        }
+        return arrayNode;
+    }
+
+    @Override
+    public ArrayNode array(BigDecimal... bigDecimalObjects) {
+        ArrayNode arrayNode = arena.arrayNode(bigDecimalObjects.length);
+        for (BigDecimal bigDecimalObject : bigDecimalObjects) {
+            arrayNode.add(bigDecimalObject);
+        }
+        return arrayNode;
+    }
+
+    @Override
+    public <T extends JsonNode> JsonDsl.Tuple<T> tuple(String name, T jsonNode) {
+        return arena.tuple(name, jsonNode);
+    }
+}
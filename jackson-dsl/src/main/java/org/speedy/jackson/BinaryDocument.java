@@ -0,0 +1,980 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BinaryNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.Buffer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Json document encoded in a flat binary layout in a byte buffer, outside of the java heap unless the buffer is a heap
+ * buffer <br/>
+ * The document is a header with a magic number and the length, followed by the root value. A value is a tag byte and
+ * its payload: an int or a long, the text of another number, the UTF-8 bytes of a string or the bytes of a binary
+ * node. An object is the number of fields, a table with the offset of every key, for more than
+ * {@link CompactObjectMap#THRESHOLD} fields a table of the slots sorted by key, and the keys each followed by its value.
+ * An array is the number of elements, a table with the offset of every element and the elements. <br/>
+ * {@link #root()} returns a read-only view of which the containers decode a field or element when it is first read,
+ * {@link #writeTo(OutputStream)} writes the json text with a single scan of the buffer without decoding nodes or
+ * strings. Pojo and missing nodes can not be encoded. Many documents are best encoded one after the other in a large
+ * direct or memory mapped buffer with {@link #encode(JsonNode, ByteBuffer)} and read back with
+ * {@link #wrap(ByteBuffer)}
+ */
+public final class BinaryDocument {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int MAGIC = 0x4a534e42;
+    private static final int HEADER = 8;
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte FLOAT = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte BIG_INTEGER = 7;
+    private static final byte DECIMAL = 8;
+    private static final byte STRING = 9;
+    private static final byte BINARY = 10;
+    private static final byte OBJECT = 11;
+    private static final byte ARRAY = 12;
+
+    private final JsonNodeFactory jsonNodeFactory;
+    private final ByteBuffer buffer;
+    private volatile JsonNode root;
+
+    private BinaryDocument(JsonNodeFactory jsonNodeFactory, ByteBuffer buffer) {
+        this.jsonNodeFactory = jsonNodeFactory;
+        this.buffer = buffer;
+    }
+
+    /**
+     * encode a json node into a new direct byte buffer of the size of the document
+     *
+     * @param jsonNode the json node
+     * @return the binary document
+     */
+    public static BinaryDocument encode(JsonNode jsonNode) {
+        return encode(jsonNode, null);
+    }
+
+    /**
+     * encode a json node at the position of a byte buffer, the position is moved past the document
+     *
+     * @param jsonNode the json node
+     * @param target   the byte buffer, for example a memory mapped file, or null for a new direct byte buffer
+     * @return the binary document, a view of the encoded part of the buffer
+     * @throws BufferOverflowException when the remaining part of the buffer is too small, the position of the buffer
+     *                                  is not changed
+     */
+    public static BinaryDocument encode(JsonNode jsonNode, ByteBuffer target) {
+        if (jsonNode == null) {
+            throw new IllegalArgumentException("The json node of a binary document can not be null");
+        }
+        return encode(JsonNodeFactoryScope.current(), jsonNode, target);
+    }
+
+    /**
+     * encode the fields of a json document, the root object node is not created
+     *
+     * @param jsonNodeFactory the json node factory of the views
+     * @param tuples          the child tuples
+     * @param target          the byte buffer or null for a new direct byte buffer
+     * @return the binary document
+     */
+    static BinaryDocument encode(JsonNodeFactory jsonNodeFactory, TupleDsl.Tuple<?>[] tuples, ByteBuffer target) {
+        Map<String, JsonNode> fields = new LinkedHashMap<String, JsonNode>(tuples.length * 2);
+        for (TupleDsl.Tuple<?> tuple : tuples) {
+            JsonNode value = tuple.getValue();
+            fields.put(tuple.getName(), value != null ? value : jsonNodeFactory.nullNode());
+        }
+        int size = HEADER;
+        if (target == null) {
+            size += objectSize(fields.size());
+            for (Map.Entry<String, JsonNode> field : fields.entrySet()) {
+                size += fieldSize(field.getKey(), field.getValue());
+            }
+        }
+        Encoder encoder = new Encoder(target != null ? target.slice() : ByteBuffer.allocateDirect(size));
+        encoder.header();
+        encoder.object(fields);
+        return new BinaryDocument(jsonNodeFactory, encoder.finish(target));
+    }
+
+    private static BinaryDocument encode(JsonNodeFactory jsonNodeFactory, JsonNode jsonNode, ByteBuffer target) {
+        Encoder encoder = new Encoder(target != null ? target.slice()
+                : ByteBuffer.allocateDirect(HEADER + size(jsonNode)));
+        encoder.header();
+        encoder.value(jsonNode);
+        return new BinaryDocument(jsonNodeFactory, encoder.finish(target));
+    }
+
+    /**
+     * wrap the binary document at the position of a byte buffer, the position is moved past the document <br/>
+     * only the header is checked, a damaged document fails when the damaged part is read
+     *
+     * @param buffer the byte buffer
+     * @return the binary document
+     */
+    public static BinaryDocument wrap(ByteBuffer buffer) {
+        int position = buffer.position();
+        if (buffer.remaining() < HEADER || buffer.getInt(position) != MAGIC) {
+            throw new IllegalArgumentException("No binary document at position " + position);
+        }
+        int size = buffer.getInt(position + 4);
+        if (size < HEADER + 1 || size > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid binary document length " + size + " at position " + position);
+        }
+        ByteBuffer slice = buffer.slice();
+        ((Buffer) slice).limit(size);
+        ((Buffer) buffer).position(position + size);
+        return new BinaryDocument(JsonNodeFactoryScope.current(), slice);
+    }
+
+    /**
+     * @return true when the json node is a view of a binary document
+     */
+    static boolean isView(JsonNode jsonNode) {
+        return jsonNode instanceof BinaryObjectNode || jsonNode instanceof BinaryArrayNode;
+    }
+
+    /**
+     * @return the read-only view of the root value, fields and elements are decoded when they are first read
+     */
+    public JsonNode root() {
+        JsonNode root = this.root;
+        if (root == null) {
+            root = decode(HEADER);
+            this.root = root;
+        }
+        return root;
+    }
+
+    /**
+     * @return a read-only view of the encoded bytes
+     */
+    public ByteBuffer getBuffer() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the number of bytes of the document
+     */
+    public int size() {
+        return buffer.limit();
+    }
+
+    /**
+     * write the json text of the document, the buffer is scanned once from start to end and copied through a small
+     * byte array without decoding nodes or strings
+     *
+     * @param outputStream the output stream, it is not flushed or closed
+     * @throws IOException when the output stream fails
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        JsonWriter writer = new JsonWriter(buffer, outputStream);
+        writer.value(HEADER);
+        writer.flush();
+    }
+
+    @Override
+    public String toString() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(size());
+        try {
+            writeTo(outputStream);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return new String(outputStream.toByteArray(), UTF_8);
+    }
+
+    private static int size(JsonNode jsonNode) {
+        switch (jsonNode.getNodeType()) {
+            case NULL:
+            case BOOLEAN:
+                return 1;
+            case NUMBER:
+                switch (jsonNode.numberType()) {
+                    case INT:
+                        return 1 + 4;
+                    case LONG:
+                        return 1 + 8;
+                    default:
+                        return 1 + 4 + utf8Length(jsonNode.asText());
+                }
+            case STRING:
+                return 1 + 4 + utf8Length(jsonNode.textValue());
+            case BINARY:
+                return 1 + 4 + ((BinaryNode) jsonNode).binaryValue().length;
+            case OBJECT:
+                int size = objectSize(jsonNode.size());
+                for (Iterator<String> names = jsonNode.fieldNames(); names.hasNext(); ) {
+                    String name = names.next();
+                    size += fieldSize(name, jsonNode.get(name));
+                }
+                return size;
+            case ARRAY:
+                size = 1 + 4 + 4 * jsonNode.size();
+                for (JsonNode element : jsonNode) {
+                    size += size(element);
+                }
+                return size;
+            default:
+                throw new IllegalArgumentException("A " + jsonNode.getNodeType() + " node can not be encoded");
+        }
+    }
+
+    /**
+     * @return the size of the tag, the number of fields and the offset tables of an object
+     */
+    private static int objectSize(int count) {
+        return 1 + 4 + 4 * count + (count > CompactObjectMap.THRESHOLD ? 4 * count : 0);
+    }
+
+    private static int fieldSize(String name, JsonNode value) {
+        return 4 + utf8Length(name) + size(value);
+    }
+
+
+    private static int utf8Length(String string) {
+        int length = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < string.length()
+                    && Character.isLowSurrogate(string.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (c >= '\uD800' && c <= '\uDFFF') {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private JsonNode decode(int offset) {
+        switch (buffer.get(offset)) {
+            case NULL:
+                return jsonNodeFactory.nullNode();
+            case FALSE:
+                return jsonNodeFactory.booleanNode(false);
+            case TRUE:
+                return jsonNodeFactory.booleanNode(true);
+            case INT:
+                return jsonNodeFactory.numberNode(buffer.getInt(offset + 1));
+            case LONG:
+                return jsonNodeFactory.numberNode(buffer.getLong(offset + 1));
+            case FLOAT:
+                return jsonNodeFactory.numberNode(Float.parseFloat(string(offset + 1)));
+            case DOUBLE:
+                return jsonNodeFactory.numberNode(Double.parseDouble(string(offset + 1)));
+            case BIG_INTEGER:
+                return jsonNodeFactory.numberNode(new BigInteger(string(offset + 1)));
+            case DECIMAL:
+                return jsonNodeFactory.numberNode(new BigDecimal(string(offset + 1)));
+            case STRING:
+                return jsonNodeFactory.textNode(string(offset + 1));
+            case BINARY:
+                return jsonNodeFactory.binaryNode(bytes(offset + 1));
+            case OBJECT:
+                return new BinaryObjectNode(jsonNodeFactory, new BinaryFields(offset));
+            case ARRAY:
+                return new BinaryArrayNode(jsonNodeFactory, new BinaryElements(offset));
+            default:
+                throw new IllegalStateException("Invalid tag " + buffer.get(offset) + " at offset " + offset);
+        }
+    }
+
+    /**
+     * @return the bytes of the length prefixed byte sequence at an offset
+     */
+    private byte[] bytes(int offset) {
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        ByteBuffer duplicate = buffer.duplicate();
+        ((Buffer) duplicate).position(offset + 4);
+        duplicate.get(bytes);
+        return bytes;
+    }
+
+    private String string(int offset) {
+        return new String(bytes(offset), UTF_8);
+    }
+
+    /**
+     * @return the UTF-8 bytes of the key at an offset compared with the given bytes, as unsigned bytes
+     */
+    private int compareKey(int offset, byte[] name) {
+        int length = buffer.getInt(offset);
+        for (int i = 0; i < length && i < name.length; i++) {
+            int difference = (buffer.get(offset + 4 + i) & 0xff) - (name[i] & 0xff);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - name.length;
+    }
+
+    /**
+     * writes the values of a json tree in the binary layout, the buffer is positioned at the start of the document <br/>
+     * the values are written in one pass, a buffer which is not allocated with the size of the document fails with a
+     * {@link BufferOverflowException} when it is too small
+     */
+    private static final class Encoder {
+
+        private final ByteBuffer buffer;
+        private byte[] scratch = new byte[64];
+
+        Encoder(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void header() {
+            buffer.putInt(MAGIC);
+            buffer.putInt(0);
+        }
+
+        ByteBuffer finish(ByteBuffer target) {
+            int size = buffer.position();
+            buffer.putInt(4, size);
+            ((Buffer) buffer).flip();
+            if (target != null) {
+                ((Buffer) target).position(target.position() + size);
+            }
+            return buffer;
+        }
+
+        /**
+         * reserve the bytes of an offset table
+         */
+        private void skip(int count) {
+            if (buffer.remaining() < count) {
+                throw new BufferOverflowException();
+            }
+            ((Buffer) buffer).position(buffer.position() + count);
+        }
+
+        void value(JsonNode jsonNode) {
+            switch (jsonNode.getNodeType()) {
+                case NULL:
+                    buffer.put(NULL);
+                    break;
+                case BOOLEAN:
+                    buffer.put(jsonNode.booleanValue() ? TRUE : FALSE);
+                    break;
+                case NUMBER:
+                    number(jsonNode);
+                    break;
+                case STRING:
+                    buffer.put(STRING);
+                    string(jsonNode.textValue());
+                    break;
+                case BINARY:
+                    byte[] bytes = ((BinaryNode) jsonNode).binaryValue();
+                    buffer.put(BINARY);
+                    buffer.putInt(bytes.length);
+                    buffer.put(bytes);
+                    break;
+                case OBJECT:
+                    int keys = beginObject(jsonNode.size());
+                    int slot = 0;
+                    for (Iterator<String> names = jsonNode.fieldNames(); names.hasNext(); ) {
+                        String name = names.next();
+                        field(keys, slot++, name, jsonNode.get(name));
+                    }
+                    endObject(keys, slot);
+                    break;
+                case ARRAY:
+                    array(jsonNode);
+                    break;
+                default:
+                    throw new IllegalArgumentException("A " + jsonNode.getNodeType() + " node can not be encoded");
+            }
+        }
+
+        private void number(JsonNode jsonNode) {
+            switch (jsonNode.numberType()) {
+                case INT:
+                    buffer.put(INT);
+                    buffer.putInt(jsonNode.intValue());
+                    return;
+                case LONG:
+                    buffer.put(LONG);
+                    buffer.putLong(jsonNode.longValue());
+                    return;
+                case FLOAT:
+                    buffer.put(FLOAT);
+                    break;
+                case DOUBLE:
+                    buffer.put(DOUBLE);
+                    break;
+                case BIG_INTEGER:
+                    buffer.put(BIG_INTEGER);
+                    break;
+                default:
+                    buffer.put(DECIMAL);
+                    break;
+            }
+            string(jsonNode.asText());
+        }
+
+        void object(Map<String, JsonNode> fields) {
+            int keys = beginObject(fields.size());
+            int slot = 0;
+            for (Map.Entry<String, JsonNode> field : fields.entrySet()) {
+                field(keys, slot++, field.getKey(), field.getValue());
+            }
+            endObject(keys, slot);
+        }
+
+        /**
+         * write the tag and the number of fields of an object and reserve its offset tables
+         *
+         * @return the offset of the key table
+         */
+        private int beginObject(int count) {
+            buffer.put(OBJECT);
+            buffer.putInt(count);
+            int keys = buffer.position();
+            skip(count > CompactObjectMap.THRESHOLD ? 8 * count : 4 * count);
+            return keys;
+        }
+
+        private void field(int keys, int slot, String name, JsonNode value) {
+            buffer.putInt(keys + 4 * slot, buffer.position());
+            string(name);
+            value(value);
+        }
+
+        /**
+         * write the table of the slots sorted by key of a large object
+         */
+        private void endObject(int keys, int count) {
+            int sorted = keys + 4 * count;
+            if (count > CompactObjectMap.THRESHOLD) {
+                int[] slots = new int[count];
+                for (int slot = 0; slot < count; slot++) {
+                    slots[slot] = slot;
+                }
+                sort(slots, new int[count], 0, count, keys);
+                for (int i = 0; i < count; i++) {
+                    buffer.putInt(sorted + 4 * i, slots[i]);
+                }
+            }
+        }
+
+        private void array(JsonNode arrayNode) {
+            buffer.put(ARRAY);
+            buffer.putInt(arrayNode.size());
+            int elements = buffer.position();
+            skip(4 * arrayNode.size());
+            int index = 0;
+            for (JsonNode element : arrayNode) {
+                buffer.putInt(elements + 4 * index++, buffer.position());
+                value(element);
+            }
+        }
+
+        /**
+         * write the length and the UTF-8 bytes of a string, encoded in the scratch array and copied at once
+         */
+        private void string(String string) {
+            if (scratch.length < string.length() * 4) {
+                scratch = new byte[string.length() * 4];
+            }
+            int length = 0;
+            for (int i = 0; i < string.length(); i++) {
+                char c = string.charAt(i);
+                if (c < 0x80) {
+                    scratch[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    scratch[length++] = (byte) (0xc0 | c >> 6);
+                    scratch[length++] = (byte) (0x80 | c & 0x3f);
+                } else if (Character.isHighSurrogate(c) && i + 1 < string.length()
+                        && Character.isLowSurrogate(string.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                    scratch[length++] = (byte) (0xf0 | codePoint >> 18);
+                    scratch[length++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                    scratch[length++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                    scratch[length++] = (byte) (0x80 | codePoint & 0x3f);
+                } else if (c >= '\uD800' && c <= '\uDFFF') {
+                    scratch[length++] = '?';
+                } else {
+                    scratch[length++] = (byte) (0xe0 | c >> 12);
+                    scratch[length++] = (byte) (0x80 | c >> 6 & 0x3f);
+                    scratch[length++] = (byte) (0x80 | c & 0x3f);
+                }
+            }
+            buffer.putInt(length);
+            buffer.put(scratch, 0, length);
+        }
+
+        /**
+         * merge sort of the slots of an object by the bytes of their keys
+         */
+        private void sort(int[] slots, int[] work, int from, int to, int keys) {
+            if (to - from < 2) {
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            sort(slots, work, from, middle, keys);
+            sort(slots, work, middle, to, keys);
+            System.arraycopy(slots, from, work, from, to - from);
+            for (int i = from, left = from, right = middle; i < to; i++) {
+                if (right >= to || left < middle && compare(work[left], work[right], keys) <= 0) {
+                    slots[i] = work[left++];
+                } else {
+                    slots[i] = work[right++];
+                }
+            }
+        }
+
+        private int compare(int leftSlot, int rightSlot, int keys) {
+            int left = buffer.getInt(keys + 4 * leftSlot);
+            int right = buffer.getInt(keys + 4 * rightSlot);
+            int leftLength = buffer.getInt(left);
+            int rightLength = buffer.getInt(right);
+            for (int i = 0; i < leftLength && i < rightLength; i++) {
+                int difference = (buffer.get(left + 4 + i) & 0xff) - (buffer.get(right + 4 + i) & 0xff);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return leftLength - rightLength;
+        }
+    }
+
+    /**
+     * writes the json text of the binary layout through a byte array
+     */
+    private static final class JsonWriter {
+
+        private static final byte[] HEX = "0123456789abcdef".getBytes(UTF_8);
+        private static final byte[] BASE64 =
+                "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(UTF_8);
+        private static final byte[] NULL_TEXT = "null".getBytes(UTF_8);
+        private static final byte[] TRUE_TEXT = "true".getBytes(UTF_8);
+        private static final byte[] FALSE_TEXT = "false".getBytes(UTF_8);
+
+        private final ByteBuffer buffer;
+        private final ByteBuffer source;
+        private final OutputStream outputStream;
+        private final byte[] bytes = new byte[8192];
+        private final byte[] chunk = new byte[1024];
+        private int length;
+
+        JsonWriter(ByteBuffer buffer, OutputStream outputStream) {
+            this.buffer = buffer;
+            this.source = buffer.duplicate();
+            this.outputStream = outputStream;
+        }
+
+        /**
+         * @return the offset after the value
+         */
+        int value(int offset) throws IOException {
+            switch (buffer.get(offset)) {
+                case NULL:
+                    write(NULL_TEXT);
+                    return offset + 1;
+                case FALSE:
+                    write(FALSE_TEXT);
+                    return offset + 1;
+                case TRUE:
+                    write(TRUE_TEXT);
+                    return offset + 1;
+                case INT:
+                    integer(buffer.getInt(offset + 1));
+                    return offset + 1 + 4;
+                case LONG:
+                    integer(buffer.getLong(offset + 1));
+                    return offset + 1 + 8;
+                case FLOAT:
+                case DOUBLE:
+                case BIG_INTEGER:
+                case DECIMAL:
+                    return numberText(offset + 1);
+                case STRING:
+                    return string(offset + 1);
+                case BINARY:
+                    return binary(offset + 1);
+                case OBJECT:
+                    return object(offset + 1);
+                case ARRAY:
+                    return array(offset + 1);
+                default:
+                    throw new IllegalStateException("Invalid tag " + buffer.get(offset) + " at offset " + offset);
+            }
+        }
+
+        private int object(int offset) throws IOException {
+            int count = buffer.getInt(offset);
+            int position = offset + 4 + 4 * count + (count > CompactObjectMap.THRESHOLD ? 4 * count : 0);
+            write('{');
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    write(',');
+                }
+                position = string(position);
+                write(':');
+                position = value(position);
+            }
+            write('}');
+            return position;
+        }
+
+        private int array(int offset) throws IOException {
+            int count = buffer.getInt(offset);
+            int position = offset + 4 + 4 * count;
+            write('[');
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    write(',');
+                }
+                position = value(position);
+            }
+            write(']');
+            return position;
+        }
+
+        /**
+         * write a quoted string, the bytes are copied in chunks and the runs without escaped characters are copied at
+         * once
+         */
+        private int string(int offset) throws IOException {
+            int end = offset + 4 + buffer.getInt(offset);
+            write('"');
+            for (int position = offset + 4; position < end; position += chunk.length) {
+                int count = Math.min(chunk.length, end - position);
+                ((Buffer) source).position(position);
+                source.get(chunk, 0, count);
+                int run = 0;
+                for (int i = 0; i < count; i++) {
+                    byte b = chunk[i];
+                    if (b == '"' || b == '\\' || b >= 0 && b < 0x20) {
+                        write(chunk, run, i - run);
+                        run = i + 1;
+                        if (b < 0x20) {
+                            escape(b);
+                        } else {
+                            write('\\');
+                            write(b);
+                        }
+                    }
+                }
+                write(chunk, run, count - run);
+            }
+            write('"');
+            return end;
+        }
+
+        private void escape(byte b) throws IOException {
+            write('\\');
+            switch (b) {
+                case '\n':
+                    write('n');
+                    break;
+                case '\r':
+                    write('r');
+                    break;
+                case '\t':
+                    write('t');
+                    break;
+                case '\b':
+                    write('b');
+                    break;
+                case '\f':
+                    write('f');
+                    break;
+                default:
+                    write('u');
+                    write('0');
+                    write('0');
+                    write(HEX[b >> 4]);
+                    write(HEX[b & 0xf]);
+            }
+        }
+
+        /**
+         * write the text of a number, not a number and the infinities are quoted as by jackson
+         */
+        private int numberText(int offset) throws IOException {
+            int end = offset + 4 + buffer.getInt(offset);
+            byte first = buffer.get(offset + 4) == '-' ? buffer.get(offset + 5) : buffer.get(offset + 4);
+            boolean quoted = first == 'N' || first == 'I';
+            if (quoted) {
+                write('"');
+            }
+            for (int i = offset + 4; i < end; i++) {
+                write(buffer.get(i));
+            }
+            if (quoted) {
+                write('"');
+            }
+            return end;
+        }
+
+        private void integer(long value) throws IOException {
+            if (length + 20 > bytes.length) {
+                flush();
+            }
+            if (value < 0) {
+                bytes[length++] = '-';
+            } else {
+                value = -value;
+            }
+            int digits = 1;
+            for (long rest = value / 10; rest != 0; rest /= 10) {
+                digits++;
+            }
+            for (int i = length + digits - 1; i >= length; i--) {
+                bytes[i] = (byte) ('0' - value % 10);
+                value /= 10;
+            }
+            length += digits;
+        }
+
+        private int binary(int offset) throws IOException {
+            int end = offset + 4 + buffer.getInt(offset);
+            write('"');
+            for (int i = offset + 4; i < end; i += 3) {
+                int remaining = end - i;
+                int bits = (buffer.get(i) & 0xff) << 16
+                        | (remaining > 1 ? (buffer.get(i + 1) & 0xff) << 8 : 0)
+                        | (remaining > 2 ? buffer.get(i + 2) & 0xff : 0);
+                write(BASE64[bits >> 18 & 0x3f]);
+                write(BASE64[bits >> 12 & 0x3f]);
+                write(remaining > 1 ? BASE64[bits >> 6 & 0x3f] : '=');
+                write(remaining > 2 ? BASE64[bits & 0x3f] : '=');
+            }
+            write('"');
+            return end;
+        }
+
+        private void write(byte[] text) throws IOException {
+            write(text, 0, text.length);
+        }
+
+        private void write(byte[] text, int offset, int count) throws IOException {
+            if (length + count > bytes.length) {
+                flush();
+                if (count > bytes.length) {
+                    outputStream.write(text, offset, count);
+                    return;
+                }
+            }
+            System.arraycopy(text, offset, bytes, length, count);
+            length += count;
+        }
+
+        private void write(int b) throws IOException {
+            if (length == bytes.length) {
+                flush();
+            }
+            bytes[length++] = (byte) b;
+        }
+
+        void flush() throws IOException {
+            outputStream.write(bytes, 0, length);
+            length = 0;
+        }
+    }
+
+    private static final class BinaryObjectNode extends ObjectNode {
+
+        BinaryObjectNode(JsonNodeFactory jsonNodeFactory, BinaryFields fields) {
+            super(jsonNodeFactory, fields);
+        }
+    }
+
+    private static final class BinaryArrayNode extends ArrayNode {
+
+        BinaryArrayNode(JsonNodeFactory jsonNodeFactory, BinaryElements elements) {
+            super(jsonNodeFactory, elements);
+        }
+    }
+
+    /**
+     * read-only fields of an encoded object, a value is decoded when it is first read and kept afterwards
+     */
+    private final class BinaryFields extends AbstractMap<String, JsonNode> {
+
+        private final int offset;
+        private final int count;
+        private JsonNode[] values;
+        private Set<Map.Entry<String, JsonNode>> entrySet;
+
+        BinaryFields(int offset) {
+            this.offset = offset;
+            this.count = buffer.getInt(offset + 1);
+        }
+
+        private int key(int slot) {
+            return buffer.getInt(offset + 5 + 4 * slot);
+        }
+
+        private String name(int slot) {
+            return string(key(slot));
+        }
+
+        private JsonNode value(int slot) {
+            if (values == null) {
+                values = new JsonNode[count];
+            }
+            JsonNode value = values[slot];
+            if (value == null) {
+                int key = key(slot);
+                value = decode(key + 4 + buffer.getInt(key));
+                values[slot] = value;
+            }
+            return value;
+        }
+
+        private int slotOf(Object name) {
+            if (!(name instanceof String)) {
+                return -1;
+            }
+            byte[] bytes = ((String) name).getBytes(UTF_8);
+            if (count <= CompactObjectMap.THRESHOLD) {
+                for (int slot = 0; slot < count; slot++) {
+                    if (compareKey(key(slot), bytes) == 0) {
+                        return slot;
+                    }
+                }
+                return -1;
+            }
+            int sorted = offset + 5 + 4 * count;
+            for (int low = 0, high = count - 1; low <= high; ) {
+                int middle = (low + high) >>> 1;
+                int slot = buffer.getInt(sorted + 4 * middle);
+                int comparison = compareKey(key(slot), bytes);
+                if (comparison == 0) {
+                    return slot;
+                }
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public boolean containsKey(Object name) {
+            return slotOf(name) >= 0;
+        }
+
+        @Override
+        public JsonNode get(Object name) {
+            int slot = slotOf(name);
+            return slot >= 0 ? value(slot) : null;
+        }
+
+        @Override
+        public Set<Map.Entry<String, JsonNode>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new AbstractSet<Map.Entry<String, JsonNode>>() {
+
+                    @Override
+                    public Iterator<Map.Entry<String, JsonNode>> iterator() {
+                        return new Iterator<Map.Entry<String, JsonNode>>() {
+
+                            private int next;
+
+                            public boolean hasNext() {
+                                return next < count;
+                            }
+
+                            public Map.Entry<String, JsonNode> next() {
+                                if (next >= count) {
+                                    throw new NoSuchElementException();
+                                }
+                                int slot = next++;
+                                return new SimpleImmutableEntry<String, JsonNode>(name(slot), value(slot));
+                            }
+
+                            public void remove() {
+                                throw new UnsupportedOperationException("A binary document is read-only");
+                            }
+
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return count;
+                    }
+
+                };
+            }
+            return entrySet;
+        }
+    }
+
+    /**
+     * read-only elements of an encoded array, an element is decoded when it is first read and kept afterwards
+     */
+    private final class BinaryElements extends AbstractList<JsonNode> implements RandomAccess {
+
+        private final int offset;
+        private final int count;
+        private JsonNode[] elements;
+
+        BinaryElements(int offset) {
+            this.offset = offset;
+            this.count = buffer.getInt(offset + 1);
+        }
+
+        @Override
+        public JsonNode get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+            }
+            if (elements == null) {
+                elements = new JsonNode[count];
+            }
+            JsonNode element = elements[index];
+            if (element == null) {
+                element = decode(buffer.getInt(offset + 5 + 4 * index));
+                elements[index] = element;
+            }
+            return element;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+}
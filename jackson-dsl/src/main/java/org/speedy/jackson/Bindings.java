@@ -0,0 +1,34 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.io.IOException;
+
+/**
+ * Supplies the values of the placeholders of a {@link JsonStream} while it is written or converted
+ */
+abstract class Bindings {
+
+    /**
+     * bindings of a description without placeholders
+     */
+    static final Bindings NONE = new Bindings() {
+
+        @Override
+        void write(JsonGenerator generator, JsonTemplate.Placeholder placeholder) {
+            throw new IllegalStateException("Placeholder " + placeholder + " is not bound, compile the document with JsonTemplate");
+        }
+
+        @Override
+        JsonNode node(JsonNodeFactory jsonNodeFactory, JsonTemplate.Placeholder placeholder) {
+            throw new IllegalStateException("Placeholder " + placeholder + " is not bound, compile the document with JsonTemplate");
+        }
+
+    };
+
+    abstract void write(JsonGenerator generator, JsonTemplate.Placeholder placeholder) throws IOException;
+
+    abstract JsonNode node(JsonNodeFactory jsonNodeFactory, JsonTemplate.Placeholder placeholder);
+}
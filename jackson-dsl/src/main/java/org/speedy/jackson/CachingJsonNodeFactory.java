@@ -0,0 +1,262 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.NumericNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.fasterxml.jackson.databind.node.ValueNode;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Json node factory which returns shared instances for immutable value nodes <br/>
+ * Int and long nodes in a configurable range are created once, text nodes are kept in a bounded cache from which a
+ * text that was not used since the previous sweep is evicted (the clock approximation of least recently used). A
+ * cached text is read without a lock and the counters are striped, so threads which share the factory only contend
+ * when they add a text. The factory counts the hits, misses and evictions of both caches
+ */
+public class CachingJsonNodeFactory extends JsonNodeFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int smallIntMin;
+    private final IntNode[] intNodes;
+    private final LongNode[] longNodes;
+    private final int textCacheSize;
+    private final ConcurrentHashMap<String, CachedText> textNodes;
+
+    /**
+     * the cached texts in insertion order, the clock hand sweeps them to find the text to evict, guarded by itself
+     */
+    private final CachedText[] textClock;
+    private int textClockHand;
+    private long textMisses;
+    private long textEvictions;
+
+    private final StripedCounter numberHits = new StripedCounter();
+    private final StripedCounter numberMisses = new StripedCounter();
+    private final StripedCounter textHits = new StripedCounter();
+
+    /**
+     * create a caching json node factory for the numbers -128 to 1023 and 1024 texts
+     */
+    public CachingJsonNodeFactory() {
+        this(-128, 1023, 1024);
+    }
+
+    /**
+     * create a caching json node factory
+     *
+     * @param smallIntMin   the smallest cached int and long value
+     * @param smallIntMax   the largest cached int and long value
+     * @param textCacheSize the maximum number of cached text nodes
+     */
+    public CachingJsonNodeFactory(int smallIntMin, int smallIntMax, int textCacheSize) {
+        if (smallIntMax < smallIntMin - 1) {
+            throw new IllegalArgumentException("Invalid small int range " + smallIntMin + ".." + smallIntMax);
+        }
+        if (textCacheSize < 0) {
+            throw new IllegalArgumentException("Text cache size can not be negative: " + textCacheSize);
+        }
+        this.smallIntMin = smallIntMin;
+        this.intNodes = new IntNode[smallIntMax - smallIntMin + 1];
+        this.longNodes = new LongNode[intNodes.length];
+        for (int i = 0; i < intNodes.length; i++) {
+            intNodes[i] = IntNode.valueOf(smallIntMin + i);
+            longNodes[i] = LongNode.valueOf(smallIntMin + i);
+        }
+        this.textCacheSize = textCacheSize;
+        this.textNodes = new ConcurrentHashMap<String, CachedText>(TupleDsl.capacity(textCacheSize));
+        this.textClock = new CachedText[textCacheSize];
+    }
+
+    @Override
+    public NumericNode numberNode(byte v) {
+        return numberNode((int) v);
+    }
+
+    @Override
+    public NumericNode numberNode(int v) {
+        int index = v - smallIntMin;
+        if (index >= 0 && index < intNodes.length) {
+            numberHits.increment();
+            return intNodes[index];
+        }
+        numberMisses.increment();
+        return IntNode.valueOf(v);
+    }
+
+    @Override
+    public ValueNode numberNode(Integer value) {
+        return value == null ? nullNode() : numberNode(value.intValue());
+    }
+
+    @Override
+    public NumericNode numberNode(long v) {
+        long index = v - smallIntMin;
+        if (index >= 0 && index < longNodes.length) {
+            numberHits.increment();
+            return longNodes[(int) index];
+        }
+        numberMisses.increment();
+        return LongNode.valueOf(v);
+    }
+
+    @Override
+    public ValueNode numberNode(Long value) {
+        return value == null ? nullNode() : numberNode(value.longValue());
+    }
+
+    @Override
+    public TextNode textNode(String text) {
+        if (text == null || textCacheSize == 0) {
+            return super.textNode(text);
+        }
+        CachedText cachedText = textNodes.get(text);
+        if (cachedText != null) {
+            cachedText.use();
+            textHits.increment();
+            return cachedText.textNode;
+        }
+        return addText(text);
+    }
+
+    private TextNode addText(String text) {
+        synchronized (textClock) {
+            CachedText cachedText = textNodes.get(text);
+            if (cachedText != null) {
+                cachedText.use();
+                textHits.increment();
+                return cachedText.textNode;
+            }
+            textMisses++;
+            cachedText = new CachedText(text, super.textNode(text));
+            if (textNodes.size() < textCacheSize) {
+                textClock[textNodes.size()] = cachedText;
+            } else {
+                // clear the used flags until a text which was not used since the last sweep is found
+                CachedText evicted = textClock[textClockHand];
+                while (evicted.used) {
+                    evicted.used = false;
+                    textClockHand = (textClockHand + 1) % textCacheSize;
+                    evicted = textClock[textClockHand];
+                }
+                textNodes.remove(evicted.text);
+                textEvictions++;
+                textClock[textClockHand] = cachedText;
+                textClockHand = (textClockHand + 1) % textCacheSize;
+            }
+            textNodes.put(text, cachedText);
+            return cachedText.textNode;
+        }
+    }
+
+    /**
+     * @return the number of int and long nodes served from the small int range
+     */
+    public long getNumberHits() {
+        return numberHits.sum();
+    }
+
+    /**
+     * @return the number of int and long nodes created because they are outside the small int range
+     */
+    public long getNumberMisses() {
+        return numberMisses.sum();
+    }
+
+    /**
+     * @return the number of text nodes served from the cache
+     */
+    public long getTextHits() {
+        return textHits.sum();
+    }
+
+    /**
+     * @return the number of text nodes created because they were not cached
+     */
+    public long getTextMisses() {
+        synchronized (textClock) {
+            return textMisses;
+        }
+    }
+
+    /**
+     * @return the number of text nodes evicted from the cache
+     */
+    public long getTextEvictions() {
+        synchronized (textClock) {
+            return textEvictions;
+        }
+    }
+
+    /**
+     * @return the number of text nodes in the cache
+     */
+    public int getTextCacheSize() {
+        return textNodes.size();
+    }
+
+    @Override
+    public String toString() {
+        return "CachingJsonNodeFactory{numberHits=" + getNumberHits() + ", numberMisses=" + getNumberMisses()
+                + ", textHits=" + getTextHits() + ", textMisses=" + getTextMisses()
+                + ", textEvictions=" + getTextEvictions() + "}";
+    }
+
+    /**
+     * text node in the cache, with the flag the clock hand clears
+     */
+    private static final class CachedText implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String text;
+        private final TextNode textNode;
+        private volatile boolean used;
+
+        CachedText(String text, TextNode textNode) {
+            this.text = text;
+            this.textNode = textNode;
+        }
+
+        /**
+         * mark the text as used, without writing the flag when it is set already
+         */
+        void use() {
+            if (!used) {
+                used = true;
+            }
+        }
+    }
+
+    /**
+     * counter of which the threads increment different cells, the cells are a cache line apart
+     */
+    private static final class StripedCounter implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int PADDING = 8;
+        private static final int STRIPES = Math.min(64,
+                Integer.highestOneBit(Runtime.getRuntime().availableProcessors()) << 1);
+
+        private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+        void increment() {
+            int hash = System.identityHashCode(Thread.currentThread());
+            cells.getAndIncrement(((hash ^ (hash >>> 16)) & (STRIPES - 1)) * PADDING);
+        }
+
+        long sum() {
+            long sum = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                sum += cells.get(i * PADDING);
+            }
+            return sum;
+        }
+    }
+}
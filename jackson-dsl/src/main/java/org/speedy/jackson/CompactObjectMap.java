@@ -0,0 +1,280 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map of the fields of a small object node <br/>
+ * The names and values are kept in insertion order in two arrays and are found with a linear scan. The map moves its
+ * fields to a {@link LinkedHashMap} when it grows beyond {@link #THRESHOLD} fields
+ */
+final class CompactObjectMap extends AbstractMap<String, JsonNode> {
+
+    /**
+     * the maximum number of fields kept in the arrays
+     */
+    static final int THRESHOLD = 8;
+
+    private String[] names;
+    private JsonNode[] values;
+    private int size;
+    private int modCount;
+    private Map<String, JsonNode> upgraded;
+    private Set<Map.Entry<String, JsonNode>> entrySet;
+
+    /**
+     * create a compact object map
+     *
+     * @param capacity the expected number of fields
+     */
+    CompactObjectMap(int capacity) {
+        int length = Math.max(Math.min(capacity, THRESHOLD), 1);
+        names = new String[length];
+        values = new JsonNode[length];
+    }
+
+    /**
+     * the names are mostly string literals, the references are compared before the names are
+     */
+    private int indexOf(Object name) {
+        String[] names = this.names;
+        int size = this.size;
+        for (int i = 0; i < size; i++) {
+            String candidate = names[i];
+            if (candidate == name || name != null && name.equals(candidate)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return upgraded != null ? upgraded.size() : size;
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return upgraded != null ? upgraded.containsKey(name) : indexOf(name) >= 0;
+    }
+
+    @Override
+    public JsonNode get(Object name) {
+        if (upgraded != null) {
+            return upgraded.get(name);
+        }
+        int index = indexOf(name);
+        return index >= 0 ? values[index] : null;
+    }
+
+    @Override
+    public JsonNode put(String name, JsonNode value) {
+        if (upgraded != null) {
+            return upgraded.put(name, value);
+        }
+        int index = indexOf(name);
+        if (index >= 0) {
+            JsonNode previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+        modCount++;
+        if (size == names.length) {
+            if (size >= THRESHOLD) {
+                upgrade().put(name, value);
+                return null;
+            }
+            int length = Math.min(Math.max(size * 2, 4), THRESHOLD);
+            String[] newNames = new String[length];
+            JsonNode[] newValues = new JsonNode[length];
+            System.arraycopy(names, 0, newNames, 0, size);
+            System.arraycopy(values, 0, newValues, 0, size);
+            names = newNames;
+            values = newValues;
+        }
+        names[size] = name;
+        values[size] = value;
+        size++;
+        return null;
+    }
+
+    @Override
+    public JsonNode remove(Object name) {
+        if (upgraded != null) {
+            return upgraded.remove(name);
+        }
+        int index = indexOf(name);
+        if (index < 0) {
+            return null;
+        }
+        JsonNode previous = values[index];
+        removeAt(index);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        if (upgraded != null) {
+            upgraded.clear();
+        } else {
+            for (int i = 0; i < size; i++) {
+                names[i] = null;
+                values[i] = null;
+            }
+            size = 0;
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<String, JsonNode>> entrySet() {
+        if (upgraded != null) {
+            return upgraded.entrySet();
+        }
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private void removeAt(int index) {
+        modCount++;
+        int moved = size - index - 1;
+        if (moved > 0) {
+            System.arraycopy(names, index + 1, names, index, moved);
+            System.arraycopy(values, index + 1, values, index, moved);
+        }
+        size--;
+        names[size] = null;
+        values[size] = null;
+    }
+
+    private Map<String, JsonNode> upgrade() {
+        Map<String, JsonNode> map = new LinkedHashMap<String, JsonNode>(TupleDsl.capacity(size * 2));
+        for (int i = 0; i < size; i++) {
+            map.put(names[i], values[i]);
+        }
+        upgraded = map;
+        names = null;
+        values = null;
+        size = 0;
+        entrySet = null;
+        return map;
+    }
+
+    /**
+     * entries of the arrays, the entry set of the {@link LinkedHashMap} is used once the map is upgraded
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<String, JsonNode>> {
+
+        @Override
+        public Iterator<Map.Entry<String, JsonNode>> iterator() {
+            if (upgraded != null) {
+                return upgraded.entrySet().iterator();
+            }
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return CompactObjectMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            CompactObjectMap.this.clear();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<String, JsonNode>> {
+
+        private int next;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        public boolean hasNext() {
+            checkModCount();
+            return next < size;
+        }
+
+        public Map.Entry<String, JsonNode> next() {
+            checkModCount();
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return new Entry(last);
+        }
+
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            checkModCount();
+            removeAt(last);
+            next = last;
+            last = -1;
+            expectedModCount = modCount;
+        }
+
+        private void checkModCount() {
+            if (modCount != expectedModCount || upgraded != null) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    private final class Entry implements Map.Entry<String, JsonNode> {
+
+        private final String name;
+        private JsonNode value;
+
+        Entry(int index) {
+            this.name = names[index];
+            this.value = values[index];
+        }
+
+        public String getKey() {
+            return name;
+        }
+
+        public JsonNode getValue() {
+            return value;
+        }
+
+        public JsonNode setValue(JsonNode value) {
+            JsonNode previous = this.value;
+            this.value = value;
+            put(name, value);
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) object;
+            return (name == null ? entry.getKey() == null : name.equals(entry.getKey()))
+                    && (value == null ? entry.getValue() == null : value.equals(entry.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            return (name == null ? 0 : name.hashCode()) ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return name + "=" + value;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.io.IOException;
+
+/**
+ * Immutable array node of which the json is encoded on its first serialization, it is written as raw utf-8 bytes
+ * afterwards. The json is encoded again for another serialization config, and a generator with other features, a
+ * pretty printer or character escapes serializes the node as usual, see {@link RawJson}
+ */
+final class ConstantArrayNode extends ArrayNode implements RawJson.Contents {
+
+    private transient volatile RawJson rawJson;
+
+    ConstantArrayNode(JsonNodeFactory jsonNodeFactory, ArrayNode arrayNode) {
+        super(jsonNodeFactory, ImmutableNodes.frozenElements(jsonNodeFactory, arrayNode));
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+        RawJson written = RawJson.write(rawJson, this, generator, provider);
+        if (written == null) {
+            super.serialize(generator, provider);
+        } else {
+            rawJson = written;
+        }
+    }
+
+    public void serializeContents(JsonGenerator generator, SerializerProvider provider) throws IOException {
+        super.serialize(generator, provider);
+    }
+}
@@ -0,0 +1,120 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.math.BigDecimal;
+
+import static org.speedy.jackson.TupleDsl.newObjectNode;
+
+/**
+ * Json dsl context which replaces every object and array it creates by the canonical instance of a
+ * {@link JsonInterner}. A context is created with {@link JsonDsl#with(JsonNodeFactory, JsonInterner)}
+ */
+final class DeduplicatingJsonDslContext extends JsonDslContext {
+
+    private final JsonInterner interner;
+
+    DeduplicatingJsonDslContext(JsonNodeFactory jsonNodeFactory, JsonInterner interner) {
+        super(jsonNodeFactory);
+        if (interner == null) {
+            throw new IllegalArgumentException("The interner can not be null");
+        }
+        this.interner = interner;
+    }
+
+    @Override
+    public ObjectNode jsonDocument(JsonDsl.Tuple<?>... tuples) {
+        long start = JsonDslListeners.startBuild();
+        boolean built = false;
+        try {
+            ObjectNode objectNode = newObjectNode(getJsonNodeFactory(), tuples.length);
+            for (JsonDsl.Tuple<?> tuple : tuples) {
+                objectNode.set(tuple.getName(), interner.intern(tuple.getValue()));
+            }
+            built = true;
+            return JsonDslListeners.documentBuilt(objectNode, start);
+        } finally {
+            if (!built) {
+                JsonDslListeners.buildFailed(start);
+            }
+        }
+    }
+
+    @Override
+    public ObjectNode object(JsonDsl.Tuple<?>... tuples) {
+        return interner.intern(super.object(tuples));
+    }
+
+    @Override
+    public ObjectNode object(JsonDsl.Tuple<?> t1) {
+        return interner.intern(super.object(t1));
+    }
+
+    @Override
+    public ObjectNode object(JsonDsl.Tuple<?> t1, JsonDsl.Tuple<?> t2) {
+        return interner.intern(super.object(t1, t2));
+    }
+
+    @Override
+    public ObjectNode object(JsonDsl.Tuple<?> t1, JsonDsl.Tuple<?> t2, JsonDsl.Tuple<?> t3) {
+        return interner.intern(super.object(t1, t2, t3));
+    }
+
+    @Override
+    public ObjectNode object(JsonDsl.Tuple<?> t1, JsonDsl.Tuple<?> t2, JsonDsl.Tuple<?> t3, JsonDsl.Tuple<?> t4) {
+        return interner.intern(super.object(t1, t2, t3, t4));
+    }
+
+    @Override
+    public ObjectNode object(String name, String value) {
+        return interner.intern(super.object(name, value));
+    }
+
+    @Override
+    public ObjectNode object(String name, JsonNode value) {
+        return interner.intern(super.object(name, value));
+    }
+
+    @Override
+    public ArrayNode array(JsonNode... jsonNodes) {
+        return interner.intern(super.array(jsonNodes));
+    }
+
+    @Override
+    public ArrayNode array(String... stringObjects) {
+        return interner.intern(super.array(stringObjects));
+    }
+
+    @Override
+    public ArrayNode array(BigDecimal... bigDecimalObjects) {
+        return interner.intern(super.array(bigDecimalObjects));
+    }
+
+    @Override
+    public ArrayNode array(float... floatPrimitives) {
+        return interner.intern(super.array(floatPrimitives));
+    }
+
+    @Override
+    public ArrayNode array(double... doublePrimitives) {
+        return interner.intern(super.array(doublePrimitives));
+    }
+
+    @Override
+    public ArrayNode array(int... intPrimitives) {
+        return interner.intern(super.array(intPrimitives));
+    }
+
+    @Override
+    public ArrayNode array(long... longPrimitives) {
+        return interner.intern(super.array(longPrimitives));
+    }
+
+    @Override
+    public ArrayNode array(boolean... booleanPrimitives) {
+        return interner.intern(super.array(booleanPrimitives));
+    }
+}
@@ -0,0 +1,158 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeType;
+
+import java.util.Iterator;
+
+/**
+ * Shape of a json document: the number of nodes per type, the maximum depth and the wide objects and long arrays <br/>
+ * The statistics are computed by walking the document, a node which occurs several times is counted every time. A
+ * lazy container which is not computed yet is counted without its content, so the walk does not compute it
+ */
+public final class DocumentStatistics {
+
+    /**
+     * the default number of fields from which an object is wide
+     */
+    public static final int WIDE_OBJECT_SIZE = 100;
+
+    /**
+     * the default number of elements from which an array is long
+     */
+    public static final int LONG_ARRAY_SIZE = 1000;
+
+    private final int wideObjectSize;
+    private final int longArraySize;
+    private final long[] nodes = new long[JsonNodeType.values().length];
+    private int maxDepth;
+    private long wideObjects;
+    private long longArrays;
+    private int largestObject;
+    private int longestArray;
+
+    private DocumentStatistics(int wideObjectSize, int longArraySize) {
+        this.wideObjectSize = wideObjectSize;
+        this.longArraySize = longArraySize;
+    }
+
+    /**
+     * compute the statistics of a document with the default sizes of wide objects and long arrays
+     *
+     * @param document the document
+     * @return the statistics
+     */
+    public static DocumentStatistics of(JsonNode document) {
+        return of(document, WIDE_OBJECT_SIZE, LONG_ARRAY_SIZE);
+    }
+
+    /**
+     * compute the statistics of a document
+     *
+     * @param document       the document
+     * @param wideObjectSize the number of fields from which an object is wide
+     * @param longArraySize  the number of elements from which an array is long
+     * @return the statistics
+     */
+    public static DocumentStatistics of(JsonNode document, int wideObjectSize, int longArraySize) {
+        DocumentStatistics statistics = new DocumentStatistics(wideObjectSize, longArraySize);
+        statistics.visit(document, 1);
+        return statistics;
+    }
+
+    private void visit(JsonNode node, int depth) {
+        nodes[node.getNodeType().ordinal()]++;
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+        if (node.isContainerNode() && !LazyNodes.isPending(node)) {
+            int size = node.size();
+            if (node.isObject()) {
+                largestObject = Math.max(largestObject, size);
+                if (size >= wideObjectSize) {
+                    wideObjects++;
+                }
+            } else {
+                longestArray = Math.max(longestArray, size);
+                if (size >= longArraySize) {
+                    longArrays++;
+                }
+            }
+            for (Iterator<JsonNode> elements = node.elements(); elements.hasNext(); ) {
+                visit(elements.next(), depth + 1);
+            }
+        }
+    }
+
+    /**
+     * @param type the node type
+     * @return the number of nodes of this type
+     */
+    public long getNodes(JsonNodeType type) {
+        return nodes[type.ordinal()];
+    }
+
+    /**
+     * @return the number of nodes of all types
+     */
+    public long getNodes() {
+        long total = 0;
+        for (long count : nodes) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return the depth of the deepest node, the root has depth 1
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return the number of objects with at least the wide object size fields
+     */
+    public long getWideObjects() {
+        return wideObjects;
+    }
+
+    /**
+     * @return the number of arrays with at least the long array size elements
+     */
+    public long getLongArrays() {
+        return longArrays;
+    }
+
+    /**
+     * @return the number of fields of the largest object
+     */
+    public int getLargestObject() {
+        return largestObject;
+    }
+
+    /**
+     * @return the number of elements of the longest array
+     */
+    public int getLongestArray() {
+        return longestArray;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("DocumentStatistics{nodes={");
+        String separator = "";
+        for (JsonNodeType type : JsonNodeType.values()) {
+            if (nodes[type.ordinal()] > 0) {
+                builder.append(separator).append(type).append('=').append(nodes[type.ordinal()]);
+                separator = ", ";
+            }
+        }
+        return builder.append("}, maxDepth=").append(maxDepth)
+                .append(", wideObjects=").append(wideObjects)
+                .append(", longArrays=").append(longArrays)
+                .append(", largestObject=").append(largestObject)
+                .append(", longestArray=").append(longestArray)
+                .append('}').toString();
+    }
+}
@@ -0,0 +1,23 @@
+package org.speedy.jackson;
+
+/**
+ * Java Flight Recorder events of the dsl <br/>
+ * This base version is used before Java 11, the flight recorder api is not available. The multi-release jar contains
+ * the version which emits the events
+ */
+final class FlightRecorderSupport {
+
+    private FlightRecorderSupport() {
+    }
+
+    static boolean isAvailable() {
+        return false;
+    }
+
+    /**
+     * @return the listener which emits the events, or null when the events are not available
+     */
+    static JsonDslListener newListener() {
+        return null;
+    }
+}
@@ -0,0 +1,219 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable json document which can be shared between threads without copying <br/>
+ * An update returns a new document: the containers on the path to the changed node are copied, all other nodes are
+ * shared with the original document. A document is created with {@link JsonDsl#freeze(ObjectNode)}
+ */
+public final class FrozenDocument {
+
+    private final JsonNodeFactory jsonNodeFactory;
+    private final ObjectNode root;
+
+    FrozenDocument(JsonNodeFactory jsonNodeFactory, ObjectNode root) {
+        this.jsonNodeFactory = jsonNodeFactory;
+        this.root = root;
+    }
+
+    /**
+     * create a frozen document
+     *
+     * @param jsonNodeFactory the json node factory of the copied containers
+     * @param objectNode      the object node, it is copied unless it is frozen already
+     * @return the frozen document
+     */
+    static FrozenDocument of(JsonNodeFactory jsonNodeFactory, ObjectNode objectNode) {
+        return new FrozenDocument(jsonNodeFactory, (ObjectNode) ImmutableNodes.freeze(jsonNodeFactory, objectNode));
+    }
+
+    /**
+     * get the root of this document, every modification of the root or one of its containers fails with an
+     * {@link UnsupportedOperationException}
+     *
+     * @return the immutable root object node
+     */
+    public ObjectNode getRoot() {
+        return root;
+    }
+
+    /**
+     * get a node of this document
+     *
+     * @param pointer the json pointer of the node, for example /items/0/id
+     * @return the node or a missing node
+     */
+    public JsonNode at(String pointer) {
+        return root.at(pointer);
+    }
+
+    /**
+     * create a document with a field or an array element set to a value <br/>
+     * missing objects on the path are created, an array element is appended when the index is the size of the array
+     * or -
+     *
+     * @param pointer the json pointer of the field or the array element, for example /items/0/id
+     * @param value   the value, it is copied unless it is immutable already
+     * @return the updated document
+     */
+    public FrozenDocument with(String pointer, JsonNode value) {
+        return with(JsonPointer.compile(pointer), value);
+    }
+
+    /**
+     * create a document with a field or an array element set to a value <br/>
+     * missing objects on the path are created, an array element is appended when the index is the size of the array
+     * or -
+     *
+     * @param pointer the json pointer of the field or the array element
+     * @param value   the value, it is copied unless it is immutable already
+     * @return the updated document
+     */
+    public FrozenDocument with(JsonPointer pointer, JsonNode value) {
+        JsonNode updated = set(root, pointer, ImmutableNodes.freeze(jsonNodeFactory, value));
+        if (!updated.isObject()) {
+            throw new IllegalArgumentException("The root of a document must be an object node");
+        }
+        return updated == root ? this : new FrozenDocument(jsonNodeFactory, (ObjectNode) updated);
+    }
+
+    /**
+     * create a document without a field or an array element
+     *
+     * @param pointer the json pointer of the field or the array element
+     * @return the updated document, or this document when the pointer does not match a node
+     */
+    public FrozenDocument without(String pointer) {
+        return without(JsonPointer.compile(pointer));
+    }
+
+    /**
+     * create a document without a field or an array element
+     *
+     * @param pointer the json pointer of the field or the array element
+     * @return the updated document, or this document when the pointer does not match a node
+     */
+    public FrozenDocument without(JsonPointer pointer) {
+        if (pointer.matches()) {
+            throw new IllegalArgumentException("The root of a document can not be removed");
+        }
+        JsonNode updated = remove(root, pointer);
+        return updated == root ? this : new FrozenDocument(jsonNodeFactory, (ObjectNode) updated);
+    }
+
+    /**
+     * create a mutable copy of this document
+     *
+     * @return the mutable object node
+     */
+    public ObjectNode toMutable() {
+        return root.deepCopy();
+    }
+
+    private JsonNode set(JsonNode node, JsonPointer pointer, JsonNode value) {
+        if (pointer.matches()) {
+            return value;
+        }
+        if (node == null || node.isObject()) {
+            String name = pointer.getMatchingProperty();
+            JsonNode child = node != null ? node.get(name) : null;
+            JsonNode updatedChild = set(child, pointer.tail(), value);
+            if (updatedChild == child) {
+                return node;
+            }
+            return ImmutableNodes.withField(jsonNodeFactory, node, name, updatedChild);
+        }
+        if (node.isArray()) {
+            int index = "-".equals(pointer.getMatchingProperty()) ? node.size() : pointer.getMatchingIndex();
+            if (index < 0 || index > node.size()) {
+                throw new IllegalArgumentException("Index " + pointer.getMatchingProperty()
+                        + " is outside the array of size " + node.size());
+            }
+            JsonNode child = index < node.size() ? node.get(index) : null;
+            JsonNode updatedChild = set(child, pointer.tail(), value);
+            if (updatedChild == child) {
+                return node;
+            }
+            List<JsonNode> elements = copyElements(node, 1);
+            if (index < node.size()) {
+                elements.set(index, updatedChild);
+            } else {
+                elements.add(updatedChild);
+            }
+            return ImmutableNodes.frozenArray(jsonNodeFactory, elements);
+        }
+        throw new IllegalArgumentException("Can not set " + pointer + " below a " + node.getNodeType() + " node");
+    }
+
+    private JsonNode remove(JsonNode node, JsonPointer pointer) {
+        if (node.isObject()) {
+            String name = pointer.getMatchingProperty();
+            JsonNode child = node.get(name);
+            if (child == null) {
+                return node;
+            }
+            JsonNode updatedChild = pointer.tail().matches() ? null : remove(child, pointer.tail());
+            if (updatedChild == child) {
+                return node;
+            }
+            return ImmutableNodes.withField(jsonNodeFactory, node, name, updatedChild);
+        }
+        if (node.isArray()) {
+            int index = pointer.getMatchingIndex();
+            if (index < 0 || index >= node.size()) {
+                return node;
+            }
+            JsonNode child = node.get(index);
+            JsonNode updatedChild = pointer.tail().matches() ? null : remove(child, pointer.tail());
+            if (updatedChild == child) {
+                return node;
+            }
+            List<JsonNode> elements = copyElements(node, 0);
+            if (updatedChild == null) {
+                elements.remove(index);
+            } else {
+                elements.set(index, updatedChild);
+            }
+            return ImmutableNodes.frozenArray(jsonNodeFactory, elements);
+        }
+        return node;
+    }
+
+    /**
+     * @return a shallow copy of the elements of an array node, the elements are shared
+     */
+    private static List<JsonNode> copyElements(JsonNode arrayNode, int extra) {
+        List<JsonNode> elements = new ArrayList<JsonNode>(arrayNode.size() + extra);
+        for (JsonNode element : arrayNode) {
+            elements.add(element);
+        }
+        return elements;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        return object == this || object instanceof FrozenDocument && root.equals(((FrozenDocument) object).root);
+    }
+
+    @Override
+    public int hashCode() {
+        return root.hashCode();
+    }
+
+    /**
+     * serialize this document
+     *
+     * @return the json
+     */
+    @Override
+    public String toString() {
+        return root.toString();
+    }
+}
@@ -0,0 +1,275 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.node.JsonNodeType;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In memory {@link JsonDslListener} which keeps histograms of the build, closure resolution and serialization times,
+ * the serialized bytes, and when enabled
+ * the totals of the {@link DocumentStatistics} of the built documents <br/>
+ * The listener is thread safe and lock free, the histograms have power of two buckets
+ */
+public class HistogramJsonDslListener implements JsonDslListener {
+
+    private final boolean documentStatistics;
+    private final Histogram buildTimes = new Histogram();
+    private final Histogram closureResolutionTimes = new Histogram();
+    private final AtomicLong closureCacheHits = new AtomicLong();
+    private final Histogram serializationTimes = new Histogram();
+    private final AtomicLong serializedBytes = new AtomicLong();
+    private final AtomicLongArray nodes = new AtomicLongArray(JsonNodeType.values().length);
+    private final AtomicLong maxDepth = new AtomicLong();
+    private final AtomicLong wideObjects = new AtomicLong();
+    private final AtomicLong longArrays = new AtomicLong();
+
+    /**
+     * create a listener which also walks every built document to count its nodes
+     */
+    public HistogramJsonDslListener() {
+        this(true);
+    }
+
+    /**
+     * create a listener
+     *
+     * @param documentStatistics true to walk every built document to count its nodes, false to keep the times only
+     */
+    public HistogramJsonDslListener(boolean documentStatistics) {
+        this.documentStatistics = documentStatistics;
+    }
+
+    public void documentBuilt(ObjectNode document, long nanos) {
+        buildTimes.record(nanos);
+        if (documentStatistics) {
+            DocumentStatistics statistics = DocumentStatistics.of(document);
+            for (JsonNodeType type : JsonNodeType.values()) {
+                long count = statistics.getNodes(type);
+                if (count > 0) {
+                    nodes.addAndGet(type.ordinal(), count);
+                }
+            }
+            max(maxDepth, statistics.getMaxDepth());
+            wideObjects.addAndGet(statistics.getWideObjects());
+            longArrays.addAndGet(statistics.getLongArrays());
+        }
+    }
+
+    public void closureNameResolved(Class<?> closureClass, boolean cacheHit, long nanos) {
+        if (cacheHit) {
+            closureCacheHits.incrementAndGet();
+        } else {
+            closureResolutionTimes.record(nanos);
+        }
+    }
+
+    public void documentSerialized(long bytes, long nanos) {
+        serializationTimes.record(nanos);
+        if (bytes > 0) {
+            serializedBytes.addAndGet(bytes);
+        }
+    }
+
+    /**
+     * @return the histogram of the build times of the documents, its count is the number of built documents
+     */
+    public Histogram getBuildTimes() {
+        return buildTimes;
+    }
+
+    /**
+     * @return the histogram of the closure name resolution times, the cached lookups are not included
+     */
+    public Histogram getClosureResolutionTimes() {
+        return closureResolutionTimes;
+    }
+
+    /**
+     * @return the number of closure names read from the cache
+     */
+    public long getClosureCacheHits() {
+        return closureCacheHits.get();
+    }
+
+    /**
+     * @return the histogram of the serialization times, its count is the number of serialized documents
+     */
+    public Histogram getSerializationTimes() {
+        return serializationTimes;
+    }
+
+    /**
+     * @return the number of serialized bytes, characters for writers, without the serializations to json generators
+     * of the caller of which the size is unknown
+     */
+    public long getSerializedBytes() {
+        return serializedBytes.get();
+    }
+
+    /**
+     * @param type the node type
+     * @return the number of nodes of this type in the built documents
+     */
+    public long getNodes(JsonNodeType type) {
+        return nodes.get(type.ordinal());
+    }
+
+    /**
+     * @return the maximum depth of the built documents
+     */
+    public long getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    /**
+     * @return the number of wide objects in the built documents
+     */
+    public long getWideObjects() {
+        return wideObjects.get();
+    }
+
+    /**
+     * @return the number of long arrays in the built documents
+     */
+    public long getLongArrays() {
+        return longArrays.get();
+    }
+
+    /**
+     * clear the histograms and the totals
+     */
+    public void reset() {
+        buildTimes.reset();
+        closureResolutionTimes.reset();
+        closureCacheHits.set(0);
+        serializationTimes.reset();
+        serializedBytes.set(0);
+        for (int i = 0; i < nodes.length(); i++) {
+            nodes.set(i, 0);
+        }
+        maxDepth.set(0);
+        wideObjects.set(0);
+        longArrays.set(0);
+    }
+
+    private static void max(AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("HistogramJsonDslListener{buildTimes=").append(buildTimes)
+                .append(", closureResolutionTimes=").append(closureResolutionTimes)
+                .append(", closureCacheHits=").append(closureCacheHits)
+                .append(", serializationTimes=").append(serializationTimes)
+                .append(", serializedBytes=").append(serializedBytes);
+        if (documentStatistics) {
+            builder.append(", nodes={");
+            String separator = "";
+            for (JsonNodeType type : JsonNodeType.values()) {
+                if (nodes.get(type.ordinal()) > 0) {
+                    builder.append(separator).append(type).append('=').append(nodes.get(type.ordinal()));
+                    separator = ", ";
+                }
+            }
+            builder.append("}, maxDepth=").append(maxDepth)
+                    .append(", wideObjects=").append(wideObjects)
+                    .append(", longArrays=").append(longArrays);
+        }
+        return builder.append('}').toString();
+    }
+
+    /**
+     * Histogram of durations in nanoseconds with power of two buckets, a percentile is the upper bound of its bucket
+     */
+    public static final class Histogram {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            long value = Math.max(nanos, 0);
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value) - (value == 0 ? 0 : 1));
+            count.incrementAndGet();
+            total.addAndGet(value);
+            max(max, value);
+        }
+
+        /**
+         * @return the number of recorded durations
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * @return the sum of the recorded durations in nanoseconds
+         */
+        public long getTotal() {
+            return total.get();
+        }
+
+        /**
+         * @return the mean duration in nanoseconds
+         */
+        public double getMean() {
+            long count = this.count.get();
+            return count > 0 ? (double) total.get() / count : 0d;
+        }
+
+        /**
+         * @return the longest duration in nanoseconds
+         */
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * get a percentile of the recorded durations
+         *
+         * @param percentile the percentile, between 0 and 100
+         * @return the upper bound in nanoseconds of the bucket of the percentile, at most the longest duration
+         */
+        public long getPercentile(double percentile) {
+            long count = this.count.get();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * Math.min(Math.max(percentile, 0d), 100d) / 100d);
+            long seen = 0;
+            for (int i = 0; i < 64; i++) {
+                seen += buckets.get(i);
+                if (seen >= Math.max(rank, 1)) {
+                    return i >= 62 ? max.get() : Math.min((2L << i) - 1, max.get());
+                }
+            }
+            return max.get();
+        }
+
+        void reset() {
+            for (int i = 0; i < 64; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            total.set(0);
+            max.set(0);
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + getCount()
+                    + ", mean=" + Math.round(getMean())
+                    + ", p50=" + getPercentile(50)
+                    + ", p99=" + getPercentile(99)
+                    + ", max=" + getMax()
+                    + '}';
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Copies json trees into containers backed by unmodifiable collections, every modification of such a container fails
+ * with an {@link UnsupportedOperationException}
+ */
+final class ImmutableNodes {
+
+    /**
+     * the number of fields above which an updated object shares the fields of the original object
+     */
+    private static final int OVERLAY_SIZE = 32;
+
+    private ImmutableNodes() {
+    }
+
+    /**
+     * create an immutable copy of a json node, value nodes and immutable containers are shared
+     *
+     * @param jsonNodeFactory the json node factory of the copied containers
+     * @param jsonNode        the json node
+     * @return the immutable json node
+     */
+    static JsonNode freeze(JsonNodeFactory jsonNodeFactory, JsonNode jsonNode) {
+        if (isFrozen(jsonNode)) {
+            return jsonNode;
+        }
+        if (jsonNode.isObject()) {
+            return new FrozenObjectNode(jsonNodeFactory, copyFields(jsonNodeFactory, jsonNode));
+        }
+        if (jsonNode.isArray()) {
+            return new FrozenArrayNode(jsonNodeFactory, frozenElements(jsonNodeFactory, jsonNode));
+        }
+        return jsonNode;
+    }
+
+    /**
+     * @return true when the json node is a container created by this class, a constant, a canonical container or a binary document view
+     */
+    static boolean isFrozen(JsonNode jsonNode) {
+        return jsonNode instanceof FrozenObjectNode || jsonNode instanceof FrozenArrayNode
+                || jsonNode instanceof ConstantObjectNode || jsonNode instanceof ConstantArrayNode
+                || jsonNode instanceof JsonInterner.InternedObjectNode
+                || jsonNode instanceof JsonInterner.InternedArrayNode
+                || BinaryDocument.isView(jsonNode);
+    }
+
+    /**
+     * create an immutable object node with one field set or removed <br/>
+     * the fields of a small object are copied, a wide object shares the fields of the given object node and keeps the
+     * changed fields in an overlay until more than {@link CompactObjectMap#THRESHOLD} fields are changed or a removed
+     * field is added again, which moves it to the end
+     *
+     * @param jsonNodeFactory the json node factory
+     * @param objectNode      the immutable object node or null for an empty object
+     * @param name            the name of the field
+     * @param value           the immutable value or null to remove the field
+     * @return the immutable object node
+     */
+    @SuppressWarnings("deprecation")
+    static ObjectNode withField(JsonNodeFactory jsonNodeFactory, JsonNode objectNode, String name, JsonNode value) {
+        if (objectNode instanceof FrozenObjectNode && objectNode.size() > OVERLAY_SIZE) {
+            Map<String, JsonNode> fields = ((FrozenObjectNode) objectNode).fields;
+            Map<String, JsonNode> base = fields;
+            Map<String, JsonNode> changes = new CompactObjectMap(1);
+            if (fields instanceof OverlayFields) {
+                base = ((OverlayFields) fields).base;
+                changes = new CompactObjectMap(((OverlayFields) fields).changes.size() + 1);
+                changes.putAll(((OverlayFields) fields).changes);
+            }
+            boolean readded = value != null && changes.containsKey(name) && changes.get(name) == null;
+            changes.put(name, value);
+            if (changes.size() <= CompactObjectMap.THRESHOLD && !readded) {
+                return new FrozenObjectNode(jsonNodeFactory, new OverlayFields(base, changes));
+            }
+        }
+        Map<String, JsonNode> fields = newFields(objectNode != null ? objectNode.size() + 1 : 1);
+        if (objectNode != null) {
+            for (Iterator<Map.Entry<String, JsonNode>> iterator = objectNode.fields(); iterator.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = iterator.next();
+                fields.put(field.getKey(), field.getValue());
+            }
+        }
+        if (value != null) {
+            fields.put(name, value);
+        } else {
+            fields.remove(name);
+        }
+        return new FrozenObjectNode(jsonNodeFactory, fields);
+    }
+
+    /**
+     * create an immutable array node of elements which are immutable already
+     *
+     * @param jsonNodeFactory the json node factory
+     * @param elements        the immutable elements, the list is not copied
+     * @return the immutable array node
+     */
+    static ArrayNode frozenArray(JsonNodeFactory jsonNodeFactory, List<JsonNode> elements) {
+        return new FrozenArrayNode(jsonNodeFactory, Collections.unmodifiableList(elements));
+    }
+
+    /**
+     * @return a map with room for the given number of fields, small objects keep their fields in a
+     * {@link CompactObjectMap}
+     */
+    static Map<String, JsonNode> newFields(int size) {
+        if (size <= CompactObjectMap.THRESHOLD) {
+            return new CompactObjectMap(size);
+        }
+        return new LinkedHashMap<String, JsonNode>(TupleDsl.capacity(size));
+    }
+
+    /**
+     * @return the immutable copies of the fields of an object node in an unmodifiable map
+     */
+    static Map<String, JsonNode> frozenFields(JsonNodeFactory jsonNodeFactory, JsonNode objectNode) {
+        return Collections.unmodifiableMap(copyFields(jsonNodeFactory, objectNode));
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Map<String, JsonNode> copyFields(JsonNodeFactory jsonNodeFactory, JsonNode objectNode) {
+        Map<String, JsonNode> fields = newFields(objectNode.size());
+        for (Iterator<Map.Entry<String, JsonNode>> iterator = objectNode.fields(); iterator.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = iterator.next();
+            fields.put(field.getKey(), freeze(jsonNodeFactory, field.getValue()));
+        }
+        return fields;
+    }
+
+    /**
+     * @return the immutable copies of the elements of an array node in an unmodifiable list
+     */
+    static List<JsonNode> frozenElements(JsonNodeFactory jsonNodeFactory, JsonNode arrayNode) {
+        List<JsonNode> elements = new ArrayList<JsonNode>(arrayNode.size());
+        for (JsonNode element : arrayNode) {
+            elements.add(freeze(jsonNodeFactory, element));
+        }
+        return Collections.unmodifiableList(elements);
+    }
+
+    /**
+     * object node backed by an unmodifiable map of immutable nodes
+     */
+    private static final class FrozenObjectNode extends ObjectNode {
+
+        private final Map<String, JsonNode> fields;
+
+        FrozenObjectNode(JsonNodeFactory jsonNodeFactory, Map<String, JsonNode> fields) {
+            super(jsonNodeFactory, Collections.unmodifiableMap(fields));
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * array node backed by an unmodifiable list of immutable nodes
+     */
+    private static final class FrozenArrayNode extends ArrayNode {
+
+        FrozenArrayNode(JsonNodeFactory jsonNodeFactory, List<JsonNode> elements) {
+            super(jsonNodeFactory, elements);
+        }
+    }
+
+    /**
+     * fields of an object which differ from a shared base object in a few fields <br/>
+     * changed fields keep their position, added fields follow the fields of the base object, a null change is a
+     * removed field
+     */
+    private static final class OverlayFields extends AbstractMap<String, JsonNode> {
+
+        private final Map<String, JsonNode> base;
+        private final Map<String, JsonNode> changes;
+        private final int size;
+        private Set<Map.Entry<String, JsonNode>> entrySet;
+
+        OverlayFields(Map<String, JsonNode> base, Map<String, JsonNode> changes) {
+            this.base = base;
+            this.changes = changes;
+            int size = base.size();
+            for (Map.Entry<String, JsonNode> change : changes.entrySet()) {
+                boolean inBase = base.containsKey(change.getKey());
+                if (inBase && change.getValue() == null) {
+                    size--;
+                } else if (!inBase && change.getValue() != null) {
+                    size++;
+                }
+            }
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object name) {
+            return changes.containsKey(name) ? changes.get(name) != null : base.containsKey(name);
+        }
+
+        @Override
+        public JsonNode get(Object name) {
+            return changes.containsKey(name) ? changes.get(name) : base.get(name);
+        }
+
+        @Override
+        public Set<Map.Entry<String, JsonNode>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new AbstractSet<Map.Entry<String, JsonNode>>() {
+
+                    @Override
+                    public Iterator<Map.Entry<String, JsonNode>> iterator() {
+                        return new OverlayIterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+
+                };
+            }
+            return entrySet;
+        }
+
+        private final class OverlayIterator implements Iterator<Map.Entry<String, JsonNode>> {
+
+            private final Iterator<Map.Entry<String, JsonNode>> baseIterator = base.entrySet().iterator();
+            private final Iterator<Map.Entry<String, JsonNode>> changeIterator = changes.entrySet().iterator();
+            private Map.Entry<String, JsonNode> next = advance();
+
+            private Map.Entry<String, JsonNode> advance() {
+                while (baseIterator.hasNext()) {
+                    Map.Entry<String, JsonNode> field = baseIterator.next();
+                    if (!changes.containsKey(field.getKey())) {
+                        return field;
+                    }
+                    JsonNode value = changes.get(field.getKey());
+                    if (value != null) {
+                        return new SimpleImmutableEntry<String, JsonNode>(field.getKey(), value);
+                    }
+                }
+                while (changeIterator.hasNext()) {
+                    Map.Entry<String, JsonNode> change = changeIterator.next();
+                    if (change.getValue() != null && !base.containsKey(change.getKey())) {
+                        return new SimpleImmutableEntry<String, JsonNode>(change.getKey(), change.getValue());
+                    }
+                }
+                return null;
+            }
+
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            public Map.Entry<String, JsonNode> next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<String, JsonNode> field = next;
+                next = advance();
+                return field;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        }
+    }
+}
@@ -0,0 +1,659 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.json.UTF8JsonGenerator;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Copies json trees into containers which cache their serialized bytes <br/>
+ * Every container keeps the segments of its last serialization: the utf-8 bytes of its own punctuation, field names
+ * and values, and between them the child containers, which keep their own segments. A serialization writes the
+ * segments of the containers as raw bytes, so every byte of the document is cached once. A change of the fields or
+ * elements of a container drops the segments of that container only, and those of its parent when the container
+ * becomes empty or no longer is, which decides whether an empty array is written. The segments are only reused for a
+ * utf-8 generator which writes the same output as the generator which created them, see {@link RawJson}. Other
+ * generators serialize the containers as usual
+ */
+final class IncrementalNodes {
+
+    private static final JsonNodeFactory incrementalNodeFactory = new IncrementalNodeFactory();
+
+    private IncrementalNodes() {
+    }
+
+    /**
+     * copy a json node into caching containers, value nodes are shared
+     *
+     * @param jsonNode the json node
+     * @return the copied json node
+     */
+    static JsonNode copy(JsonNode jsonNode) {
+        if (jsonNode.isObject()) {
+            CachingObjectNode objectNode = new CachingObjectNode(incrementalNodeFactory);
+            for (Iterator<String> names = jsonNode.fieldNames(); names.hasNext(); ) {
+                String name = names.next();
+                objectNode.set(name, copy(jsonNode.get(name)));
+            }
+            return objectNode;
+        }
+        if (jsonNode.isArray()) {
+            CachingArrayNode arrayNode = new CachingArrayNode(incrementalNodeFactory, jsonNode.size());
+            for (JsonNode element : jsonNode) {
+                arrayNode.add(copy(element));
+            }
+            return arrayNode;
+        }
+        return jsonNode;
+    }
+
+    /**
+     * prepare a value for a container, a detached caching container is linked to the container <br/>
+     * any other container is rejected: a plain container can not report its changes, so changes made through the
+     * reference of the caller would not drop the cached bytes, and a linked container already belongs to another
+     * container
+     */
+    private static JsonNode adopt(SubtreeCache owner, JsonNode previous, JsonNode value) {
+        if (value == previous || value == null || !value.isContainerNode()) {
+            return value;
+        }
+        if (!(value instanceof Cached)) {
+            throw new IllegalArgumentException("A plain container can not be added to an incremental document, "
+                    + "create it with putObject, putArray, objectNode() or arrayNode() of the document");
+        }
+        SubtreeCache cache = ((Cached) value).subtreeCache();
+        if (cache.parent != null || cache == owner || cache.isAncestorOf(owner)) {
+            throw new IllegalArgumentException("The container belongs to an incremental document already, "
+                    + "remove it first or add a deepCopy()");
+        }
+        cache.parent = owner;
+        return value;
+    }
+
+    /**
+     * unlink a value which was removed from a container
+     */
+    private static void detach(SubtreeCache owner, JsonNode value) {
+        if (value instanceof Cached) {
+            SubtreeCache cache = ((Cached) value).subtreeCache();
+            if (cache.parent == owner) {
+                cache.parent = null;
+            }
+        }
+    }
+
+    /**
+     * container with a subtree cache
+     */
+    interface Cached extends RawJson.Contents {
+
+        SubtreeCache subtreeCache();
+    }
+
+    /**
+     * the cached segments of a container and the link to the cache of its parent
+     */
+    static final class SubtreeCache {
+
+        private SubtreeCache parent;
+
+        /**
+         * the {@link RawBytes} of the container and its child containers in the order of the json, or null when the
+         * container changed
+         */
+        private Object[] segments;
+        private Object config;
+
+        /**
+         * the number of own bytes of the last segments, kept when the segments are dropped to size the next buffer
+         */
+        private int length = 128;
+
+        /**
+         * drop the segments of this container after a change, and those of its parent when the container became
+         * empty or no longer is
+         */
+        void invalidate(int previousSize, int size) {
+            segments = null;
+            if (parent != null && (previousSize == 0) != (size == 0)) {
+                parent.segments = null;
+            }
+        }
+
+        boolean isAncestorOf(SubtreeCache cache) {
+            for (SubtreeCache ancestor = cache.parent; ancestor != null; ancestor = ancestor.parent) {
+                if (ancestor == this) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * write a container with its cached segments, the missing segments are created
+         *
+         * @return false when the generator can not reuse the segments, the container is then serialized as usual
+         */
+        boolean write(Cached node, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            if (!(generator instanceof UTF8JsonGenerator) || !RawJson.isDefault(generator)) {
+                return false;
+            }
+            Object currentConfig = RawJson.config(provider);
+            Object[] currentSegments = segments(node, provider, currentConfig);
+            generator.writeRawValue((RawBytes) currentSegments[0]);
+            writeSegments(currentSegments, 1, generator, provider, currentConfig);
+            return true;
+        }
+
+        /**
+         * write segments and the segments of the child containers as raw bytes, the generator has counted the
+         * container as a written value already
+         */
+        private static void writeSegments(Object[] segments, int from, JsonGenerator generator,
+                                          SerializerProvider provider, Object config) throws IOException {
+            for (int i = from; i < segments.length; i++) {
+                Object segment = segments[i];
+                if (segment instanceof RawBytes) {
+                    generator.writeRaw((RawBytes) segment);
+                } else {
+                    Cached child = (Cached) segment;
+                    writeSegments(child.subtreeCache().segments(child, provider, config), 0, generator, provider,
+                            config);
+                }
+            }
+        }
+
+        /**
+         * @return the segments of the container, serialized again when they were dropped or created for another
+         * serialization config
+         */
+        private Object[] segments(Cached node, SerializerProvider provider, Object currentConfig) throws IOException {
+            Object[] currentSegments = segments;
+            if (currentSegments == null || config != currentConfig) {
+                SegmentRecorder recorder = new SegmentRecorder(length);
+                try {
+                    node.serializeContents(recorder, provider);
+                } finally {
+                    recorder.close();
+                }
+                currentSegments = recorder.segments();
+                segments = currentSegments;
+                length = recorder.length();
+                config = currentConfig;
+            }
+            return currentSegments;
+        }
+    }
+
+    /**
+     * generator which records the serialization of one container as segments, a child container is not serialized
+     * but recorded as a reference between the bytes before and after it
+     */
+    private static final class SegmentRecorder extends JsonGeneratorDelegate {
+
+        private final SegmentBuffer buffer;
+        private final List<Object> segments = new ArrayList<Object>();
+
+        SegmentRecorder(int length) throws IOException {
+            this(new SegmentBuffer(length + length / 8));
+        }
+
+        private SegmentRecorder(SegmentBuffer buffer) throws IOException {
+            super(RawJson.jsonFactory.createGenerator(buffer));
+            this.buffer = buffer;
+        }
+
+        /**
+         * record a child container in place of its json, the separator before it is written first
+         */
+        void child(Cached node) throws IOException {
+            delegate.writeRawValue("");
+            delegate.flush();
+            segments.add(buffer.cut());
+            segments.add(node);
+        }
+
+        /**
+         * @return the recorded segments, the first one holds at least the start of the container
+         */
+        Object[] segments() {
+            if (buffer.hasRemaining()) {
+                segments.add(buffer.cut());
+            }
+            return segments.toArray();
+        }
+
+        int length() {
+            return buffer.size();
+        }
+    }
+
+    /**
+     * the bytes of a container, cut into segments at its child containers
+     */
+    private static final class SegmentBuffer extends ByteArrayOutputStream {
+
+        /**
+         * the shared segments of a single ascii byte, which are the separators between child containers
+         */
+        private static final RawBytes[] singleBytes = new RawBytes[128];
+
+        static {
+            for (int i = 0; i < singleBytes.length; i++) {
+                singleBytes[i] = new RawBytes(new byte[]{(byte) i});
+            }
+        }
+
+        private int mark;
+
+        SegmentBuffer(int size) {
+            super(size);
+        }
+
+        boolean hasRemaining() {
+            return count > mark;
+        }
+
+        /**
+         * @return the bytes since the last cut
+         */
+        RawBytes cut() {
+            RawBytes segment;
+            if (count - mark == 1 && buf[mark] >= 0) {
+                segment = singleBytes[buf[mark]];
+            } else {
+                segment = new RawBytes(Arrays.copyOfRange(buf, mark, count));
+            }
+            mark = count;
+            return segment;
+        }
+    }
+
+    static final class CachingObjectNode extends ObjectNode implements Cached {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient SubtreeCache cache = new SubtreeCache();
+
+        CachingObjectNode(JsonNodeFactory jsonNodeFactory) {
+            super(jsonNodeFactory, new TrackingMap());
+            ((TrackingMap) _children).owner = cache;
+        }
+
+        public SubtreeCache subtreeCache() {
+            return cache;
+        }
+
+        @Override
+        public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+            if (generator instanceof SegmentRecorder) {
+                ((SegmentRecorder) generator).child(this);
+            } else if (!cache.write(this, generator, provider)) {
+                super.serialize(generator, provider);
+            }
+        }
+
+        public void serializeContents(JsonGenerator generator, SerializerProvider provider) throws IOException {
+            super.serialize(generator, provider);
+        }
+
+        @Override
+        public ObjectNode deepCopy() {
+            return (ObjectNode) copy(this);
+        }
+    }
+
+    static final class CachingArrayNode extends ArrayNode implements Cached {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient SubtreeCache cache = new SubtreeCache();
+
+        CachingArrayNode(JsonNodeFactory jsonNodeFactory, int capacity) {
+            this(jsonNodeFactory, new TrackingList(capacity));
+        }
+
+        private CachingArrayNode(JsonNodeFactory jsonNodeFactory, TrackingList elements) {
+            super(jsonNodeFactory, elements);
+            elements.owner = cache;
+        }
+
+        public SubtreeCache subtreeCache() {
+            return cache;
+        }
+
+        @Override
+        public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+            if (generator instanceof SegmentRecorder) {
+                ((SegmentRecorder) generator).child(this);
+            } else if (!cache.write(this, generator, provider)) {
+                super.serialize(generator, provider);
+            }
+        }
+
+        public void serializeContents(JsonGenerator generator, SerializerProvider provider) throws IOException {
+            super.serialize(generator, provider);
+        }
+
+        @Override
+        public ArrayNode deepCopy() {
+            return (ArrayNode) copy(this);
+        }
+    }
+
+    /**
+     * fields of a caching object node, every change invalidates the cache of the object node
+     */
+    private static final class TrackingMap extends AbstractMap<String, JsonNode> {
+
+        private final Map<String, JsonNode> fields = new LinkedHashMap<String, JsonNode>();
+        private SubtreeCache owner;
+        private Set<Map.Entry<String, JsonNode>> entrySet;
+
+        @Override
+        public int size() {
+            return fields.size();
+        }
+
+        @Override
+        public boolean containsKey(Object name) {
+            return fields.containsKey(name);
+        }
+
+        @Override
+        public JsonNode get(Object name) {
+            return fields.get(name);
+        }
+
+        @Override
+        public JsonNode put(String name, JsonNode value) {
+            int previousSize = fields.size();
+            JsonNode adopted = adopt(owner, fields.get(name), value);
+            JsonNode previous = fields.put(name, adopted);
+            if (previous != adopted) {
+                detach(owner, previous);
+            }
+            owner.invalidate(previousSize, fields.size());
+            return previous;
+        }
+
+        @Override
+        public JsonNode remove(Object name) {
+            int previousSize = fields.size();
+            JsonNode previous = fields.remove(name);
+            if (previous != null) {
+                detach(owner, previous);
+                owner.invalidate(previousSize, fields.size());
+            }
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            int previousSize = fields.size();
+            for (JsonNode value : fields.values()) {
+                detach(owner, value);
+            }
+            fields.clear();
+            owner.invalidate(previousSize, 0);
+        }
+
+        @Override
+        public Set<Map.Entry<String, JsonNode>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new AbstractSet<Map.Entry<String, JsonNode>>() {
+
+                    @Override
+                    public Iterator<Map.Entry<String, JsonNode>> iterator() {
+                        return new TrackingIterator(fields.entrySet().iterator());
+                    }
+
+                    @Override
+                    public int size() {
+                        return fields.size();
+                    }
+
+                    @Override
+                    public void clear() {
+                        TrackingMap.this.clear();
+                    }
+                };
+            }
+            return entrySet;
+        }
+
+        private final class TrackingIterator implements Iterator<Map.Entry<String, JsonNode>> {
+
+            private final Iterator<Map.Entry<String, JsonNode>> iterator;
+            private Map.Entry<String, JsonNode> last;
+
+            TrackingIterator(Iterator<Map.Entry<String, JsonNode>> iterator) {
+                this.iterator = iterator;
+            }
+
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            public Map.Entry<String, JsonNode> next() {
+                final Map.Entry<String, JsonNode> entry = iterator.next();
+                last = entry;
+                return new SimpleEntry<String, JsonNode>(entry) {
+
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    public JsonNode setValue(JsonNode value) {
+                        JsonNode previous = entry.getValue();
+                        JsonNode adopted = adopt(owner, previous, value);
+                        entry.setValue(adopted);
+                        super.setValue(adopted);
+                        if (previous != adopted) {
+                            detach(owner, previous);
+                        }
+                        owner.invalidate(fields.size(), fields.size());
+                        return previous;
+                    }
+                };
+            }
+
+            public void remove() {
+                iterator.remove();
+                detach(owner, last.getValue());
+                owner.invalidate(fields.size() + 1, fields.size());
+            }
+        }
+    }
+
+    /**
+     * elements of a caching array node, every change invalidates the cache of the array node
+     */
+    private static final class TrackingList extends AbstractList<JsonNode> implements RandomAccess {
+
+        private final ArrayList<JsonNode> elements;
+        private SubtreeCache owner;
+
+        TrackingList(int capacity) {
+            elements = new ArrayList<JsonNode>(capacity);
+        }
+
+        @Override
+        public JsonNode get(int index) {
+            return elements.get(index);
+        }
+
+        @Override
+        public int size() {
+            return elements.size();
+        }
+
+        @Override
+        public JsonNode set(int index, JsonNode value) {
+            JsonNode adopted = adopt(owner, elements.get(index), value);
+            JsonNode previous = elements.set(index, adopted);
+            if (previous != adopted) {
+                detach(owner, previous);
+            }
+            owner.invalidate(elements.size(), elements.size());
+            return previous;
+        }
+
+        @Override
+        public void add(int index, JsonNode value) {
+            elements.add(index, adopt(owner, null, value));
+            modCount++;
+            owner.invalidate(elements.size() - 1, elements.size());
+        }
+
+        @Override
+        public JsonNode remove(int index) {
+            JsonNode previous = elements.remove(index);
+            modCount++;
+            detach(owner, previous);
+            owner.invalidate(elements.size() + 1, elements.size());
+            return previous;
+        }
+
+        @Override
+        public void clear() {
+            int previousSize = elements.size();
+            for (JsonNode element : elements) {
+                detach(owner, element);
+            }
+            elements.clear();
+            modCount++;
+            owner.invalidate(previousSize, 0);
+        }
+    }
+
+    /**
+     * creates caching containers, so putObject, putArray and the other container methods of a caching container add
+     * caching containers
+     */
+    private static final class IncrementalNodeFactory extends JsonNodeFactory {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public ObjectNode objectNode() {
+            return new CachingObjectNode(this);
+        }
+
+        @Override
+        public ArrayNode arrayNode() {
+            return new CachingArrayNode(this, 10);
+        }
+
+        @Override
+        public ArrayNode arrayNode(int capacity) {
+            return new CachingArrayNode(this, capacity);
+        }
+    }
+
+    /**
+     * cached bytes written as a raw value
+     */
+    private static final class RawBytes implements SerializableString {
+
+        private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+        private final byte[] bytes;
+
+        RawBytes(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        public String getValue() {
+            return new String(bytes, UTF_8);
+        }
+
+        public int charLength() {
+            return getValue().length();
+        }
+
+        public char[] asQuotedChars() {
+            return getValue().toCharArray();
+        }
+
+        public byte[] asUnquotedUTF8() {
+            return bytes;
+        }
+
+        public byte[] asQuotedUTF8() {
+            return bytes;
+        }
+
+        public int appendQuotedUTF8(byte[] buffer, int offset) {
+            return appendUnquotedUTF8(buffer, offset);
+        }
+
+        public int appendQuoted(char[] buffer, int offset) {
+            return appendUnquoted(buffer, offset);
+        }
+
+        public int appendUnquotedUTF8(byte[] buffer, int offset) {
+            if (offset + bytes.length > buffer.length) {
+                return -1;
+            }
+            System.arraycopy(bytes, 0, buffer, offset, bytes.length);
+            return bytes.length;
+        }
+
+        public int appendUnquoted(char[] buffer, int offset) {
+            char[] chars = asQuotedChars();
+            if (offset + chars.length > buffer.length) {
+                return -1;
+            }
+            System.arraycopy(chars, 0, buffer, offset, chars.length);
+            return chars.length;
+        }
+
+        public int writeQuotedUTF8(OutputStream outputStream) throws IOException {
+            return writeUnquotedUTF8(outputStream);
+        }
+
+        public int writeUnquotedUTF8(OutputStream outputStream) throws IOException {
+            outputStream.write(bytes);
+            return bytes.length;
+        }
+
+        public int putQuotedUTF8(ByteBuffer buffer) {
+            return putUnquotedUTF8(buffer);
+        }
+
+        public int putUnquotedUTF8(ByteBuffer buffer) {
+            if (bytes.length > buffer.remaining()) {
+                return -1;
+            }
+            buffer.put(bytes);
+            return bytes.length;
+        }
+
+        @Override
+        public String toString() {
+            return getValue();
+        }
+    }
+}
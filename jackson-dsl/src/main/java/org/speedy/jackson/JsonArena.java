@@ -0,0 +1,254 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pool of object nodes, array nodes and tuples which are recycled between the documents built on one thread <br/>
+ * The json dsl context of an arena takes its containers and tuples from the pool, {@link #reset()} clears them and
+ * hands them out again for the next document, so a document which is built, serialized and dropped for every request
+ * reuses the containers of the previous request instead of allocating new ones. Value nodes are immutable jackson
+ * nodes, they are shared when the json node factory caches them, for example a {@link CachingJsonNodeFactory}. <br/>
+ * The pool keeps at most maxPooled containers of each kind and tuples, and at most maxPooledFields fields and elements
+ * in all its containers together: on reset a container which grew beyond the rest of that budget is replaced by an
+ * empty one, or dropped. An arena is not thread safe, use one arena per thread, for example the one of
+ * {@link #forCurrentThread()}. A document built with an arena can not be used after the next reset, copy it with
+ * deepCopy() to keep it
+ */
+public final class JsonArena {
+
+    private static final ThreadLocal<JsonArena> arenas = new ThreadLocal<JsonArena>() {
+
+        @Override
+        protected JsonArena initialValue() {
+            return new JsonArena();
+        }
+
+    };
+
+    private final JsonNodeFactory jsonNodeFactory;
+    private final int maxPooled;
+    private final int maxPooledFields;
+    private final JsonDslContext context;
+
+    private final List<ObjectNode> objectNodes = new ArrayList<ObjectNode>();
+    private final List<ArenaFields> objectFields = new ArrayList<ArenaFields>();
+    private final List<ArrayNode> arrayNodes = new ArrayList<ArrayNode>();
+    private final List<ArenaElements> arrayElements = new ArrayList<ArenaElements>();
+    private final List<ArenaTuple> tuples = new ArrayList<ArenaTuple>();
+    private int usedObjectNodes;
+    private int usedArrayNodes;
+    private int usedTuples;
+
+    /**
+     * create an arena which pools 256 containers of each kind with 16384 fields and elements in total, which retains
+     * less than a megabyte
+     */
+    public JsonArena() {
+        this(JsonNodeFactory.instance, 256, 16384);
+    }
+
+    /**
+     * create an arena
+     *
+     * @param jsonNodeFactory the json node factory of the containers and value nodes
+     * @param maxPooled       the maximum number of pooled object nodes, array nodes and tuples each
+     * @param maxPooledFields the maximum number of fields and elements of all pooled containers together
+     */
+    public JsonArena(JsonNodeFactory jsonNodeFactory, int maxPooled, int maxPooledFields) {
+        if (maxPooled < 0 || maxPooledFields < 0) {
+            throw new IllegalArgumentException("The pool sizes of an arena can not be negative");
+        }
+        this.jsonNodeFactory = jsonNodeFactory;
+        this.maxPooled = maxPooled;
+        this.maxPooledFields = maxPooledFields;
+        this.context = new ArenaJsonDslContext(jsonNodeFactory, this);
+    }
+
+    /**
+     * the arena is kept until the thread ends or {@link #releaseForCurrentThread()} is called. Do not use it on virtual
+     * threads, or other threads which run a single task: every thread then creates an arena which is never reused,
+     * create an arena per task instead or share one between the tasks which run one after the other
+     *
+     * @return the arena of the current thread, created with the default pool sizes
+     */
+    public static JsonArena forCurrentThread() {
+        return arenas.get();
+    }
+
+    /**
+     * drop the arena of the current thread, so a pooled thread which stops building documents does not retain it
+     */
+    public static void releaseForCurrentThread() {
+        arenas.remove();
+    }
+
+    /**
+     * @return the json dsl context which builds documents with the containers and tuples of this arena
+     */
+    public JsonDslContext context() {
+        return context;
+    }
+
+    /**
+     * clear the containers and tuples handed out since the previous reset and return them to the pool, the documents
+     * built with them are empty afterwards. The containers which do not fit in the rest of the field budget are
+     * replaced by empty ones, or dropped when the budget is spent
+     */
+    public void reset() {
+        int budget = maxPooledFields;
+        for (int i = 0; i < objectFields.size(); i++) {
+            ArenaFields fields = objectFields.get(i);
+            if (i < usedObjectNodes) {
+                fields.clear();
+            }
+            if (fields.capacity() > budget) {
+                fields = new ArenaFields();
+                if (fields.capacity() > budget) {
+                    objectFields.subList(i, objectFields.size()).clear();
+                    objectNodes.subList(i, objectNodes.size()).clear();
+                    break;
+                }
+                objectFields.set(i, fields);
+                objectNodes.set(i, new ObjectNode(jsonNodeFactory, fields));
+            }
+            budget -= fields.capacity();
+        }
+        for (int i = 0; i < arrayElements.size(); i++) {
+            ArenaElements elements = arrayElements.get(i);
+            if (i < usedArrayNodes) {
+                elements.clear();
+            }
+            if (elements.retained > budget) {
+                elements = new ArenaElements(0);
+                arrayElements.set(i, elements);
+                arrayNodes.set(i, new ArrayNode(jsonNodeFactory, elements));
+            }
+            budget -= elements.retained;
+        }
+        for (int i = 0; i < usedTuples; i++) {
+            tuples.get(i).set(null, null);
+        }
+        usedObjectNodes = 0;
+        usedArrayNodes = 0;
+        usedTuples = 0;
+    }
+
+    /**
+     * @return the number of pooled object nodes, array nodes and tuples
+     */
+    public int getPoolSize() {
+        return objectNodes.size() + arrayNodes.size() + tuples.size();
+    }
+
+    /**
+     * @return an empty object node, from the pool unless the pool is exhausted
+     */
+    ObjectNode objectNode(int size) {
+        if (usedObjectNodes < objectNodes.size()) {
+            return objectNodes.get(usedObjectNodes++);
+        }
+        if (objectNodes.size() < maxPooled) {
+            ArenaFields fields = new ArenaFields();
+            ObjectNode objectNode = new ObjectNode(jsonNodeFactory, fields);
+            objectFields.add(fields);
+            objectNodes.add(objectNode);
+            usedObjectNodes++;
+            return objectNode;
+        }
+        return TupleDsl.newObjectNode(jsonNodeFactory, size);
+    }
+
+    /**
+     * @return an empty array node, from the pool unless the pool is exhausted
+     */
+    ArrayNode arrayNode(int size) {
+        if (usedArrayNodes < arrayNodes.size()) {
+            return arrayNodes.get(usedArrayNodes++);
+        }
+        if (arrayNodes.size() < maxPooled) {
+            ArenaElements elements = new ArenaElements(size);
+            ArrayNode arrayNode = new ArrayNode(jsonNodeFactory, elements);
+            arrayElements.add(elements);
+            arrayNodes.add(arrayNode);
+            usedArrayNodes++;
+            return arrayNode;
+        }
+        return TupleDsl.newArrayNode(jsonNodeFactory, size);
+    }
+
+    /**
+     * @return a tuple, from the pool unless the pool is exhausted
+     */
+    @SuppressWarnings("unchecked")
+    <T extends JsonNode> JsonDsl.Tuple<T> tuple(String name, T value) {
+        if (usedTuples < tuples.size()) {
+            return (JsonDsl.Tuple<T>) tuples.get(usedTuples++).set(name, value);
+        }
+        if (tuples.size() < maxPooled) {
+            ArenaTuple tuple = new ArenaTuple();
+            tuples.add(tuple);
+            usedTuples++;
+            return (JsonDsl.Tuple<T>) tuple.set(name, value);
+        }
+        return TupleDsl.TupleObject.of(name, value);
+    }
+
+    /**
+     * elements of a recycled array node, which remember how many elements their list held before it was cleared, as
+     * the capacity of the list is not visible
+     */
+    private static final class ArenaElements extends ArrayList<JsonNode> {
+
+        private static final long serialVersionUID = 1L;
+
+        private int retained;
+
+        ArenaElements(int capacity) {
+            super(capacity);
+            this.retained = capacity;
+        }
+
+        @Override
+        public void clear() {
+            retained = Math.max(retained, size());
+            super.clear();
+        }
+    }
+
+    /**
+     * tuple of which the name and value are replaced when it is handed out again
+     */
+    private static final class ArenaTuple implements JsonDsl.Tuple<JsonNode> {
+
+        private String name;
+        private JsonNode value;
+
+        ArenaTuple set(String name, JsonNode value) {
+            this.name = name;
+            this.value = value;
+            return this;
+        }
+
+        public String getLeft() {
+            return name;
+        }
+
+        public JsonNode getRight() {
+            return value;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public JsonNode getValue() {
+            return value;
+        }
+    }
+}
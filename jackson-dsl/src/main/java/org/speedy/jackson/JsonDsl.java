@@ -5,6 +5,8 @@ import com.fasterxml.jackson.databind.node.*;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
 
 /**
  * Json dsl to simplify the creation of sample object documents for testing
@@ -13,37 +15,144 @@ import java.math.BigInteger;
 public abstract class JsonDsl extends TupleDsl {
 
     /**
-     * create a object node and registers the given {@link JsonNodeFactory} in a {@link ThreadLocal} at the start and
-     * removes it at the end
+     * create a object node with the given {@link JsonNodeFactory} <br/>
+     * the factory is bound while the values of the tuples are read, so deferred values such as closures are created
+     * with it. Plain tuples are evaluated before this method is called, use
+     * {@link #withFactory(JsonNodeFactory, Callable)} or {@link #with(JsonNodeFactory)} to create those with the factory
      *
      * @param jsonNodeFactory the object node factory
      * @param tuples          the child tuples
      * @return the json document
      */
-    public static ObjectNode jsonDocument(JsonNodeFactory jsonNodeFactory, Tuple<?>... tuples) {
-        jsonNodeFactoryThreadLocal.set(jsonNodeFactory);
-        ObjectNode objectNode = new ObjectNode(jsonNodeFactoryThreadLocal.get());
-        for (Tuple<?> tuple : tuples) {
-            objectNode.set(tuple.getName(), tuple.getValue());
+    public static ObjectNode jsonDocument(final JsonNodeFactory jsonNodeFactory, final Tuple<?>... tuples) {
+        long start = JsonDslListeners.startBuild();
+        ObjectNode objectNode = null;
+        try {
+            objectNode = withFactory(jsonNodeFactory, new Callable<ObjectNode>() {
+
+                public ObjectNode call() {
+                    ObjectNode objectNode = newObjectNode(jsonNodeFactory, tuples.length);
+                    for (Tuple<?> tuple : tuples) {
+                        objectNode.set(tuple.getName(), tuple.getValue());
+                    }
+                    return objectNode;
+                }
+
+            });
+        } finally {
+            if (objectNode == null) {
+                JsonDslListeners.buildFailed(start);
+            }
         }
-        jsonNodeFactoryThreadLocal.remove();
-        return objectNode;
+        return JsonDslListeners.documentBuilt(objectNode, start);
+    }
+
+    /**
+     * call a callable with the given {@link JsonNodeFactory} bound to the current thread, all nodes created by the
+     * static methods during the call use this factory <br/>
+     * scopes can be nested, the previous factory is restored when the call returns
+     *
+     * @param jsonNodeFactory the json node factory
+     * @param callable        the callable which creates the document
+     * @param <T>             the type of the result
+     * @return the result of the callable
+     */
+    public static <T> T withFactory(JsonNodeFactory jsonNodeFactory, Callable<T> callable) {
+        try {
+            return JsonNodeFactoryScope.call(jsonNodeFactory, callable);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * register a listener of the document construction, see {@link JsonDslListener}
+     *
+     * @param listener the listener
+     */
+    public static void addListener(JsonDslListener listener) {
+        JsonDslListeners.add(listener);
+    }
+
+    /**
+     * unregister a listener of the document construction
+     *
+     * @param listener the listener
+     * @return true when the listener was registered
+     */
+    public static boolean removeListener(JsonDslListener listener) {
+        return JsonDslListeners.remove(listener);
+    }
+
+    /**
+     * create a json dsl context which creates all nodes with the given {@link JsonNodeFactory}, without a
+     * scope lookup per node
+     *
+     * @param jsonNodeFactory the json node factory
+     * @return the json dsl context
+     */
+    public static JsonDslContext with(JsonNodeFactory jsonNodeFactory) {
+        return new JsonDslContext(jsonNodeFactory);
     }
 
     /**
-     * create object node and registers {@link JsonNodeFactory} in a {@link ThreadLocal} at the start (if not present)
-     * and removes it at the end
+     * create a json dsl context which deduplicates the objects and arrays it creates: every finished object and array
+     * is replaced by the immutable canonical instance of the interner, so equal subtrees of a document, or of all
+     * documents created with the same interner, share one instance. The object of a json document stays mutable, its
+     * values are canonical
+     *
+     * @param jsonNodeFactory the json node factory
+     * @param interner        the table of canonical nodes
+     * @return the deduplicating json dsl context
+     */
+    public static JsonDslContext with(JsonNodeFactory jsonNodeFactory, JsonInterner interner) {
+        return new DeduplicatingJsonDslContext(jsonNodeFactory, interner);
+    }
+
+    /**
+     * create object node with the {@link JsonNodeFactory} of the current scope
      *
      * @param tuples the child tuples
      * @return the json document
      */
     public static ObjectNode jsonDocument(Tuple<?>... tuples) {
-        ObjectNode objectNode = new ObjectNode(jsonNodeFactoryThreadLocal.get());
-        for (Tuple<?> tuple : tuples) {
-            objectNode.set(tuple.getName(), tuple.getValue());
+        long start = JsonDslListeners.startBuild();
+        boolean built = false;
+        try {
+            ObjectNode objectNode = newObjectNode(JsonNodeFactoryScope.current(), tuples.length);
+            for (Tuple<?> tuple : tuples) {
+                objectNode.set(tuple.getName(), tuple.getValue());
+            }
+            built = true;
+            return JsonDslListeners.documentBuilt(objectNode, start);
+        } finally {
+            if (!built) {
+                JsonDslListeners.buildFailed(start);
+            }
         }
-        jsonNodeFactoryThreadLocal.remove();
-        return objectNode;
+    }
+
+    /**
+     * create object node with the tuples selected by a projection mask, the value of a tuple outside the mask is not
+     * read and the containers of the selected tuples are pruned, see {@link ProjectionMask}
+     *
+     * @param mask   the projection mask
+     * @param tuples the child tuples
+     * @return the json document
+     */
+    public static ObjectNode jsonDocument(ProjectionMask mask, Tuple<?>... tuples) {
+        long start = JsonDslListeners.startBuild();
+        ObjectNode objectNode = null;
+        try {
+            objectNode = mask.object(JsonNodeFactoryScope.current(), tuples);
+        } finally {
+            if (objectNode == null) {
+                JsonDslListeners.buildFailed(start);
+            }
+        }
+        return JsonDslListeners.documentBuilt(objectNode, start);
     }
 
     /**
@@ -53,13 +162,85 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the object node
      */
     public static ObjectNode object(Tuple<?>... tuples) {
-        ObjectNode objectNode = new ObjectNode(jsonNodeFactoryThreadLocal.get());
+        ObjectNode objectNode = newObjectNode(JsonNodeFactoryScope.current(), tuples.length);
         for (Tuple<?> tuple : tuples) {
             objectNode.set(tuple.getName(), tuple.getValue());
         }
         return objectNode;
     }
 
+    /**
+     * create a object node with the tuples selected by a projection mask, the value of a tuple outside the mask is not
+     * read and the containers of the selected tuples are pruned, see {@link ProjectionMask}
+     *
+     * @param mask   the projection mask
+     * @param tuples the child tuples
+     * @return the object node
+     */
+    public static ObjectNode object(ProjectionMask mask, Tuple<?>... tuples) {
+        return mask.object(JsonNodeFactoryScope.current(), tuples);
+    }
+
+    /**
+     * create a object node with one tuple
+     *
+     * @param t1 the first tuple
+     * @return the object node
+     */
+    public static ObjectNode object(Tuple<?> t1) {
+        ObjectNode objectNode = newObjectNode(JsonNodeFactoryScope.current(), 1);
+        objectNode.set(t1.getName(), t1.getValue());
+        return objectNode;
+    }
+
+    /**
+     * create a object node with 2 tuples
+     *
+     * @param t1 the first tuple
+     * @param t2 the second tuple
+     * @return the object node
+     */
+    public static ObjectNode object(Tuple<?> t1, Tuple<?> t2) {
+        ObjectNode objectNode = newObjectNode(JsonNodeFactoryScope.current(), 2);
+        objectNode.set(t1.getName(), t1.getValue());
+        objectNode.set(t2.getName(), t2.getValue());
+        return objectNode;
+    }
+
+    /**
+     * create a object node with 3 tuples
+     *
+     * @param t1 the first tuple
+     * @param t2 the second tuple
+     * @param t3 the third tuple
+     * @return the object node
+     */
+    public static ObjectNode object(Tuple<?> t1, Tuple<?> t2, Tuple<?> t3) {
+        ObjectNode objectNode = newObjectNode(JsonNodeFactoryScope.current(), 3);
+        objectNode.set(t1.getName(), t1.getValue());
+        objectNode.set(t2.getName(), t2.getValue());
+        objectNode.set(t3.getName(), t3.getValue());
+        return objectNode;
+    }
+
+    /**
+     * create a object node with 4 tuples
+     *
+     * @param t1 the first tuple
+     * @param t2 the second tuple
+     * @param t3 the third tuple
+     * @param t4 the fourth tuple
+     * @return the object node
+     */
+    public static ObjectNode object(Tuple<?> t1, Tuple<?> t2, Tuple<?> t3, Tuple<?> t4) {
+        ObjectNode objectNode = newObjectNode(JsonNodeFactoryScope.current(), 4);
+        objectNode.set(t1.getName(), t1.getValue());
+        objectNode.set(t2.getName(), t2.getValue());
+        objectNode.set(t3.getName(), t3.getValue());
+        objectNode.set(t4.getName(), t4.getValue());
+        return objectNode;
+    }
+
     /**
      * create a object node with a tuple
      *
@@ -68,7 +249,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the object node
      */
     public static ObjectNode object(String name, String value) {
-        ObjectNode objectNode = new ObjectNode(jsonNodeFactoryThreadLocal.get());
+        ObjectNode objectNode = newObjectNode(JsonNodeFactoryScope.current(), 1);
         objectNode.put(name, value);
         return objectNode;
     }
@@ -81,7 +262,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the object node
      */
     public static ObjectNode object(String name, JsonNode value) {
-        ObjectNode objectNode = new ObjectNode(jsonNodeFactoryThreadLocal.get());
+        ObjectNode objectNode = newObjectNode(JsonNodeFactoryScope.current(), 1);
         objectNode.set(name, value);
         return objectNode;
     }
@@ -93,7 +274,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the array node
      */
     public static ArrayNode array(JsonNode... jsonNodes) {
-        ArrayNode arrayNode = new ArrayNode(jsonNodeFactoryThreadLocal.get());
+        ArrayNode arrayNode = newArrayNode(JsonNodeFactoryScope.current(), jsonNodes.length);
         for (JsonNode jsonNode : jsonNodes) {
             arrayNode.add(jsonNode);
         }
@@ -107,7 +288,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the array node
      */
     public static ArrayNode array(String... stringObjects) {
-        ArrayNode arrayNode = new ArrayNode(jsonNodeFactoryThreadLocal.get());
+        ArrayNode arrayNode = newArrayNode(JsonNodeFactoryScope.current(), stringObjects.length);
         for (String stringObject : stringObjects) {
             arrayNode.add(stringObject);
         }
@@ -121,7 +302,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the array node
      */
     public static ArrayNode array(BigDecimal... bigDecimalObjects) {
-        ArrayNode arrayNode = new ArrayNode(jsonNodeFactoryThreadLocal.get());
+        ArrayNode arrayNode = newArrayNode(JsonNodeFactoryScope.current(), bigDecimalObjects.length);
         for (BigDecimal bigDecimalObject : bigDecimalObjects) {
             arrayNode.add(bigDecimalObject);
         }
@@ -129,45 +310,129 @@ public abstract class JsonDsl extends TupleDsl {
     }
 
     /**
-     * create a array node with float primitives
+     * create a array node with float primitives, the primitive array is kept as is
      *
      * @param floatPrimitives an array of float primitives
      * @return the array node
      */
     public static ArrayNode array(float... floatPrimitives) {
-        ArrayNode arrayNode = new ArrayNode(jsonNodeFactoryThreadLocal.get());
-        for (float floatPrimitive : floatPrimitives) {
-            arrayNode.add(floatPrimitive);
-        }
-        return arrayNode;
+        return PrimitiveArrayNode.of(JsonNodeFactoryScope.current(), floatPrimitives);
     }
 
     /**
-     * create a array node with double primitives
+     * create a array node with double primitives, the primitive array is kept as is
      *
      * @param doublePrimitives an array of double primitives
      * @return the array node
      */
     public static ArrayNode array(double... doublePrimitives) {
-        ArrayNode arrayNode = new ArrayNode(jsonNodeFactoryThreadLocal.get());
-        for (double doublePrimitive : doublePrimitives) {
-            arrayNode.add(doublePrimitive);
-        }
-        return arrayNode;
+        return PrimitiveArrayNode.of(JsonNodeFactoryScope.current(), doublePrimitives);
     }
 
     /**
-     * create a array node with int primitives
+     * create a array node with int primitives, the primitive array is kept as is
      *
      * @param intPrimitives an array of int primitives
      * @return the array node
      */
     public static ArrayNode array(int... intPrimitives) {
-        ArrayNode arrayNode = new ArrayNode(jsonNodeFactoryThreadLocal.get());
-        for (int intPrimitive : intPrimitives) {
-            arrayNode.add(intPrimitive);
+        return PrimitiveArrayNode.of(JsonNodeFactoryScope.current(), intPrimitives);
+    }
+
+    /**
+     * mark a object node as constant, its json is encoded once and written as raw bytes afterwards <br/>
+     * the returned object node is an immutable copy, reads through the {@link JsonNode} api work as before
+     *
+     * @param objectNode the object node
+     * @return the constant object node
+     */
+    public static ObjectNode constant(ObjectNode objectNode) {
+        return new ConstantObjectNode(JsonNodeFactoryScope.current(), objectNode);
+    }
+
+    /**
+     * mark a array node as constant, its json is encoded once and written as raw bytes afterwards <br/>
+     * the returned array node is an immutable copy, reads through the {@link JsonNode} api work as before
+     *
+     * @param arrayNode the array node
+     * @return the constant array node
+     */
+    public static ArrayNode constant(ArrayNode arrayNode) {
+        return new ConstantArrayNode(JsonNodeFactoryScope.current(), arrayNode);
+    }
+
+    /**
+     * freeze a object node into an immutable document which can be shared between threads, updates of the document
+     * copy only the containers on the path to the changed node
+     *
+     * @param objectNode the object node, it is copied unless it is frozen already
+     * @return the frozen document
+     */
+    public static FrozenDocument freeze(ObjectNode objectNode) {
+        return FrozenDocument.of(JsonNodeFactoryScope.current(), objectNode);
+    }
+
+    /**
+     * copy a object node into containers which cache their serialized bytes, a change of a field or an element drops
+     * the bytes of the changed container only, so the serialization of a large document after a small change encodes
+     * the changed container and writes the cached bytes of the unchanged containers <br/>
+     * the bytes are reused for compact utf-8 output, pretty printed or escaped output is serialized as usual. Create
+     * the containers added to the copy with putObject, putArray, objectNode() or arrayNode() of the copy, a plain
+     * container is rejected with an {@link IllegalArgumentException}
+     *
+     * @param objectNode the object node, it is not changed
+     * @return the caching copy of the object node
+     */
+    public static ObjectNode incremental(ObjectNode objectNode) {
+        return (ObjectNode) IncrementalNodes.copy(objectNode);
+    }
+
+    /**
+     * create a object node of which the fields are computed by a callable when the object node is first read,
+     * changed or serialized, the callable is called at most once with the current json node factory bound
+     *
+     * @param callable the callable which creates the object node
+     * @return the lazy object node
+     */
+    public static ObjectNode lazyObject(Callable<? extends ObjectNode> callable) {
+        return LazyNodes.object(JsonNodeFactoryScope.current(), callable);
+    }
+
+    /**
+     * create a array node of which the elements are computed by a callable when the array node is first read,
+     * changed or serialized, the callable is called at most once with the current json node factory bound
+     *
+     * @param callable the callable which creates the array node
+     * @return the lazy array node
+     */
+    public static ArrayNode lazyArray(Callable<? extends ArrayNode> callable) {
+        return LazyNodes.array(JsonNodeFactoryScope.current(), callable);
+    }
+
+    /**
+     * encode a json document into a new direct byte buffer, the root object node is not created, see
+     * {@link BinaryDocument}
+     *
+     * @param tuples the child tuples
+     * @return the binary document
+     */
+    public static BinaryDocument binaryDocument(Tuple<?>... tuples) {
+        return BinaryDocument.encode(JsonNodeFactoryScope.current(), tuples, null);
+    }
+
+    /**
+     * encode a json document at the position of a byte buffer, for example a memory mapped file, the position is
+     * moved past the document, see {@link BinaryDocument}
+     *
+     * @param target the byte buffer
+     * @param tuples the child tuples
+     * @return the binary document
+     */
+    public static BinaryDocument binaryDocument(ByteBuffer target, Tuple<?>... tuples) {
+        if (target == null) {
+            throw new IllegalArgumentException("The target buffer of a binary document can not be null");
         }
-        return arrayNode;
+        return BinaryDocument.encode(JsonNodeFactoryScope.current(), tuples, target);
     }
 
     /**
@@ -176,7 +441,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the null node
      */
     public static NullNode nil() {
-        return jsonNodeFactoryThreadLocal.get().nullNode();
+        return JsonNodeFactoryScope.current().nullNode();
     }
 
     /**
@@ -186,7 +451,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the boolean node
      */
     public static BooleanNode bool(boolean value) {
-        return jsonNodeFactoryThreadLocal.get().booleanNode(value);
+        return JsonNodeFactoryScope.current().booleanNode(value);
     }
 
     /**
@@ -196,7 +461,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the binary node
      */
     public static BinaryNode binary(byte[] value) {
-        return jsonNodeFactoryThreadLocal.get().binaryNode(value);
+        return JsonNodeFactoryScope.current().binaryNode(value);
     }
 
     /**
@@ -206,7 +471,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the text node
      */
     public static TextNode text(String value) {
-        return jsonNodeFactoryThreadLocal.get().textNode(value);
+        return JsonNodeFactoryScope.current().textNode(value);
     }
 
     /**
@@ -216,7 +481,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the numeric node
      */
     public static NumericNode number(byte value) {
-        return jsonNodeFactoryThreadLocal.get().numberNode(value);
+        return JsonNodeFactoryScope.current().numberNode(value);
     }
 
     /**
@@ -226,7 +491,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the numeric node
      */
     public static NumericNode number(short value) {
-        return jsonNodeFactoryThreadLocal.get().numberNode(value);
+        return JsonNodeFactoryScope.current().numberNode(value);
     }
 
     /**
@@ -236,7 +501,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the numeric node
      */
     public static NumericNode number(int value) {
-        return jsonNodeFactoryThreadLocal.get().numberNode(value);
+        return JsonNodeFactoryScope.current().numberNode(value);
     }
 
     /**
@@ -246,7 +511,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the numeric node
      */
     public static NumericNode number(long value) {
-        return jsonNodeFactoryThreadLocal.get().numberNode(value);
+        return JsonNodeFactoryScope.current().numberNode(value);
     }
 
     /**
@@ -256,7 +521,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the numeric node
      */
     public static NumericNode number(float value) {
-        return jsonNodeFactoryThreadLocal.get().numberNode(value);
+        return JsonNodeFactoryScope.current().numberNode(value);
     }
 
     /**
@@ -266,7 +531,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the numeric node
      */
     public static NumericNode number(double value) {
-        return jsonNodeFactoryThreadLocal.get().numberNode(value);
+        return JsonNodeFactoryScope.current().numberNode(value);
     }
 
     /**
@@ -276,7 +541,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the numeric node
      */
     public static ValueNode number(BigDecimal value) {
-        return jsonNodeFactoryThreadLocal.get().numberNode(value);
+        return JsonNodeFactoryScope.current().numberNode(value);
     }
 
     /**
@@ -286,7 +551,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the numeric node
      */
     public static ValueNode number(BigInteger value) {
-        return jsonNodeFactoryThreadLocal.get().numberNode(value);
+        return JsonNodeFactoryScope.current().numberNode(value);
     }
 
     /**
@@ -296,7 +561,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the value node
      */
     public static ValueNode number(Byte value) {
-        return jsonNodeFactoryThreadLocal.get().numberNode(value);
+        return JsonNodeFactoryScope.current().numberNode(value);
     }
 
     /**
@@ -306,7 +571,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the value node
      */
     public static ValueNode number(Short value) {
-        return jsonNodeFactoryThreadLocal.get().numberNode(value);
+        return JsonNodeFactoryScope.current().numberNode(value);
     }
 
     /**
@@ -316,7 +581,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the value node
      */
     public static ValueNode number(Integer value) {
-        return jsonNodeFactoryThreadLocal.get().numberNode(value);
+        return JsonNodeFactoryScope.current().numberNode(value);
     }
 
     /**
@@ -326,7 +591,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the value node
      */
     public static ValueNode number(Long value) {
-        return jsonNodeFactoryThreadLocal.get().numberNode(value);
+        return JsonNodeFactoryScope.current().numberNode(value);
     }
 
     /**
@@ -336,7 +601,7 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the value node
      */
     public static ValueNode number(Float value) {
-        return jsonNodeFactoryThreadLocal.get().numberNode(value);
+        return JsonNodeFactoryScope.current().numberNode(value);
     }
 
     /**
@@ -346,35 +611,27 @@ public abstract class JsonDsl extends TupleDsl {
      * @return the value node
      */
     public static ValueNode number(Double value) {
-        return jsonNodeFactoryThreadLocal.get().numberNode(value);
+        return JsonNodeFactoryScope.current().numberNode(value);
     }
 
     /**
-     * create a array node with long primitives
+     * create a array node with long primitives, the primitive array is kept as is
      *
      * @param longPrimitives an array of long primitives
      * @return the array node
      */
     public static ArrayNode array(long... longPrimitives) {
-        ArrayNode arrayNode = new ArrayNode(jsonNodeFactoryThreadLocal.get());
-        for (long longPrimitive : longPrimitives) {
-            arrayNode.add(longPrimitive);
-        }
-        return arrayNode;
+        return PrimitiveArrayNode.of(JsonNodeFactoryScope.current(), longPrimitives);
     }
 
     /**
-     * create a array node with boolean primitives
+     * create a array node with boolean primitives, the primitive array is kept as is
      *
      * @param booleanPrimitives an array of boolean primitives
      * @return the array node
      */
     public static ArrayNode array(boolean... booleanPrimitives) {
-        ArrayNode arrayNode = new ArrayNode(jsonNodeFactoryThreadLocal.get());
-        for (boolean booleanPrimitive : booleanPrimitives) {
-            arrayNode.add(booleanPrimitive);
-        }
-        return arrayNode;
+        return PrimitiveArrayNode.of(JsonNodeFactoryScope.current(), booleanPrimitives);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package org.speedy.jackson;
+
+/**
+ * Listener which is also told when an observed call of the dsl starts, for example to begin a timed event <br/>
+ * The start runs on the thread of the call, before the dsl takes the start time. A call which returns is reported to
+ * the callback of its kind on the same thread, a call which fails to {@link #callFailed(Call)}, so every started call
+ * ends exactly once. Calls nest: the build of a document resolves closure names, and a serialization may build the
+ * documents of lazy containers
+ */
+public interface JsonDslCallListener extends JsonDslListener {
+
+    /**
+     * the kind of an observed call
+     */
+    enum Call {
+        /**
+         * a jsonDocument call, reported to {@link JsonDslListener#documentBuilt}
+         */
+        BUILD,
+        /**
+         * a closure name lookup, reported to {@link JsonDslListener#closureNameResolved}
+         */
+        CLOSURE_NAME,
+        /**
+         * the serialization of a document, reported to {@link JsonDslListener#documentSerialized}
+         */
+        SERIALIZATION
+    }
+
+    /**
+     * called when an observed call starts
+     *
+     * @param call the kind of the call
+     */
+    void callStarted(Call call);
+
+    /**
+     * called when an observed call fails, instead of the callback of its kind
+     *
+     * @param call the kind of the call
+     */
+    void callFailed(Call call);
+}
@@ -0,0 +1,756 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+
+import static org.speedy.jackson.TupleDsl.newArrayNode;
+import static org.speedy.jackson.TupleDsl.newObjectNode;
+
+/**
+ * Json dsl bound to one {@link JsonNodeFactory} <br/>
+ * Has the same methods as {@link JsonDsl} as instance methods, every node is created with the factory of the context
+ * instead of the factory of the current scope. A context is created with {@link JsonDsl#with(JsonNodeFactory)}
+ * and can be shared between threads when its factory can
+ */
+public class JsonDslContext {
+
+    private final JsonNodeFactory jsonNodeFactory;
+
+    JsonDslContext(JsonNodeFactory jsonNodeFactory) {
+        if (jsonNodeFactory == null) {
+            throw new IllegalArgumentException("The json node factory can not be null");
+        }
+        this.jsonNodeFactory = jsonNodeFactory;
+    }
+
+    /**
+     * @return the json node factory of this context
+     */
+    public JsonNodeFactory getJsonNodeFactory() {
+        return jsonNodeFactory;
+    }
+
+    /**
+     * create a json document
+     *
+     * @param tuples the child tuples
+     * @return the json document
+     */
+    public ObjectNode jsonDocument(JsonDsl.Tuple<?>... tuples) {
+        long start = JsonDslListeners.startBuild();
+        ObjectNode objectNode = null;
+        try {
+            objectNode = object(tuples);
+        } finally {
+            if (objectNode == null) {
+                JsonDslListeners.buildFailed(start);
+            }
+        }
+        return JsonDslListeners.documentBuilt(objectNode, start);
+    }
+
+    /**
+     * create a object node
+     *
+     * @param tuples the child tuples
+     * @return the object node
+     */
+    public ObjectNode object(JsonDsl.Tuple<?>... tuples) {
+        ObjectNode objectNode = newObjectNode(jsonNodeFactory, tuples.length);
+        for (JsonDsl.Tuple<?> tuple : tuples) {
+            objectNode.set(tuple.getName(), tuple.getValue());
+        }
+        return objectNode;
+    }
+
+    /**
+     * create a json document with the tuples selected by a projection mask, see {@link ProjectionMask}
+     *
+     * @param mask   the projection mask
+     * @param tuples the child tuples
+     * @return the json document
+     */
+    public ObjectNode jsonDocument(ProjectionMask mask, JsonDsl.Tuple<?>... tuples) {
+        long start = JsonDslListeners.startBuild();
+        ObjectNode objectNode = null;
+        try {
+            objectNode = object(mask, tuples);
+        } finally {
+            if (objectNode == null) {
+                JsonDslListeners.buildFailed(start);
+            }
+        }
+        return JsonDslListeners.documentBuilt(objectNode, start);
+    }
+
+    /**
+     * create a object node with the tuples selected by a projection mask, see {@link ProjectionMask}
+     *
+     * @param mask   the projection mask
+     * @param tuples the child tuples
+     * @return the object node
+     */
+    public ObjectNode object(ProjectionMask mask, JsonDsl.Tuple<?>... tuples) {
+        return mask.object(jsonNodeFactory, tuples);
+    }
+
+    /**
+     * create a object node with one tuple
+     *
+     * @param t1 the first tuple
+     * @return the object node
+     */
+    public ObjectNode object(JsonDsl.Tuple<?> t1) {
+        ObjectNode objectNode = newObjectNode(jsonNodeFactory, 1);
+        objectNode.set(t1.getName(), t1.getValue());
+        return objectNode;
+    }
+
+    /**
+     * create a object node with 2 tuples
+     *
+     * @param t1 the first tuple
+     * @param t2 the second tuple
+     * @return the object node
+     */
+    public ObjectNode object(JsonDsl.Tuple<?> t1, JsonDsl.Tuple<?> t2) {
+        ObjectNode objectNode = newObjectNode(jsonNodeFactory, 2);
+        objectNode.set(t1.getName(), t1.getValue());
+        objectNode.set(t2.getName(), t2.getValue());
+        return objectNode;
+    }
+
+    /**
+     * create a object node with 3 tuples
+     *
+     * @param t1 the first tuple
+     * @param t2 the second tuple
+     * @param t3 the third tuple
+     * @return the object node
+     */
+    public ObjectNode object(JsonDsl.Tuple<?> t1, JsonDsl.Tuple<?> t2, JsonDsl.Tuple<?> t3) {
+        ObjectNode objectNode = newObjectNode(jsonNodeFactory, 3);
+        objectNode.set(t1.getName(), t1.getValue());
+        objectNode.set(t2.getName(), t2.getValue());
+        objectNode.set(t3.getName(), t3.getValue());
+        return objectNode;
+    }
+
+    /**
+     * create a object node with 4 tuples
+     *
+     * @param t1 the first tuple
+     * @param t2 the second tuple
+     * @param t3 the third tuple
+     * @param t4 the fourth tuple
+     * @return the object node
+     */
+    public ObjectNode object(JsonDsl.Tuple<?> t1, JsonDsl.Tuple<?> t2, JsonDsl.Tuple<?> t3, JsonDsl.Tuple<?> t4) {
+        ObjectNode objectNode = newObjectNode(jsonNodeFactory, 4);
+        objectNode.set(t1.getName(), t1.getValue());
+        objectNode.set(t2.getName(), t2.getValue());
+        objectNode.set(t3.getName(), t3.getValue());
+        objectNode.set(t4.getName(), t4.getValue());
+        return objectNode;
+    }
+
+    /**
+     * create a object node with a tuple
+     *
+     * @param name  name of the tuple
+     * @param value value of the tuple
+     * @return the object node
+     */
+    public ObjectNode object(String name, String value) {
+        ObjectNode objectNode = newObjectNode(jsonNodeFactory, 1);
+        objectNode.set(name, jsonNodeFactory.textNode(value));
+        return objectNode;
+    }
+
+    /**
+     * create a object node with a tuple
+     *
+     * @param name  name of the tuple
+     * @param value value node of the tuple
+     * @return the object node
+     */
+    public ObjectNode object(String name, JsonNode value) {
+        ObjectNode objectNode = newObjectNode(jsonNodeFactory, 1);
+        objectNode.set(name, value);
+        return objectNode;
+    }
+
+    /**
+     * create a array node with json nodes
+     *
+     * @param jsonNodes an array of json nodes
+     * @return the array node
+     */
+    public ArrayNode array(JsonNode... jsonNodes) {
+        ArrayNode arrayNode = newArrayNode(jsonNodeFactory, jsonNodes.length);
+        for (JsonNode jsonNode : jsonNodes) {
+            arrayNode.add(jsonNode);
+        }
+        return arrayNode;
+    }
+
+    /**
+     * create a array node with strings
+     *
+     * @param stringObjects an array of strings
+     * @return the array node
+     */
+    public ArrayNode array(String... stringObjects) {
+        ArrayNode arrayNode = newArrayNode(jsonNodeFactory, stringObjects.length);
+        for (String stringObject : stringObjects) {
+            arrayNode.add(stringObject);
+        }
+        return arrayNode;
+    }
+
+    /**
+     * create a array node with BigDecimals
+     *
+     * @param bigDecimalObjects an array of BigDecimals
+     * @return the array node
+     */
+    public ArrayNode array(BigDecimal... bigDecimalObjects) {
+        ArrayNode arrayNode = newArrayNode(jsonNodeFactory, bigDecimalObjects.length);
+        for (BigDecimal bigDecimalObject : bigDecimalObjects) {
+            arrayNode.add(bigDecimalObject);
+        }
+        return arrayNode;
+    }
+
+    /**
+     * create a array node with float primitives, the primitive array is kept as is
+     *
+     * @param floatPrimitives an array of float primitives
+     * @return the array node
+     */
+    public ArrayNode array(float... floatPrimitives) {
+        return PrimitiveArrayNode.of(jsonNodeFactory, floatPrimitives);
+    }
+
+    /**
+     * create a array node with double primitives, the primitive array is kept as is
+     *
+     * @param doublePrimitives an array of double primitives
+     * @return the array node
+     */
+    public ArrayNode array(double... doublePrimitives) {
+        return PrimitiveArrayNode.of(jsonNodeFactory, doublePrimitives);
+    }
+
+    /**
+     * create a array node with int primitives, the primitive array is kept as is
+     *
+     * @param intPrimitives an array of int primitives
+     * @return the array node
+     */
+    public ArrayNode array(int... intPrimitives) {
+        return PrimitiveArrayNode.of(jsonNodeFactory, intPrimitives);
+    }
+
+    /**
+     * create a array node with long primitives, the primitive array is kept as is
+     *
+     * @param longPrimitives an array of long primitives
+     * @return the array node
+     */
+    public ArrayNode array(long... longPrimitives) {
+        return PrimitiveArrayNode.of(jsonNodeFactory, longPrimitives);
+    }
+
+    /**
+     * create a array node with boolean primitives, the primitive array is kept as is
+     *
+     * @param booleanPrimitives an array of boolean primitives
+     * @return the array node
+     */
+    public ArrayNode array(boolean... booleanPrimitives) {
+        return PrimitiveArrayNode.of(jsonNodeFactory, booleanPrimitives);
+    }
+
+    /**
+     * mark a object node as constant, its json is encoded once and written as raw bytes afterwards
+     *
+     * @param objectNode the object node
+     * @return the constant object node
+     */
+    public ObjectNode constant(ObjectNode objectNode) {
+        return new ConstantObjectNode(jsonNodeFactory, objectNode);
+    }
+
+    /**
+     * mark a array node as constant, its json is encoded once and written as raw bytes afterwards
+     *
+     * @param arrayNode the array node
+     * @return the constant array node
+     */
+    public ArrayNode constant(ArrayNode arrayNode) {
+        return new ConstantArrayNode(jsonNodeFactory, arrayNode);
+    }
+
+    /**
+     * freeze a object node into an immutable document which can be shared between threads, updates of the document
+     * copy only the containers on the path to the changed node
+     *
+     * @param objectNode the object node, it is copied unless it is frozen already
+     * @return the frozen document
+     */
+    public FrozenDocument freeze(ObjectNode objectNode) {
+        return FrozenDocument.of(jsonNodeFactory, objectNode);
+    }
+
+    /**
+     * copy a object node into containers which cache their serialized bytes, see {@link JsonDsl#incremental(ObjectNode)}
+     *
+     * @param objectNode the object node, it is not changed
+     * @return the caching copy of the object node
+     */
+    public ObjectNode incremental(ObjectNode objectNode) {
+        return JsonDsl.incremental(objectNode);
+    }
+
+    /**
+     * create a object node of which the fields are computed by a callable when the object node is first read,
+     * changed or serialized, the callable is called at most once with the factory of this context bound
+     *
+     * @param callable the callable which creates the object node
+     * @return the lazy object node
+     */
+    public ObjectNode lazyObject(Callable<? extends ObjectNode> callable) {
+        return LazyNodes.object(jsonNodeFactory, callable);
+    }
+
+    /**
+     * create a array node of which the elements are computed by a callable when the array node is first read,
+     * changed or serialized, the callable is called at most once with the factory of this context bound
+     *
+     * @param callable the callable which creates the array node
+     * @return the lazy array node
+     */
+    public ArrayNode lazyArray(Callable<? extends ArrayNode> callable) {
+        return LazyNodes.array(jsonNodeFactory, callable);
+    }
+
+    /**
+     * encode a json document into a new direct byte buffer, the root object node is not created, see
+     * {@link BinaryDocument}
+     *
+     * @param tuples the child tuples
+     * @return the binary document
+     */
+    public BinaryDocument binaryDocument(JsonDsl.Tuple<?>... tuples) {
+        return BinaryDocument.encode(jsonNodeFactory, tuples, null);
+    }
+
+    /**
+     * encode a json document at the position of a byte buffer, for example a memory mapped file, the position is
+     * moved past the document, see {@link BinaryDocument}
+     *
+     * @param target the byte buffer
+     * @param tuples the child tuples
+     * @return the binary document
+     */
+    public BinaryDocument binaryDocument(ByteBuffer target, JsonDsl.Tuple<?>... tuples) {
+        if (target == null) {
+            throw new IllegalArgumentException("The target buffer of a binary document can not be null");
+        }
+        return BinaryDocument.encode(jsonNodeFactory, tuples, target);
+    }
+
+    /**
+     * create a null node
+     *
+     * @return the null node
+     */
+    public NullNode nil() {
+        return jsonNodeFactory.nullNode();
+    }
+
+    /**
+     * creates a boolean node
+     *
+     * @param value the boolean value
+     * @return the boolean node
+     */
+    public BooleanNode bool(boolean value) {
+        return jsonNodeFactory.booleanNode(value);
+    }
+
+    /**
+     * creates a binary node
+     *
+     * @param value the byte array
+     * @return the binary node
+     */
+    public BinaryNode binary(byte[] value) {
+        return jsonNodeFactory.binaryNode(value);
+    }
+
+    /**
+     * creates a text node
+     *
+     * @param value a value string
+     * @return the text node
+     */
+    public TextNode text(String value) {
+        return jsonNodeFactory.textNode(value);
+    }
+
+    /**
+     * creates a numeric node
+     *
+     * @param value a byte value
+     * @return the numeric node
+     */
+    public NumericNode number(byte value) {
+        return jsonNodeFactory.numberNode(value);
+    }
+
+    /**
+     * creates a numeric node
+     *
+     * @param value a short value
+     * @return the numeric node
+     */
+    public NumericNode number(short value) {
+        return jsonNodeFactory.numberNode(value);
+    }
+
+    /**
+     * creates a numeric node
+     *
+     * @param value a int value
+     * @return the numeric node
+     */
+    public NumericNode number(int value) {
+        return jsonNodeFactory.numberNode(value);
+    }
+
+    /**
+     * creates a numeric node
+     *
+     * @param value a long value
+     * @return the numeric node
+     */
+    public NumericNode number(long value) {
+        return jsonNodeFactory.numberNode(value);
+    }
+
+    /**
+     * creates a numeric node
+     *
+     * @param value a float value
+     * @return the numeric node
+     */
+    public NumericNode number(float value) {
+        return jsonNodeFactory.numberNode(value);
+    }
+
+    /**
+     * creates a numeric node
+     *
+     * @param value a double value
+     * @return the numeric node
+     */
+    public NumericNode number(double value) {
+        return jsonNodeFactory.numberNode(value);
+    }
+
+    /**
+     * creates a numeric node
+     *
+     * @param value a BigDecimal value
+     * @return the numeric node
+     */
+    public ValueNode number(BigDecimal value) {
+        return jsonNodeFactory.numberNode(value);
+    }
+
+    /**
+     * creates a numeric node
+     *
+     * @param value a BigInteger value
+     * @return the numeric node
+     */
+    public ValueNode number(BigInteger value) {
+        return jsonNodeFactory.numberNode(value);
+    }
+
+    /**
+     * creates a value node
+     *
+     * @param value a Byte value
+     * @return the value node
+     */
+    public ValueNode number(Byte value) {
+        return jsonNodeFactory.numberNode(value);
+    }
+
+    /**
+     * creates a value node
+     *
+     * @param value a Short value
+     * @return the value node
+     */
+    public ValueNode number(Short value) {
+        return jsonNodeFactory.numberNode(value);
+    }
+
+    /**
+     * creates a value node
+     *
+     * @param value a Integer value
+     * @return the value node
+     */
+    public ValueNode number(Integer value) {
+        return jsonNodeFactory.numberNode(value);
+    }
+
+    /**
+     * creates a value node
+     *
+     * @param value a Long value
+     * @return the value node
+     */
+    public ValueNode number(Long value) {
+        return jsonNodeFactory.numberNode(value);
+    }
+
+    /**
+     * creates a value node
+     *
+     * @param value a Float value
+     * @return the value node
+     */
+    public ValueNode number(Float value) {
+        return jsonNodeFactory.numberNode(value);
+    }
+
+    /**
+     * creates a value node
+     *
+     * @param value a Double value
+     * @return the value node
+     */
+    public ValueNode number(Double value) {
+        return jsonNodeFactory.numberNode(value);
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a byte value
+     * @return the tuple
+     */
+    public JsonDsl.Tuple<NumericNode> tuple(String name, byte value) {
+        return tuple(name, jsonNodeFactory.numberNode(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a byte array value
+     * @return the tuple
+     */
+    public JsonDsl.Tuple<BinaryNode> tuple(String name, byte[] value) {
+        return tuple(name, jsonNodeFactory.binaryNode(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a int value
+     * @return the tuple
+     */
+    public JsonDsl.Tuple<NumericNode> tuple(String name, int value) {
+        return tuple(name, jsonNodeFactory.numberNode(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a short value
+     * @return the tuple
+     */
+    public JsonDsl.Tuple<NumericNode> tuple(String name, short value) {
+        return tuple(name, jsonNodeFactory.numberNode(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a long value
+     * @return the tuple
+     */
+    public JsonDsl.Tuple<NumericNode> tuple(String name, long value) {
+        return tuple(name, jsonNodeFactory.numberNode(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a float value
+     * @return the tuple
+     */
+    public JsonDsl.Tuple<NumericNode> tuple(String name, float value) {
+        return tuple(name, jsonNodeFactory.numberNode(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a double value
+     * @return the tuple
+     */
+    public JsonDsl.Tuple<NumericNode> tuple(String name, double value) {
+        return tuple(name, jsonNodeFactory.numberNode(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a BigInteger value
+     * @return the tuple
+     */
+    public JsonDsl.Tuple<ValueNode> tuple(String name, BigInteger value) {
+        return this.<ValueNode>tuple(name, jsonNodeFactory.numberNode(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a BigDecimal value
+     * @return the tuple
+     */
+    public JsonDsl.Tuple<ValueNode> tuple(String name, BigDecimal value) {
+        return this.<ValueNode>tuple(name, jsonNodeFactory.numberNode(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a boolean value
+     * @return the tuple
+     */
+    public JsonDsl.Tuple<BooleanNode> tuple(String name, boolean value) {
+        return tuple(name, jsonNodeFactory.booleanNode(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a Byte value
+     * @return the tuple
+     */
+    public JsonDsl.Tuple<ValueNode> tuple(String name, Byte value) {
+        return tuple(name, jsonNodeFactory.numberNode(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a Boolean value
+     * @return the tuple
+     */
+    public JsonDsl.Tuple<BooleanNode> tuple(String name, Boolean value) {
+        return tuple(name, jsonNodeFactory.booleanNode(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a Integer value
+     * @return the tuple
+     */
+    public JsonDsl.Tuple<ValueNode> tuple(String name, Integer value) {
+        return tuple(name, jsonNodeFactory.numberNode(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a Short value
+     * @return the tuple
+     */
+    public JsonDsl.Tuple<ValueNode> tuple(String name, Short value) {
+        return tuple(name, jsonNodeFactory.numberNode(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a Long value
+     * @return the tuple
+     */
+    public JsonDsl.Tuple<ValueNode> tuple(String name, Long value) {
+        return tuple(name, jsonNodeFactory.numberNode(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a Float value
+     * @return the tuple
+     */
+    public JsonDsl.Tuple<ValueNode> tuple(String name, Float value) {
+        return tuple(name, jsonNodeFactory.numberNode(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a Double value
+     * @return the tuple
+     */
+    public JsonDsl.Tuple<ValueNode> tuple(String name, Double value) {
+        return tuple(name, jsonNodeFactory.numberNode(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a string value
+     * @return the tuple
+     */
+    public JsonDsl.Tuple<TextNode> tuple(String name, String value) {
+        return tuple(name, jsonNodeFactory.textNode(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name     the name of the tuple
+     * @param jsonNode a json node value
+     * @return the tuple
+     */
+    public <T extends JsonNode> JsonDsl.Tuple<T> tuple(String name, T jsonNode) {
+        return TupleDsl.TupleObject.of(name, jsonNode);
+    }
+}
@@ -0,0 +1,56 @@
+package org.speedy.jackson;
+
+/**
+ * Switch of the Java Flight Recorder events of the dsl <br/>
+ * While enabled, a {@link JsonDslListener} emits a jdk.jfr event per jsonDocument call, per closure name lookup and
+ * per serialization, so the dsl activity shows on the same timeline as the garbage collection and the allocations of
+ * a recording. The events are only available on Java 11 and later, from the versioned classes of the multi-release
+ * jar. Nothing is emitted or timed while the events are disabled
+ */
+public final class JsonDslFlightRecorder {
+
+    private static JsonDslListener listener;
+
+    private JsonDslFlightRecorder() {
+    }
+
+    /**
+     * @return true when the running java version supports the flight recorder events
+     */
+    public static boolean isAvailable() {
+        return FlightRecorderSupport.isAvailable();
+    }
+
+    /**
+     * enable the flight recorder events, the events can also be disabled per type in the recording settings
+     *
+     * @return true when the events are enabled, false when they are not available
+     */
+    public static synchronized boolean enable() {
+        if (listener == null) {
+            listener = FlightRecorderSupport.newListener();
+            if (listener == null) {
+                return false;
+            }
+            JsonDsl.addListener(listener);
+        }
+        return true;
+    }
+
+    /**
+     * disable the flight recorder events
+     */
+    public static synchronized void disable() {
+        if (listener != null) {
+            JsonDsl.removeListener(listener);
+            listener = null;
+        }
+    }
+
+    /**
+     * @return true when the flight recorder events are enabled
+     */
+    public static synchronized boolean isEnabled() {
+        return listener != null;
+    }
+}
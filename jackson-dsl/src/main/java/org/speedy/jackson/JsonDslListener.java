@@ -0,0 +1,40 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Listener of the document construction and serialization of the dsl, registered with {@link JsonDsl#addListener(JsonDslListener)} <br/>
+ * The callbacks run on the thread which builds the document and should return quickly, the dsl does not time or report
+ * anything while no listener is registered. Use {@link DocumentStatistics#of(com.fasterxml.jackson.databind.JsonNode)}
+ * to inspect the nodes of a built document
+ */
+public interface JsonDslListener {
+
+    /**
+     * called when a jsonDocument call returns <br/>
+     * plain tuples are evaluated before jsonDocument is called, so the time covers the assembly of the root and the
+     * evaluation of deferred values such as closures
+     *
+     * @param document the built document
+     * @param nanos    the elapsed time of the jsonDocument call
+     */
+    void documentBuilt(ObjectNode document, long nanos);
+
+    /**
+     * called when the tuple name of a closure is read, the name is resolved once per closure class and cached
+     *
+     * @param closureClass the class of the closure
+     * @param cacheHit     true when the name was cached, false when it was resolved
+     * @param nanos        the elapsed time of the lookup or the resolution
+     */
+    void closureNameResolved(Class<?> closureClass, boolean cacheHit, long nanos);
+
+    /**
+     * called when a document is serialized by {@link JsonStream}, {@link JsonTemplate} or another writer of the dsl
+     *
+     * @param bytes the number of written bytes, the number of characters for a {@link java.io.Writer}, or -1 when the
+     *              document is written to a json generator of the caller, of which the size of the output is unknown
+     * @param nanos the elapsed time of the serialization
+     */
+    void documentSerialized(long bytes, long nanos);
+}
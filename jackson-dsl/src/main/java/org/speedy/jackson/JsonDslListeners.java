@@ -0,0 +1,293 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.FilterOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Registry of the {@link JsonDslListener}s <br/>
+ * The listeners are kept in a copy on write array which is null while no listener is registered, so an unobserved
+ * call costs one volatile read
+ */
+final class JsonDslListeners {
+
+    /**
+     * start time of a call which is not observed
+     */
+    static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private static volatile JsonDslListener[] listeners;
+
+    private JsonDslListeners() {
+    }
+
+    static synchronized void add(JsonDslListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("The listener must not be null");
+        }
+        JsonDslListener[] current = listeners;
+        if (current == null) {
+            listeners = new JsonDslListener[]{listener};
+        } else {
+            JsonDslListener[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = listener;
+            listeners = updated;
+        }
+    }
+
+    static synchronized boolean remove(JsonDslListener listener) {
+        JsonDslListener[] current = listeners;
+        if (current == null) {
+            return false;
+        }
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                if (current.length == 1) {
+                    listeners = null;
+                } else {
+                    JsonDslListener[] updated = new JsonDslListener[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    listeners = updated;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the start time of an observed jsonDocument call, or {@link #NOT_TIMED} when no listener is registered
+     */
+    static long startBuild() {
+        return start(JsonDslCallListener.Call.BUILD);
+    }
+
+    /**
+     * @return the start time of an observed closure name lookup, or {@link #NOT_TIMED} when no listener is registered
+     */
+    static long startClosureName() {
+        return start(JsonDslCallListener.Call.CLOSURE_NAME);
+    }
+
+    /**
+     * @return the start time of an observed serialization, or {@link #NOT_TIMED} when no listener is registered
+     */
+    static long startSerialization() {
+        return start(JsonDslCallListener.Call.SERIALIZATION);
+    }
+
+    /**
+     * tell the {@link JsonDslCallListener}s that a call starts
+     *
+     * @return the start time of an observed call, or {@link #NOT_TIMED} when no listener is registered
+     */
+    private static long start(JsonDslCallListener.Call call) {
+        JsonDslListener[] current = listeners;
+        if (current == null) {
+            return NOT_TIMED;
+        }
+        callStarted(current, call);
+        return System.nanoTime();
+    }
+
+    private static void callStarted(JsonDslListener[] current, JsonDslCallListener.Call call) {
+        for (JsonDslListener listener : current) {
+            if (listener instanceof JsonDslCallListener) {
+                ((JsonDslCallListener) listener).callStarted(call);
+            }
+        }
+    }
+
+    /**
+     * report a jsonDocument call which failed, called in a finally block of the call
+     */
+    static void buildFailed(long start) {
+        failed(JsonDslCallListener.Call.BUILD, start);
+    }
+
+    /**
+     * report a closure name lookup which failed, called in a finally block of the lookup
+     */
+    static void closureNameFailed(long start) {
+        failed(JsonDslCallListener.Call.CLOSURE_NAME, start);
+    }
+
+    /**
+     * report a serialization which failed, called in a finally block of the serialization
+     */
+    static void serializationFailed(long start) {
+        failed(JsonDslCallListener.Call.SERIALIZATION, start);
+    }
+
+    /**
+     * tell the {@link JsonDslCallListener}s that an observed call failed
+     */
+    private static void failed(JsonDslCallListener.Call call, long start) {
+        if (start != NOT_TIMED) {
+            JsonDslListener[] current = listeners;
+            if (current != null) {
+                for (JsonDslListener listener : current) {
+                    if (listener instanceof JsonDslCallListener) {
+                        ((JsonDslCallListener) listener).callFailed(call);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * report a built document
+     *
+     * @return the document
+     */
+    static ObjectNode documentBuilt(ObjectNode document, long start) {
+        if (start != NOT_TIMED) {
+            JsonDslListener[] current = listeners;
+            if (current != null) {
+                long nanos = System.nanoTime() - start;
+                for (JsonDslListener listener : current) {
+                    listener.documentBuilt(document, nanos);
+                }
+            }
+        }
+        return document;
+    }
+
+    static void closureNameResolved(Class<?> closureClass, boolean cacheHit, long start) {
+        if (start != NOT_TIMED) {
+            JsonDslListener[] current = listeners;
+            if (current != null) {
+                long nanos = System.nanoTime() - start;
+                for (JsonDslListener listener : current) {
+                    listener.closureNameResolved(closureClass, cacheHit, nanos);
+                }
+            }
+        }
+    }
+
+    static void documentSerialized(long bytes, long start) {
+        if (start != NOT_TIMED) {
+            JsonDslListener[] current = listeners;
+            if (current != null) {
+                long nanos = System.nanoTime() - start;
+                for (JsonDslListener listener : current) {
+                    listener.documentSerialized(bytes, nanos);
+                }
+            }
+        }
+    }
+
+    /**
+     * report the documents of a batch which is written at once, the bytes and the time of the batch are spread evenly
+     * over its documents. The call listeners are told the start of every document after the first, which was started
+     * with the batch
+     */
+    static void batchSerialized(long bytes, int documents, long start) {
+        if (start != NOT_TIMED && documents > 0) {
+            JsonDslListener[] current = listeners;
+            if (current != null) {
+                long nanos = System.nanoTime() - start;
+                for (int i = 0; i < documents; i++) {
+                    long documentBytes = bytes / documents + (i < bytes % documents ? 1 : 0);
+                    long documentNanos = nanos / documents + (i < nanos % documents ? 1 : 0);
+                    if (i > 0) {
+                        callStarted(current, JsonDslCallListener.Call.SERIALIZATION);
+                    }
+                    for (JsonDslListener listener : current) {
+                        listener.documentSerialized(documentBytes, documentNanos);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * wrap an output stream to count the bytes of an observed serialization
+     *
+     * @return the counting output stream, or the output stream when the serialization is not observed
+     */
+    static OutputStream counting(OutputStream outputStream, long start) {
+        return start != NOT_TIMED ? new CountingOutputStream(outputStream) : outputStream;
+    }
+
+    /**
+     * report the bytes written to an output stream returned by {@link #counting(OutputStream, long)}
+     */
+    static void documentSerialized(OutputStream outputStream, long start) {
+        if (outputStream instanceof CountingOutputStream) {
+            documentSerialized(((CountingOutputStream) outputStream).count, start);
+        }
+    }
+
+    /**
+     * wrap a writer to count the characters of an observed serialization
+     *
+     * @return the counting writer, or the writer when the serialization is not observed
+     */
+    static Writer counting(Writer writer, long start) {
+        return start != NOT_TIMED ? new CountingWriter(writer) : writer;
+    }
+
+    /**
+     * report the characters written to a writer returned by {@link #counting(Writer, long)}
+     */
+    static void documentSerialized(Writer writer, long start) {
+        if (writer instanceof CountingWriter) {
+            documentSerialized(((CountingWriter) writer).count, start);
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+    }
+
+    private static final class CountingWriter extends FilterWriter {
+
+        private long count;
+
+        CountingWriter(Writer writer) {
+            super(writer);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.write(c);
+            count++;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            out.write(chars, offset, length);
+            count += length;
+        }
+
+        @Override
+        public void write(String string, int offset, int length) throws IOException {
+            out.write(string, offset, length);
+            count += length;
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded table of canonical json nodes which deduplicates equal subtrees <br/>
+ * A subtree is interned bottom up: its children are interned first, so two containers are equal when they have the
+ * same field names and the same canonical children, which is checked by reference without walking the subtree. The
+ * canonical containers are immutable, every modification fails with an {@link UnsupportedOperationException}. The
+ * least recently used node is evicted when the table is full, an equal subtree interned afterwards gets a new canonical
+ * instance. The interner counts the hits, misses and evictions and estimates the bytes of the duplicate nodes which
+ * were replaced by a canonical node. A json dsl context which interns every object and array it creates is created
+ * with {@link JsonDsl#with(JsonNodeFactory, JsonInterner)}
+ */
+public final class JsonInterner {
+
+    /**
+     * estimated shallow sizes, with compressed references, of the nodes replaced by a canonical node
+     */
+    private static final int OBJECT_BYTES = 64;
+    private static final int FIELD_BYTES = 40;
+    private static final int ARRAY_BYTES = 56;
+    private static final int ELEMENT_BYTES = 4;
+    private static final int TEXT_BYTES = 56;
+    private static final int VALUE_BYTES = 24;
+
+    private final JsonNodeFactory jsonNodeFactory;
+    private final int maxSize;
+    private final Map<Object, JsonNode> nodes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long savedBytes;
+
+    /**
+     * create a json interner for 65536 nodes
+     */
+    public JsonInterner() {
+        this(65536);
+    }
+
+    /**
+     * create a json interner
+     *
+     * @param maxSize the maximum number of canonical nodes in the table
+     */
+    public JsonInterner(int maxSize) {
+        this(JsonNodeFactory.instance, maxSize);
+    }
+
+    /**
+     * create a json interner
+     *
+     * @param jsonNodeFactory the json node factory of the canonical containers
+     * @param maxSize         the maximum number of canonical nodes in the table
+     */
+    public JsonInterner(JsonNodeFactory jsonNodeFactory, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The size of an interner must be positive: " + maxSize);
+        }
+        this.jsonNodeFactory = jsonNodeFactory;
+        this.maxSize = maxSize;
+        this.nodes = new LinkedHashMap<Object, JsonNode>(TupleDsl.capacity(Math.min(maxSize, 1024)), 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, JsonNode> eldest) {
+                if (size() > JsonInterner.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+
+        };
+    }
+
+    /**
+     * get the canonical instance of an object node
+     *
+     * @param objectNode the object node, it is not changed
+     * @return the immutable canonical object node
+     */
+    public ObjectNode intern(ObjectNode objectNode) {
+        return (ObjectNode) intern((JsonNode) objectNode);
+    }
+
+    /**
+     * get the canonical instance of an array node
+     *
+     * @param arrayNode the array node, it is not changed
+     * @return the immutable canonical array node
+     */
+    public ArrayNode intern(ArrayNode arrayNode) {
+        return (ArrayNode) intern((JsonNode) arrayNode);
+    }
+
+    /**
+     * get the canonical instance of a json node <br/>
+     * containers are replaced by immutable canonical containers, text, number and boolean nodes by an equal node of the
+     * table. Pojo and binary nodes, which can be changed through their value, and constant containers are kept as they
+     * are
+     *
+     * @param jsonNode the json node, it is not changed
+     * @return the canonical json node
+     */
+    public JsonNode intern(JsonNode jsonNode) {
+        if (jsonNode == null || jsonNode instanceof InternedObjectNode || jsonNode instanceof InternedArrayNode
+                || jsonNode instanceof ConstantObjectNode || jsonNode instanceof ConstantArrayNode) {
+            return jsonNode;
+        }
+        if (jsonNode.isObject()) {
+            return internObject(jsonNode);
+        }
+        if (jsonNode.isArray()) {
+            return internArray(jsonNode);
+        }
+        if (jsonNode.isTextual() || jsonNode.isNumber()) {
+            return internValue(jsonNode);
+        }
+        return jsonNode;
+    }
+
+    @SuppressWarnings("deprecation")
+    private JsonNode internObject(JsonNode objectNode) {
+        int size = objectNode.size();
+        String[] names = new String[size];
+        JsonNode[] values = new JsonNode[size];
+        int i = 0;
+        for (Iterator<Map.Entry<String, JsonNode>> iterator = objectNode.fields(); iterator.hasNext(); i++) {
+            Map.Entry<String, JsonNode> field = iterator.next();
+            names[i] = field.getKey();
+            values[i] = intern(field.getValue());
+        }
+        Shape shape = new Shape(names, values);
+        synchronized (nodes) {
+            JsonNode canonical = nodes.get(shape);
+            if (canonical != null) {
+                hits++;
+                savedBytes += OBJECT_BYTES + (long) FIELD_BYTES * size;
+                return canonical;
+            }
+            misses++;
+            canonical = new InternedObjectNode(jsonNodeFactory, shape);
+            nodes.put(shape, canonical);
+            return canonical;
+        }
+    }
+
+    private JsonNode internArray(JsonNode arrayNode) {
+        int size = arrayNode.size();
+        JsonNode[] elements = new JsonNode[size];
+        for (int i = 0; i < size; i++) {
+            elements[i] = intern(arrayNode.get(i));
+        }
+        Shape shape = new Shape(null, elements);
+        synchronized (nodes) {
+            JsonNode canonical = nodes.get(shape);
+            if (canonical != null) {
+                hits++;
+                savedBytes += ARRAY_BYTES + (long) ELEMENT_BYTES * size;
+                return canonical;
+            }
+            misses++;
+            canonical = new InternedArrayNode(jsonNodeFactory, shape);
+            nodes.put(shape, canonical);
+            return canonical;
+        }
+    }
+
+    private JsonNode internValue(JsonNode valueNode) {
+        Value value = new Value(valueNode);
+        synchronized (nodes) {
+            JsonNode canonical = nodes.get(value);
+            if (canonical != null) {
+                if (canonical != valueNode) {
+                    hits++;
+                    savedBytes += valueNode.isTextual() ? TEXT_BYTES + valueNode.textValue().length() : VALUE_BYTES;
+                }
+                return canonical;
+            }
+            misses++;
+            nodes.put(value, valueNode);
+            return valueNode;
+        }
+    }
+
+    /**
+     * @return the hash of a canonical node, containers keep the hash of their shape
+     */
+    private static int hash(JsonNode jsonNode) {
+        if (jsonNode instanceof InternedObjectNode) {
+            return ((InternedObjectNode) jsonNode).hash;
+        }
+        if (jsonNode instanceof InternedArrayNode) {
+            return ((InternedArrayNode) jsonNode).hash;
+        }
+        if (jsonNode.isTextual() || jsonNode.isNumber()) {
+            return jsonNode.hashCode();
+        }
+        return System.identityHashCode(jsonNode);
+    }
+
+    /**
+     * @return the number of nodes replaced by a canonical node
+     */
+    public long getHits() {
+        synchronized (nodes) {
+            return hits;
+        }
+    }
+
+    /**
+     * @return the number of nodes added to the table
+     */
+    public long getMisses() {
+        synchronized (nodes) {
+            return misses;
+        }
+    }
+
+    /**
+     * @return the number of canonical nodes evicted from the table
+     */
+    public long getEvictions() {
+        synchronized (nodes) {
+            return evictions;
+        }
+    }
+
+    /**
+     * @return the estimated bytes of the nodes replaced by a canonical node, the children of a replaced container are
+     * counted when they are replaced themselves
+     */
+    public long getSavedBytes() {
+        synchronized (nodes) {
+            return savedBytes;
+        }
+    }
+
+    /**
+     * @return the number of canonical nodes in the table
+     */
+    public int size() {
+        synchronized (nodes) {
+            return nodes.size();
+        }
+    }
+
+    /**
+     * remove all canonical nodes from the table, the statistics are kept
+     */
+    public void clear() {
+        synchronized (nodes) {
+            nodes.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "JsonInterner{size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses()
+                + ", evictions=" + getEvictions() + ", savedBytes=" + getSavedBytes() + "}";
+    }
+
+    /**
+     * key of a container: the field names, or null for an array, and the canonical children which are compared by
+     * reference
+     */
+    private static final class Shape {
+
+        private final String[] names;
+        private final JsonNode[] children;
+        private final int hash;
+
+        Shape(String[] names, JsonNode[] children) {
+            this.names = names;
+            this.children = children;
+            int hash = names != null ? Arrays.hashCode(names) : 1;
+            for (JsonNode child : children) {
+                hash = 31 * hash + JsonInterner.hash(child);
+            }
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (object == this) {
+                return true;
+            }
+            if (!(object instanceof Shape)) {
+                return false;
+            }
+            Shape shape = (Shape) object;
+            if (hash != shape.hash || children.length != shape.children.length
+                    || (names == null ? shape.names != null : !Arrays.equals(names, shape.names))) {
+                return false;
+            }
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] != shape.children[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * key of a text or number node, equal nodes of different types or decimals of a different scale are different
+     * values because they are written differently
+     */
+    private static final class Value {
+
+        private final JsonNode valueNode;
+
+        Value(JsonNode valueNode) {
+            this.valueNode = valueNode;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (object == this) {
+                return true;
+            }
+            if (!(object instanceof Value)) {
+                return false;
+            }
+            JsonNode other = ((Value) object).valueNode;
+            return valueNode.getClass() == other.getClass() && valueNode.equals(other)
+                    && (!valueNode.isBigDecimal() || valueNode.decimalValue().equals(other.decimalValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            return valueNode.hashCode();
+        }
+    }
+
+    /**
+     * canonical object node backed by an unmodifiable map of canonical nodes
+     */
+    static final class InternedObjectNode extends ObjectNode {
+
+        private final int hash;
+
+        InternedObjectNode(JsonNodeFactory jsonNodeFactory, Shape shape) {
+            super(jsonNodeFactory, Collections.unmodifiableMap(fields(shape)));
+            this.hash = shape.hash;
+        }
+
+        private static Map<String, JsonNode> fields(Shape shape) {
+            Map<String, JsonNode> fields = ImmutableNodes.newFields(shape.children.length);
+            for (int i = 0; i < shape.children.length; i++) {
+                fields.put(shape.names[i], shape.children[i]);
+            }
+            return fields;
+        }
+    }
+
+    /**
+     * canonical array node backed by the children of its shape
+     */
+    static final class InternedArrayNode extends ArrayNode {
+
+        private final int hash;
+
+        InternedArrayNode(JsonNodeFactory jsonNodeFactory, Shape shape) {
+            super(jsonNodeFactory, Collections.unmodifiableList(Arrays.asList(shape.children)));
+            this.hash = shape.hash;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.util.concurrent.Callable;
+
+/**
+ * The json node factory used by the static dsl methods <br/>
+ * A factory is bound for the duration of a call and the previous factory is restored afterwards, so scopes can be
+ * nested. This implementation keeps the factory in a {@link ThreadLocal}, the multi-release jar contains a
+ * {@code ScopedValue} implementation for java 25 and higher
+ */
+final class JsonNodeFactoryScope {
+
+    /**
+     * the bound factory, also exposed as the deprecated {@link TupleDsl#jsonNodeFactoryThreadLocal}
+     */
+    static final ThreadLocal<JsonNodeFactory> jsonNodeFactoryThreadLocal = new ThreadLocal<JsonNodeFactory>() {
+
+        @Override
+        protected JsonNodeFactory initialValue() {
+            return JsonNodeFactory.instance;
+        }
+
+    };
+
+    private JsonNodeFactoryScope() {
+    }
+
+    /**
+     * @return the json node factory bound to the current thread or {@link JsonNodeFactory#instance}
+     */
+    static JsonNodeFactory current() {
+        return jsonNodeFactoryThreadLocal.get();
+    }
+
+    /**
+     * call a callable with a json node factory bound to the current thread
+     *
+     * @param jsonNodeFactory the json node factory
+     * @param callable        the callable
+     * @param <T>             the type of the result
+     * @return the result of the callable
+     * @throws Exception the exception of the callable
+     */
+    static <T> T call(JsonNodeFactory jsonNodeFactory, Callable<T> callable) throws Exception {
+        JsonNodeFactory previous = jsonNodeFactoryThreadLocal.get();
+        jsonNodeFactoryThreadLocal.set(jsonNodeFactory);
+        try {
+            return callable.call();
+        } finally {
+            jsonNodeFactoryThreadLocal.set(previous);
+        }
+    }
+}
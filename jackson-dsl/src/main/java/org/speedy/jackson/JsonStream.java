@@ -0,0 +1,167 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Deferred description of a json value created with {@link JsonStreamDsl} <br/>
+ * Nothing is materialized until the description is written to a {@link JsonGenerator}, an {@link OutputStream} or a
+ * {@link Writer}, a {@link JsonNode} is only created when {@link #toJsonNode()} is called
+ */
+public abstract class JsonStream {
+
+    /**
+     * object mapper used to write embedded json nodes, its generators do not close their target
+     */
+    static final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+            .configure(SerializationFeature.FLUSH_AFTER_WRITE_VALUE, false);
+
+    static final JsonFactory jsonFactory = objectMapper.getFactory();
+
+    JsonStream() {
+    }
+
+    /**
+     * write this value to a json generator, the size of the serialization is reported as unknown to the listeners
+     *
+     * @param generator the json generator
+     * @throws IOException when the generator fails to write
+     */
+    public void writeTo(JsonGenerator generator) throws IOException {
+        long start = JsonDslListeners.startSerialization();
+        boolean written = false;
+        try {
+            write(generator, Bindings.NONE);
+            written = true;
+        } finally {
+            if (!written) {
+                JsonDslListeners.serializationFailed(start);
+            }
+        }
+        JsonDslListeners.documentSerialized(-1, start);
+    }
+
+    /**
+     * write this value as utf-8 to an output stream, the output stream is not closed
+     *
+     * @param outputStream the output stream
+     * @throws IOException when the output stream fails to write
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        long start = JsonDslListeners.startSerialization();
+        boolean written = false;
+        try {
+            OutputStream target = JsonDslListeners.counting(outputStream, start);
+            JsonGenerator generator = jsonFactory.createGenerator(target);
+            try {
+                write(generator, Bindings.NONE);
+            } finally {
+                generator.close();
+            }
+            written = true;
+            JsonDslListeners.documentSerialized(target, start);
+        } finally {
+            if (!written) {
+                JsonDslListeners.serializationFailed(start);
+            }
+        }
+    }
+
+    /**
+     * write this value to a writer, the writer is not closed
+     *
+     * @param writer the writer
+     * @throws IOException when the writer fails to write
+     */
+    public void writeTo(Writer writer) throws IOException {
+        long start = JsonDslListeners.startSerialization();
+        boolean written = false;
+        try {
+            Writer target = JsonDslListeners.counting(writer, start);
+            JsonGenerator generator = jsonFactory.createGenerator(target);
+            try {
+                write(generator, Bindings.NONE);
+            } finally {
+                generator.close();
+            }
+            written = true;
+            JsonDslListeners.documentSerialized(target, start);
+        } finally {
+            if (!written) {
+                JsonDslListeners.serializationFailed(start);
+            }
+        }
+    }
+
+    /**
+     * serialize this value
+     *
+     * @return the utf-8 encoded json
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            writeTo(outputStream);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * create the json node of this value with the default {@link JsonNodeFactory}
+     *
+     * @return the json node
+     */
+    public JsonNode toJsonNode() {
+        return toJsonNode(JsonNodeFactory.instance);
+    }
+
+    /**
+     * create the json node of this value
+     *
+     * @param jsonNodeFactory the json node factory
+     * @return the json node
+     */
+    public JsonNode toJsonNode(JsonNodeFactory jsonNodeFactory) {
+        return node(jsonNodeFactory, Bindings.NONE);
+    }
+
+    /**
+     * serialize this value
+     *
+     * @return the json
+     */
+    @Override
+    public String toString() {
+        StringWriter writer = new StringWriter();
+        try {
+            writeTo(writer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    abstract void write(JsonGenerator generator, Bindings bindings) throws IOException;
+
+    abstract JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings);
+
+    /**
+     * write a json node, also to generators without a codec
+     */
+    static void writeNode(JsonGenerator generator, JsonNode jsonNode) throws IOException {
+        objectMapper.writeTree(generator, jsonNode);
+    }
+}
@@ -0,0 +1,1037 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Streaming counterpart of {@link JsonDsl} with the same vocabulary <br/>
+ * The methods record a lightweight description of the document instead of building an {@link ObjectNode} tree, the
+ * description is written straight to a {@link JsonGenerator} with {@link JsonStream#writeTo(JsonGenerator)}, or
+ * converted to a json node with {@link JsonStream#toJsonNode()} when one is needed
+ */
+public abstract class JsonStreamDsl {
+
+    /**
+     * describe a json document
+     *
+     * @param tuples the child tuples
+     * @return the json document
+     */
+    public static JsonStream jsonDocument(StreamTuple... tuples) {
+        return new ObjectStream(tuples);
+    }
+
+    /**
+     * describe a object
+     *
+     * @param tuples the child tuples
+     * @return the object
+     */
+    public static JsonStream object(StreamTuple... tuples) {
+        return new ObjectStream(tuples);
+    }
+
+    /**
+     * describe a object with a tuple
+     *
+     * @param name  name of the tuple
+     * @param value value of the tuple
+     * @return the object
+     */
+    public static JsonStream object(String name, String value) {
+        return new ObjectStream(new StreamTuple[]{tuple(name, value)});
+    }
+
+    /**
+     * describe a object with a tuple
+     *
+     * @param name  name of the tuple
+     * @param value value of the tuple
+     * @return the object
+     */
+    public static JsonStream object(String name, JsonStream value) {
+        return new ObjectStream(new StreamTuple[]{tuple(name, value)});
+    }
+
+    /**
+     * describe a array
+     *
+     * @param values an array of values
+     * @return the array
+     */
+    public static JsonStream array(JsonStream... values) {
+        return new ArrayStream(values);
+    }
+
+    /**
+     * describe a array with string objects
+     *
+     * @param stringObjects an array of string objects
+     * @return the array
+     */
+    public static JsonStream array(String... stringObjects) {
+        return new StringArrayStream(stringObjects);
+    }
+
+    /**
+     * describe a array with big decimal objects
+     *
+     * @param bigDecimalObjects an array of big decimal objects
+     * @return the array
+     */
+    public static JsonStream array(BigDecimal... bigDecimalObjects) {
+        return new BigDecimalArrayStream(bigDecimalObjects);
+    }
+
+    /**
+     * describe a array with float primitives
+     *
+     * @param floatPrimitives an array of float primitives
+     * @return the array
+     */
+    public static JsonStream array(float... floatPrimitives) {
+        return new FloatArrayStream(floatPrimitives);
+    }
+
+    /**
+     * describe a array with double primitives
+     *
+     * @param doublePrimitives an array of double primitives
+     * @return the array
+     */
+    public static JsonStream array(double... doublePrimitives) {
+        return new DoubleArrayStream(doublePrimitives);
+    }
+
+    /**
+     * describe a array with int primitives
+     *
+     * @param intPrimitives an array of int primitives
+     * @return the array
+     */
+    public static JsonStream array(int... intPrimitives) {
+        return new IntArrayStream(intPrimitives);
+    }
+
+    /**
+     * describe a array with long primitives
+     *
+     * @param longPrimitives an array of long primitives
+     * @return the array
+     */
+    public static JsonStream array(long... longPrimitives) {
+        return new LongArrayStream(longPrimitives);
+    }
+
+    /**
+     * describe a array with boolean primitives
+     *
+     * @param booleanPrimitives an array of boolean primitives
+     * @return the array
+     */
+    public static JsonStream array(boolean... booleanPrimitives) {
+        return new BooleanArrayStream(booleanPrimitives);
+    }
+
+    /**
+     * describe a json node, which is written as is
+     *
+     * @param jsonNode the json node
+     * @return the value
+     */
+    public static JsonStream node(JsonNode jsonNode) {
+        return jsonNode == null ? NullValue.NULL : new NodeValue(jsonNode);
+    }
+
+    /**
+     * mark a value as constant, its json is encoded once and written as raw bytes afterwards, unless the generator
+     * escapes or formats the output differently
+     *
+     * @param value the described value, without placeholders
+     * @return the constant value
+     */
+    public static JsonStream constant(JsonStream value) {
+        return new ConstantValue(value);
+    }
+
+    /**
+     * describe a placeholder for a value that is bound when the document is compiled with {@link JsonTemplate}
+     *
+     * @param index the index of the value
+     * @return the placeholder
+     */
+    public static JsonStream placeholder(int index) {
+        return new JsonTemplate.Placeholder(index, null);
+    }
+
+    /**
+     * describe a placeholder for a value that is bound when the document is compiled with {@link JsonTemplate}
+     *
+     * @param name the name of the value
+     * @return the placeholder
+     */
+    public static JsonStream placeholder(String name) {
+        return new JsonTemplate.Placeholder(-1, name);
+    }
+
+    /**
+     * describe a null value
+     *
+     * @return the null value
+     */
+    public static JsonStream nil() {
+        return NullValue.NULL;
+    }
+
+    /**
+     * describe a boolean value
+     *
+     * @param value the boolean value
+     * @return the boolean value
+     */
+    public static JsonStream bool(boolean value) {
+        return value ? BooleanValue.TRUE : BooleanValue.FALSE;
+    }
+
+    /**
+     * describe a binary value
+     *
+     * @param value the byte array
+     * @return the binary value
+     */
+    public static JsonStream binary(byte[] value) {
+        return value == null ? NullValue.NULL : new BinaryValue(value);
+    }
+
+    /**
+     * describe a text value
+     *
+     * @param value a value string
+     * @return the text value
+     */
+    public static JsonStream text(String value) {
+        return value == null ? NullValue.NULL : new TextValue(value);
+    }
+
+    /**
+     * describe a numeric value
+     *
+     * @param value a byte value
+     * @return the numeric value
+     */
+    public static JsonStream number(byte value) {
+        return new IntValue(value);
+    }
+
+    /**
+     * describe a numeric value
+     *
+     * @param value a short value
+     * @return the numeric value
+     */
+    public static JsonStream number(short value) {
+        return new ShortValue(value);
+    }
+
+    /**
+     * describe a numeric value
+     *
+     * @param value a int value
+     * @return the numeric value
+     */
+    public static JsonStream number(int value) {
+        return new IntValue(value);
+    }
+
+    /**
+     * describe a numeric value
+     *
+     * @param value a long value
+     * @return the numeric value
+     */
+    public static JsonStream number(long value) {
+        return new LongValue(value);
+    }
+
+    /**
+     * describe a numeric value
+     *
+     * @param value a float value
+     * @return the numeric value
+     */
+    public static JsonStream number(float value) {
+        return new FloatValue(value);
+    }
+
+    /**
+     * describe a numeric value
+     *
+     * @param value a double value
+     * @return the numeric value
+     */
+    public static JsonStream number(double value) {
+        return new DoubleValue(value);
+    }
+
+    /**
+     * describe a numeric value
+     *
+     * @param value a BigDecimal value
+     * @return the numeric value
+     */
+    public static JsonStream number(BigDecimal value) {
+        return value == null ? NullValue.NULL : new BigDecimalValue(value);
+    }
+
+    /**
+     * describe a numeric value
+     *
+     * @param value a BigInteger value
+     * @return the numeric value
+     */
+    public static JsonStream number(BigInteger value) {
+        return value == null ? NullValue.NULL : new BigIntegerValue(value);
+    }
+
+    /**
+     * describe a numeric value
+     *
+     * @param value a Byte value
+     * @return the numeric value
+     */
+    public static JsonStream number(Byte value) {
+        return value == null ? NullValue.NULL : new IntValue(value.intValue());
+    }
+
+    /**
+     * describe a numeric value
+     *
+     * @param value a Short value
+     * @return the numeric value
+     */
+    public static JsonStream number(Short value) {
+        return value == null ? NullValue.NULL : new ShortValue(value);
+    }
+
+    /**
+     * describe a numeric value
+     *
+     * @param value a Integer value
+     * @return the numeric value
+     */
+    public static JsonStream number(Integer value) {
+        return value == null ? NullValue.NULL : new IntValue(value);
+    }
+
+    /**
+     * describe a numeric value
+     *
+     * @param value a Long value
+     * @return the numeric value
+     */
+    public static JsonStream number(Long value) {
+        return value == null ? NullValue.NULL : new LongValue(value);
+    }
+
+    /**
+     * describe a numeric value
+     *
+     * @param value a Float value
+     * @return the numeric value
+     */
+    public static JsonStream number(Float value) {
+        return value == null ? NullValue.NULL : new FloatValue(value);
+    }
+
+    /**
+     * describe a numeric value
+     *
+     * @param value a Double value
+     * @return the numeric value
+     */
+    public static JsonStream number(Double value) {
+        return value == null ? NullValue.NULL : new DoubleValue(value);
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a byte value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, byte value) {
+        return new StreamTuple(name, number(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a byte array value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, byte[] value) {
+        return new StreamTuple(name, binary(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a int value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, int value) {
+        return new StreamTuple(name, number(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a short value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, short value) {
+        return new StreamTuple(name, number(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a long value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, long value) {
+        return new StreamTuple(name, number(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a float value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, float value) {
+        return new StreamTuple(name, number(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a double value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, double value) {
+        return new StreamTuple(name, number(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a BigInteger value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, BigInteger value) {
+        return new StreamTuple(name, number(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a BigDecimal value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, BigDecimal value) {
+        return new StreamTuple(name, number(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a boolean value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, boolean value) {
+        return new StreamTuple(name, bool(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a Byte value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, Byte value) {
+        return new StreamTuple(name, number(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a Boolean value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, Boolean value) {
+        return new StreamTuple(name, value == null ? nil() : bool(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a Integer value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, Integer value) {
+        return new StreamTuple(name, number(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a Short value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, Short value) {
+        return new StreamTuple(name, number(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a Long value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, Long value) {
+        return new StreamTuple(name, number(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a Float value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, Float value) {
+        return new StreamTuple(name, number(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a Double value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, Double value) {
+        return new StreamTuple(name, number(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a String value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, String value) {
+        return new StreamTuple(name, text(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a json node value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, JsonNode value) {
+        return new StreamTuple(name, node(value));
+    }
+
+    /**
+     * create a tuple
+     *
+     * @param name  the name of the tuple
+     * @param value a described value
+     * @return the tuple
+     */
+    public static StreamTuple tuple(String name, JsonStream value) {
+        return new StreamTuple(name, value == null ? NullValue.NULL : value);
+    }
+
+    /**
+     * a key-value pair in a described object
+     */
+    public static final class StreamTuple {
+        private final String name;
+        private final JsonStream value;
+
+        private StreamTuple(String name, JsonStream value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public JsonStream getValue() {
+            return value;
+        }
+    }
+
+    private static final class ObjectStream extends JsonStream {
+        private final StreamTuple[] tuples;
+
+        ObjectStream(StreamTuple[] tuples) {
+            this.tuples = tuples;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeStartObject();
+            for (StreamTuple tuple : tuples) {
+                generator.writeFieldName(tuple.name);
+                tuple.value.write(generator, bindings);
+            }
+            generator.writeEndObject();
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            ObjectNode objectNode = TupleDsl.newObjectNode(jsonNodeFactory, tuples.length);
+            for (StreamTuple tuple : tuples) {
+                objectNode.set(tuple.name, tuple.value.node(jsonNodeFactory, bindings));
+            }
+            return objectNode;
+        }
+    }
+
+    private static final class ArrayStream extends JsonStream {
+        private final JsonStream[] values;
+
+        ArrayStream(JsonStream[] values) {
+            this.values = values;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeStartArray();
+            for (JsonStream value : values) {
+                (value == null ? NullValue.NULL : value).write(generator, bindings);
+            }
+            generator.writeEndArray();
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            ArrayNode arrayNode = TupleDsl.newArrayNode(jsonNodeFactory, values.length);
+            for (JsonStream value : values) {
+                arrayNode.add((value == null ? NullValue.NULL : value).node(jsonNodeFactory, bindings));
+            }
+            return arrayNode;
+        }
+    }
+
+    private static final class StringArrayStream extends JsonStream {
+        private final String[] values;
+
+        StringArrayStream(String[] values) {
+            this.values = values;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeStartArray();
+            for (String value : values) {
+                generator.writeString(value);
+            }
+            generator.writeEndArray();
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            ArrayNode arrayNode = TupleDsl.newArrayNode(jsonNodeFactory, values.length);
+            for (String value : values) {
+                arrayNode.add(value);
+            }
+            return arrayNode;
+        }
+    }
+
+    private static final class BigDecimalArrayStream extends JsonStream {
+        private final BigDecimal[] values;
+
+        BigDecimalArrayStream(BigDecimal[] values) {
+            this.values = values;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeStartArray();
+            for (BigDecimal value : values) {
+                generator.writeNumber(value);
+            }
+            generator.writeEndArray();
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            ArrayNode arrayNode = TupleDsl.newArrayNode(jsonNodeFactory, values.length);
+            for (BigDecimal value : values) {
+                arrayNode.add(value);
+            }
+            return arrayNode;
+        }
+    }
+
+    private static final class FloatArrayStream extends JsonStream {
+        private final float[] values;
+
+        FloatArrayStream(float[] values) {
+            this.values = values;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeStartArray();
+            for (float value : values) {
+                generator.writeNumber(value);
+            }
+            generator.writeEndArray();
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return PrimitiveArrayNode.of(jsonNodeFactory, values);
+        }
+    }
+
+    private static final class DoubleArrayStream extends JsonStream {
+        private final double[] values;
+
+        DoubleArrayStream(double[] values) {
+            this.values = values;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeArray(values, 0, values.length);
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return PrimitiveArrayNode.of(jsonNodeFactory, values);
+        }
+    }
+
+    private static final class IntArrayStream extends JsonStream {
+        private final int[] values;
+
+        IntArrayStream(int[] values) {
+            this.values = values;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeArray(values, 0, values.length);
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return PrimitiveArrayNode.of(jsonNodeFactory, values);
+        }
+    }
+
+    private static final class LongArrayStream extends JsonStream {
+        private final long[] values;
+
+        LongArrayStream(long[] values) {
+            this.values = values;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeArray(values, 0, values.length);
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return PrimitiveArrayNode.of(jsonNodeFactory, values);
+        }
+    }
+
+    private static final class BooleanArrayStream extends JsonStream {
+        private final boolean[] values;
+
+        BooleanArrayStream(boolean[] values) {
+            this.values = values;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeStartArray();
+            for (boolean value : values) {
+                generator.writeBoolean(value);
+            }
+            generator.writeEndArray();
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return PrimitiveArrayNode.of(jsonNodeFactory, values);
+        }
+    }
+
+    private static final class TextValue extends JsonStream {
+        private final String value;
+
+        TextValue(String value) {
+            this.value = value;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeString(value);
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return jsonNodeFactory.textNode(value);
+        }
+    }
+
+    private static final class BinaryValue extends JsonStream {
+        private final byte[] value;
+
+        BinaryValue(byte[] value) {
+            this.value = value;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeBinary(value);
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return jsonNodeFactory.binaryNode(value);
+        }
+    }
+
+    private static final class IntValue extends JsonStream {
+        private final int value;
+
+        IntValue(int value) {
+            this.value = value;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeNumber(value);
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return jsonNodeFactory.numberNode(value);
+        }
+    }
+
+    private static final class ShortValue extends JsonStream {
+        private final short value;
+
+        ShortValue(short value) {
+            this.value = value;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeNumber(value);
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return jsonNodeFactory.numberNode(value);
+        }
+    }
+
+    private static final class LongValue extends JsonStream {
+        private final long value;
+
+        LongValue(long value) {
+            this.value = value;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeNumber(value);
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return jsonNodeFactory.numberNode(value);
+        }
+    }
+
+    private static final class FloatValue extends JsonStream {
+        private final float value;
+
+        FloatValue(float value) {
+            this.value = value;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeNumber(value);
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return jsonNodeFactory.numberNode(value);
+        }
+    }
+
+    private static final class DoubleValue extends JsonStream {
+        private final double value;
+
+        DoubleValue(double value) {
+            this.value = value;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeNumber(value);
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return jsonNodeFactory.numberNode(value);
+        }
+    }
+
+    private static final class BigDecimalValue extends JsonStream {
+        private final BigDecimal value;
+
+        BigDecimalValue(BigDecimal value) {
+            this.value = value;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeNumber(value);
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return jsonNodeFactory.numberNode(value);
+        }
+    }
+
+    private static final class BigIntegerValue extends JsonStream {
+        private final BigInteger value;
+
+        BigIntegerValue(BigInteger value) {
+            this.value = value;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeNumber(value);
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return jsonNodeFactory.numberNode(value);
+        }
+    }
+
+    private static final class NodeValue extends JsonStream {
+        private final JsonNode value;
+
+        NodeValue(JsonNode value) {
+            this.value = value;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            writeNode(generator, value);
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return value;
+        }
+    }
+
+    private static final class ConstantValue extends JsonStream {
+
+        /**
+         * bindings of the encoding of a constant, which can not contain placeholders
+         */
+        private static final Bindings CONSTANT = new Bindings() {
+
+            @Override
+            void write(JsonGenerator generator, JsonTemplate.Placeholder placeholder) {
+                throw new IllegalArgumentException("Placeholder " + placeholder
+                        + " can not be part of a constant, the json of a constant is encoded when it is created");
+            }
+
+            @Override
+            JsonNode node(JsonNodeFactory jsonNodeFactory, JsonTemplate.Placeholder placeholder) {
+                throw new IllegalArgumentException("Placeholder " + placeholder + " can not be part of a constant");
+            }
+
+        };
+
+        private final JsonStream value;
+        private final SerializedString json;
+
+        /**
+         * encode the value with a generator of its own, this is not a serialization reported to the listeners
+         */
+        ConstantValue(JsonStream value) {
+            this.value = value;
+            StringWriter writer = new StringWriter();
+            try {
+                JsonGenerator generator = jsonFactory.createGenerator(writer);
+                try {
+                    value.write(generator, CONSTANT);
+                } finally {
+                    generator.close();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            this.json = new SerializedString(writer.toString());
+            json.asUnquotedUTF8();
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            if (RawJson.isDefault(generator)) {
+                generator.writeRawValue(json);
+            } else {
+                value.write(generator, bindings);
+            }
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return value.node(jsonNodeFactory, bindings);
+        }
+    }
+
+    private static final class BooleanValue extends JsonStream {
+        static final BooleanValue TRUE = new BooleanValue(true);
+        static final BooleanValue FALSE = new BooleanValue(false);
+
+        private final boolean value;
+
+        private BooleanValue(boolean value) {
+            this.value = value;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeBoolean(value);
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return jsonNodeFactory.booleanNode(value);
+        }
+    }
+
+    private static final class NullValue extends JsonStream {
+        static final NullValue NULL = new NullValue();
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            generator.writeNull();
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return jsonNodeFactory.nullNode();
+        }
+    }
+}
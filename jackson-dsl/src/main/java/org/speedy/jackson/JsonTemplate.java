@@ -0,0 +1,356 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Precompiled document shape described with {@link JsonStreamDsl} that contains placeholders for the values that
+ * change <br/>
+ * The constant fragments between the placeholders are encoded once when the template is compiled, binding only
+ * writes those fragments and the given values. Placeholders are either all indexed or all named, named placeholders
+ * get their index in the order of their first occurrence
+ */
+public final class JsonTemplate {
+
+    private final JsonStream shape;
+    private final SerializedString[] fragments;
+    private final int[] slots;
+    private final String[] names;
+    private final int valueCount;
+
+    private JsonTemplate(JsonStream shape, SerializedString[] fragments, int[] slots, String[] names, int valueCount) {
+        this.shape = shape;
+        this.fragments = fragments;
+        this.slots = slots;
+        this.names = names;
+        this.valueCount = valueCount;
+    }
+
+    /**
+     * compile a document shape
+     *
+     * @param shape the document shape with placeholders
+     * @return the template
+     */
+    public static JsonTemplate compile(JsonStream shape) {
+        Compiler compiler = new Compiler();
+        try {
+            JsonGenerator generator = JsonStream.jsonFactory.createGenerator(compiler.outputStream);
+            shape.write(generator, compiler);
+            generator.close();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        compiler.cut();
+        return new JsonTemplate(shape,
+                compiler.fragments.toArray(new SerializedString[compiler.fragments.size()]),
+                toIntArray(compiler.slots),
+                compiler.names.isEmpty() ? null : compiler.names.toArray(new String[compiler.names.size()]),
+                compiler.valueCount);
+    }
+
+    /**
+     * @return the number of values to bind
+     */
+    public int getValueCount() {
+        return valueCount;
+    }
+
+    /**
+     * get the index of a named placeholder in the value array
+     *
+     * @param name the name of the placeholder
+     * @return the index or -1 when there is no placeholder with this name
+     */
+    public int indexOf(String name) {
+        if (names != null) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * write the document with the given values as utf-8 to an output stream, the output stream is not closed
+     *
+     * @param outputStream the output stream
+     * @param values       the values of the placeholders
+     * @throws IOException when the output stream fails to write
+     */
+    public void writeTo(OutputStream outputStream, Object... values) throws IOException {
+        checkValues(values);
+        long start = JsonDslListeners.startSerialization();
+        boolean written = false;
+        try {
+            OutputStream target = JsonDslListeners.counting(outputStream, start);
+            JsonGenerator generator = JsonStream.jsonFactory.createGenerator(target);
+            try {
+                generator.setRootValueSeparator(null);
+                write(generator, values);
+            } finally {
+                generator.close();
+            }
+            written = true;
+            JsonDslListeners.documentSerialized(target, start);
+        } finally {
+            if (!written) {
+                JsonDslListeners.serializationFailed(start);
+            }
+        }
+    }
+
+    /**
+     * write the document with the given values to a json generator, the generator is neither flushed nor closed <br/>
+     * the fragments of the template are written raw, the generator should have no root value separator
+     *
+     * @param generator the json generator
+     * @param values    the values of the placeholders
+     * @throws IOException when the generator fails to write
+     */
+    public void writeTo(JsonGenerator generator, Object... values) throws IOException {
+        checkValues(values);
+        write(generator, values);
+    }
+
+    private void write(JsonGenerator generator, Object[] values) throws IOException {
+        for (int i = 0; i < slots.length; i++) {
+            generator.writeRaw(fragments[i]);
+            writeValue(generator, values[slots[i]]);
+        }
+        generator.writeRaw(fragments[slots.length]);
+    }
+
+    /**
+     * serialize the document with the given values
+     *
+     * @param values the values of the placeholders
+     * @return the utf-8 encoded json
+     */
+    public byte[] toBytes(Object... values) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            writeTo(outputStream, values);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * create the json node of the document with the given values and the default {@link JsonNodeFactory}
+     *
+     * @param values the values of the placeholders
+     * @return the json node
+     */
+    public JsonNode toJsonNode(Object... values) {
+        return toJsonNode(JsonNodeFactory.instance, values);
+    }
+
+    /**
+     * create the json node of the document with the given values
+     *
+     * @param jsonNodeFactory the json node factory
+     * @param values          the values of the placeholders
+     * @return the json node
+     */
+    public JsonNode toJsonNode(JsonNodeFactory jsonNodeFactory, Object... values) {
+        checkValues(values);
+        return shape.node(jsonNodeFactory, new ValueBindings(values));
+    }
+
+    private void checkValues(Object[] values) {
+        if (values.length != valueCount) {
+            throw new IllegalArgumentException("Template expects " + valueCount + " values, got " + values.length);
+        }
+    }
+
+    private int slotOf(Placeholder placeholder) {
+        return placeholder.name != null ? indexOf(placeholder.name) : placeholder.index;
+    }
+
+    private static int[] toIntArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            generator.writeNumber(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            generator.writeNumber((Long) value);
+        } else if (value instanceof Double) {
+            generator.writeNumber((Double) value);
+        } else if (value instanceof Float) {
+            generator.writeNumber((Float) value);
+        } else if (value instanceof BigDecimal) {
+            generator.writeNumber((BigDecimal) value);
+        } else if (value instanceof BigInteger) {
+            generator.writeNumber((BigInteger) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof byte[]) {
+            generator.writeBinary((byte[]) value);
+        } else if (value instanceof JsonNode) {
+            JsonStream.writeNode(generator, (JsonNode) value);
+        } else if (value instanceof JsonStream) {
+            ((JsonStream) value).write(generator, Bindings.NONE);
+        } else {
+            throw new IllegalArgumentException("Unsupported template value type " + value.getClass().getName());
+        }
+    }
+
+    private static JsonNode nodeOf(JsonNodeFactory jsonNodeFactory, Object value) {
+        if (value == null) {
+            return jsonNodeFactory.nullNode();
+        } else if (value instanceof String) {
+            return jsonNodeFactory.textNode((String) value);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return jsonNodeFactory.numberNode(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            return jsonNodeFactory.numberNode((Long) value);
+        } else if (value instanceof Double) {
+            return jsonNodeFactory.numberNode((Double) value);
+        } else if (value instanceof Float) {
+            return jsonNodeFactory.numberNode((Float) value);
+        } else if (value instanceof BigDecimal) {
+            return jsonNodeFactory.numberNode((BigDecimal) value);
+        } else if (value instanceof BigInteger) {
+            return jsonNodeFactory.numberNode((BigInteger) value);
+        } else if (value instanceof Boolean) {
+            return jsonNodeFactory.booleanNode((Boolean) value);
+        } else if (value instanceof byte[]) {
+            return jsonNodeFactory.binaryNode((byte[]) value);
+        } else if (value instanceof JsonNode) {
+            return (JsonNode) value;
+        } else if (value instanceof JsonStream) {
+            return ((JsonStream) value).node(jsonNodeFactory, Bindings.NONE);
+        } else {
+            throw new IllegalArgumentException("Unsupported template value type " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * a value in a document shape that is bound when the template is used
+     */
+    static final class Placeholder extends JsonStream {
+        private final int index;
+        private final String name;
+
+        Placeholder(int index, String name) {
+            this.index = index;
+            this.name = name;
+        }
+
+        void write(JsonGenerator generator, Bindings bindings) throws IOException {
+            bindings.write(generator, this);
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Bindings bindings) {
+            return bindings.node(jsonNodeFactory, this);
+        }
+
+        @Override
+        public String toString() {
+            return name != null ? name : String.valueOf(index);
+        }
+    }
+
+    /**
+     * records the constant fragments between the placeholders while the shape is written
+     */
+    private static final class Compiler extends Bindings {
+        private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        private final List<SerializedString> fragments = new ArrayList<SerializedString>();
+        private final List<Integer> slots = new ArrayList<Integer>();
+        private final List<String> names = new ArrayList<String>();
+        private int valueCount;
+        private int fragmentStart;
+
+        void write(JsonGenerator generator, Placeholder placeholder) throws IOException {
+            // an empty raw value makes the generator write the separator that precedes the value
+            generator.writeRawValue("");
+            generator.flush();
+            cut();
+            slots.add(slot(placeholder));
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Placeholder placeholder) {
+            throw new UnsupportedOperationException();
+        }
+
+        void cut() {
+            byte[] bytes = outputStream.toByteArray();
+            SerializedString fragment;
+            try {
+                fragment = new SerializedString(new String(bytes, fragmentStart, bytes.length - fragmentStart, "UTF-8"));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            fragment.asUnquotedUTF8();
+            fragments.add(fragment);
+            fragmentStart = bytes.length;
+        }
+
+        private int slot(Placeholder placeholder) {
+            if (placeholder.name == null) {
+                if (!names.isEmpty()) {
+                    throw new IllegalArgumentException("A template can not mix indexed and named placeholders");
+                }
+                if (placeholder.index < 0) {
+                    throw new IllegalArgumentException("Placeholder index can not be negative: " + placeholder.index);
+                }
+                valueCount = Math.max(valueCount, placeholder.index + 1);
+                return placeholder.index;
+            }
+            if (valueCount > names.size()) {
+                throw new IllegalArgumentException("A template can not mix indexed and named placeholders");
+            }
+            int slot = names.indexOf(placeholder.name);
+            if (slot < 0) {
+                slot = names.size();
+                names.add(placeholder.name);
+                valueCount++;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * binds the placeholders to the values of an array
+     */
+    private final class ValueBindings extends Bindings {
+        private final Object[] values;
+
+        ValueBindings(Object[] values) {
+            this.values = values;
+        }
+
+        void write(JsonGenerator generator, Placeholder placeholder) throws IOException {
+            writeValue(generator, values[slotOf(placeholder)]);
+        }
+
+        JsonNode node(JsonNodeFactory jsonNodeFactory, Placeholder placeholder) {
+            return nodeOf(jsonNodeFactory, values[slotOf(placeholder)]);
+        }
+    }
+}
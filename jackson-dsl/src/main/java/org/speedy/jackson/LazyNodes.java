@@ -0,0 +1,289 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Creates containers of which the content is computed by a callable when it is first needed <br/>
+ * The container is an object or array node backed by a map or list which calls the callable on the first read,
+ * modification or serialization, at most once and under a lock, and copies the fields or elements of the computed
+ * container, so the computed container may be shared or immutable. A callable which reads the container it computes,
+ * directly or through other lazy containers, fails with an IllegalStateException instead of recursing.
+ * The callable is called with the json node factory of the lazy container bound to the thread
+ */
+final class LazyNodes {
+
+    private LazyNodes() {
+    }
+
+    /**
+     * create a object node of which the fields are computed when they are first needed
+     *
+     * @param jsonNodeFactory the json node factory
+     * @param callable        the callable which creates the object node
+     * @return the lazy object node
+     */
+    static ObjectNode object(JsonNodeFactory jsonNodeFactory, Callable<? extends ObjectNode> callable) {
+        if (callable == null) {
+            throw new IllegalArgumentException("The callable of a lazy object can not be null");
+        }
+        return new LazyObjectNode(jsonNodeFactory, new LazyFields(jsonNodeFactory, callable));
+    }
+
+    /**
+     * create a array node of which the elements are computed when they are first needed
+     *
+     * @param jsonNodeFactory the json node factory
+     * @param callable        the callable which creates the array node
+     * @return the lazy array node
+     */
+    static ArrayNode array(JsonNodeFactory jsonNodeFactory, Callable<? extends ArrayNode> callable) {
+        if (callable == null) {
+            throw new IllegalArgumentException("The callable of a lazy array can not be null");
+        }
+        return new LazyArrayNode(jsonNodeFactory, new LazyElements(jsonNodeFactory, callable));
+    }
+
+    /**
+     * @return true when the json node is a lazy container of which the content is not computed yet
+     */
+    static boolean isPending(JsonNode jsonNode) {
+        if (jsonNode instanceof LazyObjectNode) {
+            return ((LazyObjectNode) jsonNode).fields.fields == null;
+        }
+        return jsonNode instanceof LazyArrayNode && ((LazyArrayNode) jsonNode).elements.elements == null;
+    }
+
+    /**
+     * @return the container created by the callable with the json node factory bound to the thread
+     */
+    private static <T extends JsonNode> T create(JsonNodeFactory jsonNodeFactory, Callable<T> callable) {
+        T jsonNode;
+        try {
+            jsonNode = JsonNodeFactoryScope.call(jsonNodeFactory, callable);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        if (jsonNode == null) {
+            throw new IllegalStateException("The callable of a lazy container returned null");
+        }
+        return jsonNode;
+    }
+
+    /**
+     * @return the exception of a callable which reads the lazy container it computes
+     */
+    private static IllegalStateException cycle(String container, Callable<?> callable) {
+        return new IllegalStateException("Cycle in a lazy " + container + ": the callable " + callable
+                + " reads the " + container + " it computes");
+    }
+
+    /**
+     * @return a mutable copy of the fields of an object node, the values are shared
+     */
+    @SuppressWarnings("deprecation")
+    private static Map<String, JsonNode> copyFields(ObjectNode objectNode) {
+        Map<String, JsonNode> fields = ImmutableNodes.newFields(objectNode.size());
+        for (Iterator<Map.Entry<String, JsonNode>> iterator = objectNode.fields(); iterator.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = iterator.next();
+            fields.put(field.getKey(), field.getValue());
+        }
+        return fields;
+    }
+
+    /**
+     * @return a mutable copy of the elements of an array node, the elements are shared
+     */
+    private static List<JsonNode> copyElements(ArrayNode arrayNode) {
+        List<JsonNode> elements = new ArrayList<JsonNode>(arrayNode.size());
+        for (JsonNode element : arrayNode) {
+            elements.add(element);
+        }
+        return elements;
+    }
+
+    private static final class LazyObjectNode extends ObjectNode {
+
+        private final LazyFields fields;
+
+        LazyObjectNode(JsonNodeFactory jsonNodeFactory, LazyFields fields) {
+            super(jsonNodeFactory, fields);
+            this.fields = fields;
+        }
+    }
+
+    private static final class LazyArrayNode extends ArrayNode {
+
+        private final LazyElements elements;
+
+        LazyArrayNode(JsonNodeFactory jsonNodeFactory, LazyElements elements) {
+            super(jsonNodeFactory, elements);
+            this.elements = elements;
+        }
+    }
+
+    /**
+     * fields of a lazy object node, copied from the object node created on first access
+     */
+    private static final class LazyFields extends AbstractMap<String, JsonNode> {
+
+        private final JsonNodeFactory jsonNodeFactory;
+        private Callable<? extends ObjectNode> callable;
+        private boolean computing;
+        private volatile Map<String, JsonNode> fields;
+
+        LazyFields(JsonNodeFactory jsonNodeFactory, Callable<? extends ObjectNode> callable) {
+            this.jsonNodeFactory = jsonNodeFactory;
+            this.callable = callable;
+        }
+
+        private Map<String, JsonNode> fields() {
+            Map<String, JsonNode> fields = this.fields;
+            if (fields == null) {
+                synchronized (this) {
+                    fields = this.fields;
+                    if (fields == null) {
+                        if (computing) {
+                            throw cycle("object", callable);
+                        }
+                        computing = true;
+                        try {
+                            fields = copyFields(create(jsonNodeFactory, callable));
+                        } finally {
+                            computing = false;
+                        }
+                        this.fields = fields;
+                        callable = null;
+                    }
+                }
+            }
+            return fields;
+        }
+
+        @Override
+        public int size() {
+            return fields().size();
+        }
+
+        @Override
+        public boolean containsKey(Object name) {
+            return fields().containsKey(name);
+        }
+
+        @Override
+        public JsonNode get(Object name) {
+            return fields().get(name);
+        }
+
+        @Override
+        public JsonNode put(String name, JsonNode value) {
+            return fields().put(name, value);
+        }
+
+        @Override
+        public JsonNode remove(Object name) {
+            return fields().remove(name);
+        }
+
+        @Override
+        public void clear() {
+            fields().clear();
+        }
+
+        @Override
+        public Set<Map.Entry<String, JsonNode>> entrySet() {
+            return fields().entrySet();
+        }
+    }
+
+    /**
+     * elements of a lazy array node, copied from the array node created on first access
+     */
+    private static final class LazyElements extends AbstractList<JsonNode> implements RandomAccess {
+
+        private final JsonNodeFactory jsonNodeFactory;
+        private Callable<? extends ArrayNode> callable;
+        private boolean computing;
+        private volatile List<JsonNode> elements;
+
+        LazyElements(JsonNodeFactory jsonNodeFactory, Callable<? extends ArrayNode> callable) {
+            this.jsonNodeFactory = jsonNodeFactory;
+            this.callable = callable;
+        }
+
+        private List<JsonNode> elements() {
+            List<JsonNode> elements = this.elements;
+            if (elements == null) {
+                synchronized (this) {
+                    elements = this.elements;
+                    if (elements == null) {
+                        if (computing) {
+                            throw cycle("array", callable);
+                        }
+                        computing = true;
+                        try {
+                            elements = copyElements(create(jsonNodeFactory, callable));
+                        } finally {
+                            computing = false;
+                        }
+                        this.elements = elements;
+                        callable = null;
+                    }
+                }
+            }
+            return elements;
+        }
+
+        @Override
+        public int size() {
+            return elements().size();
+        }
+
+        @Override
+        public JsonNode get(int index) {
+            return elements().get(index);
+        }
+
+        @Override
+        public JsonNode set(int index, JsonNode element) {
+            return elements().set(index, element);
+        }
+
+        @Override
+        public void add(int index, JsonNode element) {
+            modCount++;
+            elements().add(index, element);
+        }
+
+        @Override
+        public JsonNode remove(int index) {
+            modCount++;
+            return elements().remove(index);
+        }
+
+        @Override
+        public void clear() {
+            modCount++;
+            elements().clear();
+        }
+
+        @Override
+        public Iterator<JsonNode> iterator() {
+            return elements().iterator();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Array node which keeps the primitive array it is created with <br/>
+ * The element nodes are created with the json node factory when they are read and the primitives are written straight
+ * to the generator. The first modification copies the elements into an {@link ArrayList}, the array node behaves as a
+ * normal array node afterwards. The primitive array is copied, later changes of the caller's array are not seen
+ */
+final class PrimitiveArrayNode extends ArrayNode {
+
+    private final PrimitiveList elements;
+
+    private PrimitiveArrayNode(JsonNodeFactory jsonNodeFactory, PrimitiveList elements) {
+        super(jsonNodeFactory, elements);
+        this.elements = elements;
+    }
+
+    static ArrayNode of(JsonNodeFactory jsonNodeFactory, int[] intPrimitives) {
+        IntList elements = new IntList(jsonNodeFactory, Arrays.copyOf(intPrimitives, intPrimitives.length));
+        return new PrimitiveArrayNode(jsonNodeFactory, elements);
+    }
+
+    static ArrayNode of(JsonNodeFactory jsonNodeFactory, long[] longPrimitives) {
+        LongList elements = new LongList(jsonNodeFactory, Arrays.copyOf(longPrimitives, longPrimitives.length));
+        return new PrimitiveArrayNode(jsonNodeFactory, elements);
+    }
+
+    static ArrayNode of(JsonNodeFactory jsonNodeFactory, double[] doublePrimitives) {
+        DoubleList elements = new DoubleList(jsonNodeFactory, Arrays.copyOf(doublePrimitives, doublePrimitives.length));
+        return new PrimitiveArrayNode(jsonNodeFactory, elements);
+    }
+
+    static ArrayNode of(JsonNodeFactory jsonNodeFactory, float[] floatPrimitives) {
+        FloatList elements = new FloatList(jsonNodeFactory, Arrays.copyOf(floatPrimitives, floatPrimitives.length));
+        return new PrimitiveArrayNode(jsonNodeFactory, elements);
+    }
+
+    static ArrayNode of(JsonNodeFactory jsonNodeFactory, boolean[] booleanPrimitives) {
+        BooleanList elements = new BooleanList(jsonNodeFactory,
+                Arrays.copyOf(booleanPrimitives, booleanPrimitives.length));
+        return new PrimitiveArrayNode(jsonNodeFactory, elements);
+    }
+
+    @Override
+    public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+        if (elements.isPrimitive()) {
+            elements.write(generator);
+        } else {
+            super.serialize(generator, provider);
+        }
+    }
+
+    /**
+     * list of json nodes backed by a primitive array until it is modified
+     */
+    private abstract static class PrimitiveList extends AbstractList<JsonNode> implements RandomAccess {
+
+        final JsonNodeFactory jsonNodeFactory;
+        private List<JsonNode> inflated;
+
+        PrimitiveList(JsonNodeFactory jsonNodeFactory) {
+            this.jsonNodeFactory = jsonNodeFactory;
+        }
+
+        abstract int primitiveSize();
+
+        abstract JsonNode primitiveElement(int index);
+
+        abstract void write(JsonGenerator generator) throws IOException;
+
+        boolean isPrimitive() {
+            return inflated == null;
+        }
+
+        private List<JsonNode> inflate() {
+            if (inflated == null) {
+                int size = primitiveSize();
+                List<JsonNode> jsonNodes = new ArrayList<JsonNode>(size + 1);
+                for (int i = 0; i < size; i++) {
+                    jsonNodes.add(primitiveElement(i));
+                }
+                inflated = jsonNodes;
+            }
+            return inflated;
+        }
+
+        @Override
+        public JsonNode get(int index) {
+            if (inflated != null) {
+                return inflated.get(index);
+            }
+            if (index < 0 || index >= primitiveSize()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + primitiveSize());
+            }
+            return primitiveElement(index);
+        }
+
+        @Override
+        public int size() {
+            return inflated != null ? inflated.size() : primitiveSize();
+        }
+
+        @Override
+        public JsonNode set(int index, JsonNode element) {
+            return inflate().set(index, element);
+        }
+
+        @Override
+        public void add(int index, JsonNode element) {
+            modCount++;
+            inflate().add(index, element);
+        }
+
+        @Override
+        public JsonNode remove(int index) {
+            modCount++;
+            return inflate().remove(index);
+        }
+
+        @Override
+        public void clear() {
+            modCount++;
+            inflated = new ArrayList<JsonNode>();
+        }
+    }
+
+    private static final class IntList extends PrimitiveList {
+
+        private final int[] values;
+
+        IntList(JsonNodeFactory jsonNodeFactory, int[] values) {
+            super(jsonNodeFactory);
+            this.values = values;
+        }
+
+        @Override
+        int primitiveSize() {
+            return values.length;
+        }
+
+        @Override
+        JsonNode primitiveElement(int index) {
+            return jsonNodeFactory.numberNode(values[index]);
+        }
+
+        @Override
+        void write(JsonGenerator generator) throws IOException {
+            generator.writeArray(values, 0, values.length);
+        }
+    }
+
+    private static final class LongList extends PrimitiveList {
+
+        private final long[] values;
+
+        LongList(JsonNodeFactory jsonNodeFactory, long[] values) {
+            super(jsonNodeFactory);
+            this.values = values;
+        }
+
+        @Override
+        int primitiveSize() {
+            return values.length;
+        }
+
+        @Override
+        JsonNode primitiveElement(int index) {
+            return jsonNodeFactory.numberNode(values[index]);
+        }
+
+        @Override
+        void write(JsonGenerator generator) throws IOException {
+            generator.writeArray(values, 0, values.length);
+        }
+    }
+
+    private static final class DoubleList extends PrimitiveList {
+
+        private final double[] values;
+
+        DoubleList(JsonNodeFactory jsonNodeFactory, double[] values) {
+            super(jsonNodeFactory);
+            this.values = values;
+        }
+
+        @Override
+        int primitiveSize() {
+            return values.length;
+        }
+
+        @Override
+        JsonNode primitiveElement(int index) {
+            return jsonNodeFactory.numberNode(values[index]);
+        }
+
+        @Override
+        void write(JsonGenerator generator) throws IOException {
+            generator.writeArray(values, 0, values.length);
+        }
+    }
+
+    private static final class FloatList extends PrimitiveList {
+
+        private final float[] values;
+
+        FloatList(JsonNodeFactory jsonNodeFactory, float[] values) {
+            super(jsonNodeFactory);
+            this.values = values;
+        }
+
+        @Override
+        int primitiveSize() {
+            return values.length;
+        }
+
+        @Override
+        JsonNode primitiveElement(int index) {
+            return jsonNodeFactory.numberNode(values[index]);
+        }
+
+        @Override
+        void write(JsonGenerator generator) throws IOException {
+            generator.writeStartArray();
+            for (float value : values) {
+                generator.writeNumber(value);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private static final class BooleanList extends PrimitiveList {
+
+        private final boolean[] values;
+
+        BooleanList(JsonNodeFactory jsonNodeFactory, boolean[] values) {
+            super(jsonNodeFactory);
+            this.values = values;
+        }
+
+        @Override
+        int primitiveSize() {
+            return values.length;
+        }
+
+        @Override
+        JsonNode primitiveElement(int index) {
+            return jsonNodeFactory.booleanNode(values[index]);
+        }
+
+        @Override
+        void write(JsonGenerator generator) throws IOException {
+            generator.writeStartArray();
+            for (boolean value : values) {
+                generator.writeBoolean(value);
+            }
+            generator.writeEndArray();
+        }
+    }
+}
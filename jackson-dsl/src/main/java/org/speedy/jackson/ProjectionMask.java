@@ -0,0 +1,222 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Compiled set of field paths which selects the part of a document that is built <br/>
+ * A path is a list of field names separated by dots, [*] selects every element of an array, for example
+ * {@code order.status} or {@code items[*].id}. A selected field includes its whole subtree. A document or object
+ * created with a mask skips the tuples outside the mask without reading their value, so the value of a closure tuple
+ * is never computed, and prunes the containers of the selected tuples. A pending lazy container is pruned when it is
+ * computed, a value node below a selected path which is not selected itself is dropped
+ */
+public final class ProjectionMask {
+
+    private final List<String> paths;
+    private final Node root;
+
+    private ProjectionMask(List<String> paths, Node root) {
+        this.paths = paths;
+        this.root = root;
+    }
+
+    /**
+     * compile a projection mask
+     *
+     * @param paths the selected paths, for example a.b or items[*].id
+     * @return the projection mask
+     */
+    public static ProjectionMask compile(String... paths) {
+        Node root = new Node();
+        for (String path : paths) {
+            add(root, path);
+        }
+        return new ProjectionMask(Collections.unmodifiableList(Arrays.asList(paths.clone())), root);
+    }
+
+    private static void add(Node root, String path) {
+        if (path == null || path.length() == 0) {
+            throw new IllegalArgumentException("A projection path can not be empty");
+        }
+        Node node = root;
+        for (String segment : path.split("\\.", -1)) {
+            int bracket = segment.indexOf('[');
+            String name = bracket < 0 ? segment : segment.substring(0, bracket);
+            if (name.length() == 0) {
+                throw new IllegalArgumentException("Missing field name in projection path " + path);
+            }
+            node = node.field(name);
+            for (int i = bracket; i >= 0 && i < segment.length(); i += 3) {
+                if (!segment.startsWith("[*]", i)) {
+                    throw new IllegalArgumentException("Invalid array selector in projection path " + path);
+                }
+                node = node.elements();
+            }
+        }
+        node.selectAll();
+    }
+
+    /**
+     * @return the paths of this mask
+     */
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    /**
+     * create a pruned copy of an object node, the selected subtrees are shared with the object node
+     *
+     * @param objectNode the object node, it is not changed
+     * @return the pruned object node
+     */
+    public ObjectNode apply(ObjectNode objectNode) {
+        return (ObjectNode) prune(JsonNodeFactoryScope.current(), objectNode, root);
+    }
+
+    /**
+     * create a object node with the tuples selected by this mask, the value of a skipped tuple is not read
+     *
+     * @param jsonNodeFactory the json node factory
+     * @param tuples          the tuples
+     * @return the object node
+     */
+    ObjectNode object(JsonNodeFactory jsonNodeFactory, TupleDsl.Tuple<?>[] tuples) {
+        int size = 0;
+        Node[] selected = new Node[tuples.length];
+        String[] names = new String[tuples.length];
+        for (int i = 0; i < tuples.length; i++) {
+            names[i] = tuples[i].getName();
+            selected[i] = root.fields.get(names[i]);
+            if (selected[i] != null) {
+                size++;
+            }
+        }
+        ObjectNode objectNode = TupleDsl.newObjectNode(jsonNodeFactory, size);
+        for (int i = 0; i < tuples.length; i++) {
+            if (selected[i] != null) {
+                JsonNode value = prune(jsonNodeFactory, tuples[i].getValue(), selected[i]);
+                if (value != null) {
+                    objectNode.set(names[i], value);
+                }
+            }
+        }
+        return objectNode;
+    }
+
+    /**
+     * @return the part of a json node selected by a node of the mask, or null when nothing is selected
+     */
+    private static JsonNode prune(final JsonNodeFactory jsonNodeFactory, final JsonNode jsonNode, final Node node) {
+        if (node.all || jsonNode == null) {
+            return jsonNode;
+        }
+        if (LazyNodes.isPending(jsonNode)) {
+            if (jsonNode.isObject()) {
+                return LazyNodes.object(jsonNodeFactory, new Callable<ObjectNode>() {
+
+                    public ObjectNode call() {
+                        return pruneObject(jsonNodeFactory, jsonNode, node);
+                    }
+
+                });
+            }
+            return LazyNodes.array(jsonNodeFactory, new Callable<ArrayNode>() {
+
+                public ArrayNode call() {
+                    return pruneArray(jsonNodeFactory, jsonNode, node);
+                }
+
+            });
+        }
+        if (jsonNode.isObject()) {
+            return pruneObject(jsonNodeFactory, jsonNode, node);
+        }
+        if (jsonNode.isArray()) {
+            return pruneArray(jsonNodeFactory, jsonNode, node);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static ObjectNode pruneObject(JsonNodeFactory jsonNodeFactory, JsonNode objectNode, Node node) {
+        ObjectNode pruned = TupleDsl.newObjectNode(jsonNodeFactory, Math.min(objectNode.size(), node.fields.size()));
+        for (Iterator<Map.Entry<String, JsonNode>> iterator = objectNode.fields(); iterator.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = iterator.next();
+            Node child = node.fields.get(field.getKey());
+            JsonNode value = child != null ? prune(jsonNodeFactory, field.getValue(), child) : null;
+            if (value != null) {
+                pruned.set(field.getKey(), value);
+            }
+        }
+        return pruned;
+    }
+
+    private static ArrayNode pruneArray(JsonNodeFactory jsonNodeFactory, JsonNode arrayNode, Node node) {
+        ArrayNode pruned = TupleDsl.newArrayNode(jsonNodeFactory, node.elements != null ? arrayNode.size() : 0);
+        if (node.elements != null) {
+            for (JsonNode element : arrayNode) {
+                JsonNode value = prune(jsonNodeFactory, element, node.elements);
+                if (value != null) {
+                    pruned.add(value);
+                }
+            }
+        }
+        return pruned;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        return object == this || object instanceof ProjectionMask && paths.equals(((ProjectionMask) object).paths);
+    }
+
+    @Override
+    public int hashCode() {
+        return paths.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ProjectionMask" + paths;
+    }
+
+    /**
+     * node of the mask tree, all is set when the whole subtree is selected
+     */
+    private static final class Node {
+
+        private final Map<String, Node> fields = new HashMap<String, Node>();
+        private Node elements;
+        private boolean all;
+
+        Node field(String name) {
+            Node node = fields.get(name);
+            if (node == null) {
+                node = new Node();
+                fields.put(name, node);
+            }
+            return node;
+        }
+
+        Node elements() {
+            if (elements == null) {
+                elements = new Node();
+            }
+            return elements;
+        }
+
+        void selectAll() {
+            all = true;
+        }
+    }
+}
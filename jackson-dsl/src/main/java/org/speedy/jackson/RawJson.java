@@ -0,0 +1,99 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Json which is serialized once and written as a raw value afterwards <br/>
+ * The raw json is only written to a generator which writes the same output as the generator which created it: no
+ * pretty printer or character escapes, the default features, and the same serialization config. Other generators
+ * serialize the node as usual
+ */
+final class RawJson {
+
+    /**
+     * factory of the generators which serialize the raw json
+     */
+    static final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * the generator features which do not change the written json
+     */
+    private static final int IGNORED_FEATURES = JsonGenerator.Feature.AUTO_CLOSE_TARGET.getMask()
+            | JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT.getMask()
+            | JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM.getMask();
+
+    private static final int DEFAULT_FEATURES = JsonGenerator.Feature.collectDefaults() & ~IGNORED_FEATURES;
+
+    private final Object config;
+    private final SerializedString json;
+
+    private RawJson(Object config, SerializedString json) {
+        this.config = config;
+        this.json = json;
+    }
+
+    /**
+     * node of which the json can be serialized in advance
+     */
+    interface Contents {
+
+        /**
+         * serialize the node without its raw json
+         */
+        void serializeContents(JsonGenerator generator, SerializerProvider provider) throws IOException;
+    }
+
+    /**
+     * @return true when the generator writes the json of a generator of {@link #jsonFactory} with the default
+     * features, so it can write raw json created for the same serialization config
+     */
+    static boolean isDefault(JsonGenerator generator) {
+        return generator.getPrettyPrinter() == null
+                && generator.getCharacterEscapes() == null
+                && generator.getHighestEscapedChar() == 0
+                && (generator.getFeatureMask() & ~IGNORED_FEATURES) == DEFAULT_FEATURES;
+    }
+
+    /**
+     * @return the serialization config of a provider, which decides how the values of a tree are written
+     */
+    static Object config(SerializerProvider provider) {
+        return provider != null ? provider.getConfig() : null;
+    }
+
+    /**
+     * write the raw json of an immutable node, it is serialized again when the serialization config changed
+     *
+     * @param rawJson the raw json of the last serialization, or null
+     * @return the raw json which was written, or null when the generator can not write raw json, the node is then
+     * serialized as usual
+     */
+    static RawJson write(RawJson rawJson, Contents node, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+        if (!isDefault(generator)) {
+            return null;
+        }
+        Object currentConfig = config(provider);
+        RawJson current = rawJson;
+        if (current == null || current.config != currentConfig) {
+            StringWriter writer = new StringWriter();
+            JsonGenerator jsonGenerator = jsonFactory.createGenerator(writer);
+            try {
+                node.serializeContents(jsonGenerator, provider);
+            } finally {
+                jsonGenerator.close();
+            }
+            SerializedString json = new SerializedString(writer.toString());
+            json.asUnquotedUTF8();
+            current = new RawJson(currentConfig, json);
+        }
+        generator.writeRawValue(current.json);
+        return current;
+    }
+}
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.node.*;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.LinkedHashMap;
 
 /**
  * Tuple dsl to simplify the creation of key-value pairs in an json object node
@@ -12,14 +13,48 @@ import java.math.BigInteger;
  */
 abstract class TupleDsl {
 
-    protected final static ThreadLocal<JsonNodeFactory> jsonNodeFactoryThreadLocal = new ThreadLocal<JsonNodeFactory>() {
+    /**
+     * the json node factory of the static dsl methods outside of a {@link JsonDsl#withFactory} scope
+     *
+     * @deprecated use {@link JsonDsl#withFactory(JsonNodeFactory, java.util.concurrent.Callable)} or
+     * {@link JsonDsl#with(JsonNodeFactory)}, a factory bound by them takes precedence over this thread local
+     */
+    @Deprecated
+    protected final static ThreadLocal<JsonNodeFactory> jsonNodeFactoryThreadLocal =
+            JsonNodeFactoryScope.jsonNodeFactoryThreadLocal;
 
-        @Override
-        protected JsonNodeFactory initialValue() {
-            return JsonNodeFactory.instance;
+    /**
+     * create a object node with room for the given number of fields, small objects keep their fields in a
+     * {@link CompactObjectMap}
+     *
+     * @param jsonNodeFactory the json node factory
+     * @param size            the expected number of fields
+     * @return the object node
+     */
+    static ObjectNode newObjectNode(JsonNodeFactory jsonNodeFactory, int size) {
+        if (size <= CompactObjectMap.THRESHOLD) {
+            return new ObjectNode(jsonNodeFactory, new CompactObjectMap(size));
         }
+        return new ObjectNode(jsonNodeFactory, new LinkedHashMap<String, JsonNode>(capacity(size)));
+    }
 
-    };
+    /**
+     * create a array node with room for the given number of elements
+     *
+     * @param jsonNodeFactory the json node factory
+     * @param size            the expected number of elements
+     * @return the array node
+     */
+    static ArrayNode newArrayNode(JsonNodeFactory jsonNodeFactory, int size) {
+        return new ArrayNode(jsonNodeFactory, size);
+    }
+
+    /**
+     * @return the initial capacity of a hash map that holds the given number of entries without resizing
+     */
+    static int capacity(int size) {
+        return size < 3 ? size + 1 : (int) (size / 0.75f + 1.0f);
+    }
 
     /**
      * create a tuple
@@ -251,7 +286,7 @@ abstract class TupleDsl {
      *
      * @param <T> the type of the value of tuple
      */
-    private static final class TupleObject<T extends JsonNode> implements Tuple<T> {
+    static final class TupleObject<T extends JsonNode> implements Tuple<T> {
         private final String left;
         private final T right;
 
@@ -281,75 +316,75 @@ abstract class TupleDsl {
         }
 
         static Tuple<TextNode> of(String left, String right) {
-            return new TupleObject<TextNode>(left, jsonNodeFactoryThreadLocal.get().textNode(right));
+            return new TupleObject<TextNode>(left, JsonNodeFactoryScope.current().textNode(right));
         }
 
         static Tuple<BooleanNode> of(String left, boolean right) {
-            return new TupleObject<BooleanNode>(left, jsonNodeFactoryThreadLocal.get().booleanNode(right));
+            return new TupleObject<BooleanNode>(left, JsonNodeFactoryScope.current().booleanNode(right));
         }
 
         static Tuple<BooleanNode> of(String left, Boolean right) {
-            return new TupleObject<BooleanNode>(left, jsonNodeFactoryThreadLocal.get().booleanNode(right));
+            return new TupleObject<BooleanNode>(left, JsonNodeFactoryScope.current().booleanNode(right));
         }
 
         static Tuple<NumericNode> of(String left, byte right) {
-            return new TupleObject<NumericNode>(left, jsonNodeFactoryThreadLocal.get().numberNode(right));
+            return new TupleObject<NumericNode>(left, JsonNodeFactoryScope.current().numberNode(right));
         }
 
         static Tuple<BinaryNode> of(String left, byte[] right) {
-            return new TupleObject<BinaryNode>(left, jsonNodeFactoryThreadLocal.get().binaryNode(right));
+            return new TupleObject<BinaryNode>(left, JsonNodeFactoryScope.current().binaryNode(right));
         }
 
         static Tuple<NumericNode> of(String left, short right) {
-            return new TupleObject<NumericNode>(left, jsonNodeFactoryThreadLocal.get().numberNode(right));
+            return new TupleObject<NumericNode>(left, JsonNodeFactoryScope.current().numberNode(right));
         }
 
         static Tuple<NumericNode> of(String left, int right) {
-            return new TupleObject<NumericNode>(left, jsonNodeFactoryThreadLocal.get().numberNode(right));
+            return new TupleObject<NumericNode>(left, JsonNodeFactoryScope.current().numberNode(right));
         }
 
         static Tuple<NumericNode> of(String left, long right) {
-            return new TupleObject<NumericNode>(left, jsonNodeFactoryThreadLocal.get().numberNode(right));
+            return new TupleObject<NumericNode>(left, JsonNodeFactoryScope.current().numberNode(right));
         }
 
         static Tuple<NumericNode> of(String left, float right) {
-            return new TupleObject<NumericNode>(left, jsonNodeFactoryThreadLocal.get().numberNode(right));
+            return new TupleObject<NumericNode>(left, JsonNodeFactoryScope.current().numberNode(right));
         }
 
         static Tuple<NumericNode> of(String left, double right) {
-            return new TupleObject<NumericNode>(left, jsonNodeFactoryThreadLocal.get().numberNode(right));
+            return new TupleObject<NumericNode>(left, JsonNodeFactoryScope.current().numberNode(right));
         }
 
         static Tuple<ValueNode> of(String left, Byte right) {
-            return new TupleObject<ValueNode>(left, jsonNodeFactoryThreadLocal.get().numberNode(right));
+            return new TupleObject<ValueNode>(left, JsonNodeFactoryScope.current().numberNode(right));
         }
 
         static Tuple<ValueNode> of(String left, Short right) {
-            return new TupleObject<ValueNode>(left, jsonNodeFactoryThreadLocal.get().numberNode(right));
+            return new TupleObject<ValueNode>(left, JsonNodeFactoryScope.current().numberNode(right));
         }
 
         static Tuple<ValueNode> of(String left, Integer right) {
-            return new TupleObject<ValueNode>(left, jsonNodeFactoryThreadLocal.get().numberNode(right));
+            return new TupleObject<ValueNode>(left, JsonNodeFactoryScope.current().numberNode(right));
         }
 
         static Tuple<ValueNode> of(String left, Long right) {
-            return new TupleObject<ValueNode>(left, jsonNodeFactoryThreadLocal.get().numberNode(right));
+            return new TupleObject<ValueNode>(left, JsonNodeFactoryScope.current().numberNode(right));
         }
 
         static Tuple<ValueNode> of(String left, Float right) {
-            return new TupleObject<ValueNode>(left, jsonNodeFactoryThreadLocal.get().numberNode(right));
+            return new TupleObject<ValueNode>(left, JsonNodeFactoryScope.current().numberNode(right));
         }
 
         static Tuple<ValueNode> of(String left, Double right) {
-            return new TupleObject<ValueNode>(left, jsonNodeFactoryThreadLocal.get().numberNode(right));
+            return new TupleObject<ValueNode>(left, JsonNodeFactoryScope.current().numberNode(right));
         }
 
         static Tuple<ValueNode> of(String left, BigDecimal right) {
-            return new TupleObject<ValueNode>(left, jsonNodeFactoryThreadLocal.get().numberNode(right));
+            return new TupleObject<ValueNode>(left, JsonNodeFactoryScope.current().numberNode(right));
         }
 
         static Tuple<ValueNode> of(String left, BigInteger right) {
-            return new TupleObject<ValueNode>(left, jsonNodeFactoryThreadLocal.get().numberNode(right));
+            return new TupleObject<ValueNode>(left, JsonNodeFactoryScope.current().numberNode(right));
         }
     }
 }
@@ -0,0 +1,240 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.util.Arrays;
+
+/**
+ * Java Flight Recorder events of the dsl <br/>
+ * An event begins when a call of the dsl starts and is committed when the call returns, so its duration spans the
+ * call. The begun events of a thread are kept in a stack as the calls nest, the event of a call which fails is
+ * popped and dropped. No event is created while its type is disabled in the recording, and the node count of a
+ * document is only computed when its event is enabled
+ */
+final class FlightRecorderSupport {
+
+    private FlightRecorderSupport() {
+    }
+
+    static boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * @return the listener which emits the events
+     */
+    static JsonDslListener newListener() {
+        return new FlightRecorderListener();
+    }
+
+    private static final class FlightRecorderListener implements JsonDslCallListener {
+
+        private static final EventType documentBuiltType = EventType.getEventType(DocumentBuiltEvent.class);
+        private static final EventType closureNameType = EventType.getEventType(ClosureNameEvent.class);
+        private static final EventType documentSerializedType = EventType.getEventType(DocumentSerializedEvent.class);
+
+        /**
+         * the calls in progress on a thread
+         */
+        private final ThreadLocal<CallStack> calls = new ThreadLocal<CallStack>() {
+
+            @Override
+            protected CallStack initialValue() {
+                return new CallStack();
+            }
+
+        };
+
+        @Override
+        public void callStarted(Call call) {
+            Event event = null;
+            switch (call) {
+                case BUILD:
+                    if (documentBuiltType.isEnabled()) {
+                        event = new DocumentBuiltEvent();
+                    }
+                    break;
+                case CLOSURE_NAME:
+                    if (closureNameType.isEnabled()) {
+                        event = new ClosureNameEvent();
+                    }
+                    break;
+                default:
+                    if (documentSerializedType.isEnabled()) {
+                        event = new DocumentSerializedEvent();
+                    }
+                    break;
+            }
+            if (event != null) {
+                event.begin();
+            }
+            calls.get().push(call, event);
+        }
+
+        @Override
+        public void callFailed(Call call) {
+            calls.get().pop(call);
+        }
+
+        @Override
+        public void documentBuilt(ObjectNode document, long nanos) {
+            Object begun = calls.get().pop(Call.BUILD);
+            DocumentBuiltEvent event;
+            if (begun instanceof DocumentBuiltEvent) {
+                event = (DocumentBuiltEvent) begun;
+            } else if (begun == null && documentBuiltType.isEnabled()) {
+                event = new DocumentBuiltEvent();
+            } else {
+                return;
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.fieldCount = document.size();
+                event.nodeCount = DocumentStatistics.of(document).getNodes();
+                event.buildTime = nanos;
+                event.commit();
+            }
+        }
+
+        @Override
+        public void closureNameResolved(Class<?> closureClass, boolean cacheHit, long nanos) {
+            Object begun = calls.get().pop(Call.CLOSURE_NAME);
+            ClosureNameEvent event;
+            if (begun instanceof ClosureNameEvent) {
+                event = (ClosureNameEvent) begun;
+            } else if (begun == null && closureNameType.isEnabled()) {
+                event = new ClosureNameEvent();
+            } else {
+                return;
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.closureClass = closureClass;
+                event.cacheHit = cacheHit;
+                event.resolutionTime = nanos;
+                event.commit();
+            }
+        }
+
+        @Override
+        public void documentSerialized(long bytes, long nanos) {
+            Object begun = calls.get().pop(Call.SERIALIZATION);
+            DocumentSerializedEvent event;
+            if (begun instanceof DocumentSerializedEvent) {
+                event = (DocumentSerializedEvent) begun;
+            } else if (begun == null && documentSerializedType.isEnabled()) {
+                event = new DocumentSerializedEvent();
+            } else {
+                return;
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.byteSize = bytes;
+                event.serializationTime = nanos;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * the calls in progress on a thread, the innermost call last. A call started while its event type was disabled
+     * keeps the {@link #NOT_BEGUN} marker instead of an event
+     */
+    private static final class CallStack {
+
+        static final Object NOT_BEGUN = new Object();
+
+        private JsonDslCallListener.Call[] calls = new JsonDslCallListener.Call[8];
+        private Object[] events = new Object[8];
+        private int size;
+
+        void push(JsonDslCallListener.Call call, Event event) {
+            if (size == calls.length) {
+                calls = Arrays.copyOf(calls, size * 2);
+                events = Arrays.copyOf(events, size * 2);
+            }
+            calls[size] = call;
+            events[size] = event != null ? event : NOT_BEGUN;
+            size++;
+        }
+
+        /**
+         * end the innermost call when it is of the kind, the started and ended calls are balanced, so it is only of
+         * another kind when the listener was added while the call ran
+         *
+         * @return the begun event of the call, {@link #NOT_BEGUN} when its event type was disabled, or null when no
+         * call of the kind was started
+         */
+        Object pop(JsonDslCallListener.Call call) {
+            if (size == 0 || calls[size - 1] != call) {
+                return null;
+            }
+            size--;
+            Object event = events[size];
+            calls[size] = null;
+            events[size] = null;
+            return event;
+        }
+    }
+
+    @Name("org.speedy.jackson.DocumentBuilt")
+    @Label("Json Document Built")
+    @Category("Json DSL")
+    @Description("A jsonDocument call of the json dsl")
+    @StackTrace(false)
+    static final class DocumentBuiltEvent extends Event {
+
+        @Label("Field Count")
+        int fieldCount;
+
+        @Label("Node Count")
+        long nodeCount;
+
+        @Label("Build Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long buildTime;
+    }
+
+    @Name("org.speedy.jackson.ClosureName")
+    @Label("Tuple Closure Name")
+    @Category("Json DSL")
+    @Description("The lookup of the tuple name of a closure, the name is resolved once per closure class")
+    @StackTrace(false)
+    static final class ClosureNameEvent extends Event {
+
+        @Label("Closure Class")
+        Class<?> closureClass;
+
+        @Label("Cache Hit")
+        boolean cacheHit;
+
+        @Label("Resolution Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long resolutionTime;
+    }
+
+    @Name("org.speedy.jackson.DocumentSerialized")
+    @Label("Json Document Serialized")
+    @Category("Json DSL")
+    @Description("The serialization of a document of the json dsl")
+    @StackTrace(false)
+    static final class DocumentSerializedEvent extends Event {
+
+        @Label("Byte Size")
+        @DataAmount
+        long byteSize;
+
+        @Label("Serialization Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long serializationTime;
+    }
+}
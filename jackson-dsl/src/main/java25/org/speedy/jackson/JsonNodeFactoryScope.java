@@ -0,0 +1,64 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.util.concurrent.Callable;
+
+/**
+ * The json node factory used by the static dsl methods <br/>
+ * A factory is bound for the duration of a call and the previous factory is restored afterwards, so scopes can be
+ * nested. This implementation keeps the factory in a {@link ScopedValue}, which does not store a value per thread
+ * and is inherited by the subtasks of a structured task scope. A factory set in the deprecated
+ * {@link TupleDsl#jsonNodeFactoryThreadLocal} is used outside of a scope, the thread local is only read once it
+ * has been set
+ */
+final class JsonNodeFactoryScope {
+
+    private static final ScopedValue<JsonNodeFactory> jsonNodeFactoryScopedValue = ScopedValue.newInstance();
+
+    private static volatile boolean threadLocalSet;
+
+    /**
+     * the factory set with the deprecated {@link TupleDsl#jsonNodeFactoryThreadLocal}
+     */
+    static final ThreadLocal<JsonNodeFactory> jsonNodeFactoryThreadLocal = new ThreadLocal<JsonNodeFactory>() {
+
+        @Override
+        protected JsonNodeFactory initialValue() {
+            return JsonNodeFactory.instance;
+        }
+
+        @Override
+        public void set(JsonNodeFactory jsonNodeFactory) {
+            threadLocalSet = true;
+            super.set(jsonNodeFactory);
+        }
+
+    };
+
+    private JsonNodeFactoryScope() {
+    }
+
+    /**
+     * @return the json node factory bound to the current thread or {@link JsonNodeFactory#instance}
+     */
+    static JsonNodeFactory current() {
+        if (jsonNodeFactoryScopedValue.isBound()) {
+            return jsonNodeFactoryScopedValue.get();
+        }
+        return threadLocalSet ? jsonNodeFactoryThreadLocal.get() : JsonNodeFactory.instance;
+    }
+
+    /**
+     * call a callable with a json node factory bound to the current thread
+     *
+     * @param jsonNodeFactory the json node factory
+     * @param callable        the callable
+     * @param <T>             the type of the result
+     * @return the result of the callable
+     * @throws Exception the exception of the callable
+     */
+    static <T> T call(JsonNodeFactory jsonNodeFactory, Callable<T> callable) throws Exception {
+        return ScopedValue.where(jsonNodeFactoryScopedValue, jsonNodeFactory).call(callable::call);
+    }
+}
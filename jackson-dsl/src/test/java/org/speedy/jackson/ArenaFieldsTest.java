@@ -0,0 +1,16 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Map;
+
+/**
+ * The fields of a recycled object node behave like a {@link java.util.LinkedHashMap}, also once they are indexed
+ */
+class ArenaFieldsTest extends ObjectFieldsContract {
+
+    @Override
+    Map<String, JsonNode> newFields() {
+        return new ArenaFields();
+    }
+}
@@ -0,0 +1,143 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BinaryNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.speedy.jackson.JsonDsl.*;
+
+/**
+ * A binary document decodes to the json node it was encoded from, and writes the same json text
+ */
+class BinaryDocumentTest {
+
+    private static final int DOCUMENTS = 100;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void everyValueRoundTrips() throws Exception {
+        assertRoundTrip(document(0));
+    }
+
+    @Test
+    void scalarRoots() throws Exception {
+        JsonNodeFactory jsonNodeFactory = JsonNodeFactory.instance;
+        assertRoundTrip(jsonNodeFactory.nullNode());
+        assertRoundTrip(jsonNodeFactory.booleanNode(true));
+        assertRoundTrip(jsonNodeFactory.numberNode(Long.MIN_VALUE));
+        assertRoundTrip(jsonNodeFactory.textNode(""));
+        assertRoundTrip(array(new JsonNode[0]));
+    }
+
+    @Test
+    void strings() throws Exception {
+        // ascii, two and three byte characters, a surrogate pair and escaped control characters
+        assertRoundTrip(array("plain", "caf\u00e9", "\u2603 snow", "\ud83d\ude00 smile", "quote \" \\ \n\t\u0001"));
+    }
+
+    @Test
+    void loneSurrogatesAreReplaced() {
+        BinaryDocument binaryDocument = BinaryDocument.encode(array("a\ud800b", "\udfff"));
+        assertEquals("a?b", binaryDocument.root().get(0).textValue());
+        assertEquals("?", binaryDocument.root().get(1).textValue());
+    }
+
+    @Test
+    void largeObjectsAreFoundByName() throws Exception {
+        ObjectNode objectNode = JsonNodeFactory.instance.objectNode();
+        for (int i = 0; i < 10 * CompactObjectMap.THRESHOLD; i++) {
+            objectNode.put("field" + (i * 7919 % 1000), i);
+        }
+        JsonNode root = assertRoundTrip(objectNode);
+        for (int i = 0; i < 10 * CompactObjectMap.THRESHOLD; i++) {
+            String name = "field" + (i * 7919 % 1000);
+            assertEquals(objectNode.get(name), root.get(name));
+        }
+        assertEquals(null, root.get("missing"));
+    }
+
+    @Test
+    void documentsInOneBuffer() throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            BinaryDocument.encode(document(i), buffer);
+        }
+        buffer.flip();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            BinaryDocument binaryDocument = BinaryDocument.wrap(buffer);
+            assertEquals(document(i), binaryDocument.root());
+            assertEquals(objectMapper.writeValueAsString(document(i)), binaryDocument.toString());
+        }
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    void tooSmallBufferIsNotChanged() {
+        final ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.position(3);
+        assertThrows(BufferOverflowException.class, new Executable() {
+
+            public void execute() {
+                BinaryDocument.encode(document(0), buffer);
+            }
+
+        });
+        assertEquals(3, buffer.position());
+    }
+
+    @Test
+    void wrapRejectsOtherBytes() {
+        assertThrows(IllegalArgumentException.class, new Executable() {
+
+            public void execute() {
+                BinaryDocument.wrap(ByteBuffer.wrap("{\"name\":\"value\"}".getBytes()));
+            }
+
+        });
+    }
+
+    private static ObjectNode document(int id) {
+        ArrayNode empty = array(new JsonNode[0]);
+        return object(
+                tuple("id", id),
+                tuple("long", 1L << 40),
+                tuple("float", 1.5f),
+                tuple("double", id * 0.25d),
+                tuple("bigInteger", BigInteger.TEN.pow(30)),
+                tuple("bigDecimal", new BigDecimal("12345678901234567890.125")),
+                tuple("true", true),
+                tuple("false", false),
+                tuple("null", (String) null),
+                tuple("text", "document " + id),
+                tuple("binary", new BinaryNode(new byte[]{0, 1, 2, (byte) 0xff})),
+                tuple("empty", object()),
+                tuple("emptyArray", empty),
+                tuple("nested", object(tuple("array", array(1, 2, 3)), tuple("object", object(tuple("deep", "x"))))));
+    }
+
+    /**
+     * @return the decoded root of the encoded json node
+     */
+    private JsonNode assertRoundTrip(JsonNode jsonNode) throws Exception {
+        BinaryDocument binaryDocument = BinaryDocument.encode(jsonNode);
+        assertEquals(jsonNode, binaryDocument.root());
+        assertEquals(objectMapper.writeValueAsString(jsonNode), binaryDocument.toString());
+        assertEquals(objectMapper.writeValueAsString(jsonNode), objectMapper.writeValueAsString(binaryDocument.root()));
+        BinaryDocument wrapped = BinaryDocument.wrap(binaryDocument.getBuffer());
+        assertEquals(jsonNode, wrapped.root());
+        return binaryDocument.root();
+    }
+}
@@ -0,0 +1,65 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The text cache of a {@link CachingJsonNodeFactory} stays bounded and keeps the texts which are used, also when
+ * threads share the factory
+ */
+class CachingJsonNodeFactoryTest {
+
+    private static final int THREADS = 8;
+    private static final int TEXTS = 100000;
+
+    @Test
+    void usedTextsSurviveEviction() {
+        CachingJsonNodeFactory jsonNodeFactory = new CachingJsonNodeFactory(0, 0, 4);
+        TextNode used = jsonNodeFactory.textNode("used");
+        for (int i = 0; i < 100; i++) {
+            assertSame(used, jsonNodeFactory.textNode("used"));
+            jsonNodeFactory.textNode("text" + i);
+        }
+        assertEquals(4, jsonNodeFactory.getTextCacheSize());
+        assertEquals(100, jsonNodeFactory.getTextHits());
+        assertEquals(101, jsonNodeFactory.getTextMisses());
+        assertEquals(97, jsonNodeFactory.getTextEvictions());
+    }
+
+    @Test
+    void sharedFactoryCountsEveryNode() throws InterruptedException {
+        final CachingJsonNodeFactory jsonNodeFactory = new CachingJsonNodeFactory(0, 99, 64);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < THREADS; t++) {
+            final int offset = t;
+            Thread thread = new Thread(new Runnable() {
+
+                public void run() {
+                    for (int i = 0; i < TEXTS; i++) {
+                        jsonNodeFactory.textNode("text" + (i + offset) % 100);
+                        jsonNodeFactory.numberNode(i % 200);
+                    }
+                }
+
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(jsonNodeFactory.getTextCacheSize() <= 64);
+        assertEquals(THREADS * TEXTS, jsonNodeFactory.getTextHits() + jsonNodeFactory.getTextMisses());
+        assertEquals(jsonNodeFactory.getTextMisses() - jsonNodeFactory.getTextCacheSize(),
+                jsonNodeFactory.getTextEvictions());
+        assertEquals(THREADS * TEXTS / 2, jsonNodeFactory.getNumberHits());
+        assertEquals(THREADS * TEXTS / 2, jsonNodeFactory.getNumberMisses());
+    }
+}
@@ -0,0 +1,16 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Map;
+
+/**
+ * A compact object map behaves like a {@link java.util.LinkedHashMap}, also after it moved its fields to one
+ */
+class CompactObjectMapTest extends ObjectFieldsContract {
+
+    @Override
+    Map<String, JsonNode> newFields() {
+        return new CompactObjectMap(2);
+    }
+}
@@ -0,0 +1,107 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.CharacterEscapes;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.speedy.jackson.JsonDsl.*;
+
+/**
+ * A constant node must serialize like the node it was created from, whatever the generator and the mapper
+ */
+class ConstantNodesTest {
+
+    private final ObjectNode objectNode = object(
+            tuple("name", "caf\u00e9 \u2603"),
+            tuple("count", 42),
+            tuple("price", 12.5d),
+            tuple("empty", array(new String[0])),
+            tuple("tags", array("a", "b")));
+    private final ArrayNode arrayNode = array(objectNode, number(7), text("\u00fcber"));
+
+    private final ObjectNode constantObject = constant(objectNode);
+    private final ArrayNode constantArray = constant(arrayNode);
+
+    @Test
+    void defaultMapper() throws Exception {
+        assertSameJson(new ObjectMapper());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void escapedNonAscii() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        assertSameJson(objectMapper);
+        objectMapper.getFactory().enable(JsonGenerator.Feature.ESCAPE_NON_ASCII);
+        assertSameJson(objectMapper);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void numbersAsStrings() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.getFactory().enable(JsonGenerator.Feature.WRITE_NUMBERS_AS_STRINGS);
+        assertSameJson(objectMapper);
+    }
+
+    @Test
+    void characterEscapes() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.getFactory().setCharacterEscapes(new CharacterEscapes() {
+
+            private final int[] escapes = standardAsciiEscapesForJSON();
+
+            {
+                escapes['a'] = CharacterEscapes.ESCAPE_STANDARD;
+            }
+
+            @Override
+            public int[] getEscapeCodesForAscii() {
+                return escapes;
+            }
+
+            @Override
+            public SerializableString getEscapeSequence(int ch) {
+                return null;
+            }
+
+        });
+        assertSameJson(objectMapper);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void serializationConfig() throws Exception {
+        assertSameJson(new ObjectMapper());
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.disable(SerializationFeature.WRITE_EMPTY_JSON_ARRAYS);
+        assertSameJson(objectMapper);
+        assertSameJson(new ObjectMapper());
+    }
+
+    @Test
+    void prettyPrinter() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        assertEquals(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(objectNode),
+                objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(constantObject));
+    }
+
+    private void assertSameJson(ObjectMapper objectMapper) throws Exception {
+        assertSameJson(objectMapper, objectNode, constantObject);
+        assertSameJson(objectMapper, arrayNode, constantArray);
+    }
+
+    private static void assertSameJson(ObjectMapper objectMapper, JsonNode expected, JsonNode constant)
+            throws Exception {
+        assertEquals(objectMapper.writeValueAsString(expected), objectMapper.writeValueAsString(constant));
+        assertEquals(new String(objectMapper.writeValueAsBytes(expected), "UTF-8"),
+                new String(objectMapper.writeValueAsBytes(constant), "UTF-8"));
+    }
+}
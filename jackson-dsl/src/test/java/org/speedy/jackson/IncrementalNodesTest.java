@@ -0,0 +1,129 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.speedy.jackson.JsonDsl.*;
+
+/**
+ * An incremental document must serialize like a plain tree with the same content after every change
+ */
+class IncrementalNodesTest {
+
+    private static final int CHANGES = 2000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void randomChangesSerializeLikeThePlainTree() throws Exception {
+        ObjectNode document = incremental(newDocument());
+        Random random = new Random(42);
+        for (int i = 0; i < CHANGES; i++) {
+            change(document, random, i);
+            assertSameJson(objectMapper, document);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void emptyArraysFollowTheSerializationConfig() throws Exception {
+        ObjectMapper trimming = new ObjectMapper();
+        trimming.disable(SerializationFeature.WRITE_EMPTY_JSON_ARRAYS);
+        ObjectNode document = incremental(newDocument());
+        ArrayNode tags = (ArrayNode) document.get("tags");
+        assertSameJson(trimming, document);
+        tags.removeAll();
+        assertSameJson(trimming, document);
+        assertSameJson(objectMapper, document);
+        tags.add("again");
+        assertSameJson(trimming, document);
+        assertSameJson(objectMapper, document);
+    }
+
+    @Test
+    void prettyPrintedOutputIsSerializedAsUsual() throws Exception {
+        ObjectNode document = incremental(newDocument());
+        objectMapper.writeValueAsBytes(document);
+        ((ObjectNode) document.get("sections").get(1)).put("name", "changed");
+        JsonNode plain = objectMapper.readTree(objectMapper.writeValueAsBytes(document));
+        assertEquals(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(plain),
+                objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(document));
+    }
+
+    @Test
+    void nestedInAPlainTree() throws Exception {
+        ObjectNode document = incremental(newDocument());
+        ArrayNode wrapper = objectMapper.createArrayNode();
+        wrapper.add(document);
+        wrapper.add(document.get("sections"));
+        objectMapper.writeValueAsBytes(wrapper);
+        ((ArrayNode) document.get("sections")).addObject().put("name", "added");
+        assertEquals(objectMapper.writeValueAsString(objectMapper.readTree(objectMapper.writeValueAsString(wrapper))),
+                new String(objectMapper.writeValueAsBytes(wrapper), "UTF-8"));
+    }
+
+    private static ObjectNode newDocument() {
+        ArrayNode sections = emptyArray();
+        for (int s = 0; s < 4; s++) {
+            ArrayNode items = emptyArray();
+            for (int i = 0; i < 5; i++) {
+                items.add(object(tuple("id", s * 5 + i), tuple("name", "item" + i), tuple("empty", emptyArray())));
+            }
+            sections.add(object(tuple("name", "section" + s), tuple("items", items)));
+        }
+        return jsonDocument(tuple("sections", sections), tuple("tags", array("a", "b")), tuple("count", 20));
+    }
+
+    private static ArrayNode emptyArray() {
+        return array(new JsonNode[0]);
+    }
+
+    /**
+     * change a random container of the document
+     */
+    private static void change(ObjectNode document, Random random, int version) {
+        ArrayNode sections = (ArrayNode) document.get("sections");
+        switch (random.nextInt(8)) {
+            case 0:
+                document.put("count", version);
+                break;
+            case 1:
+                sections.addObject().put("name", "section" + version).putArray("items");
+                break;
+            case 2:
+                if (sections.size() > 1) {
+                    sections.remove(random.nextInt(sections.size()));
+                }
+                break;
+            default:
+                ObjectNode section = (ObjectNode) sections.get(random.nextInt(sections.size()));
+                ArrayNode items = (ArrayNode) section.get("items");
+                if (items.size() == 0 || random.nextInt(4) == 0) {
+                    items.addObject().put("id", version).putArray("empty");
+                } else {
+                    ObjectNode item = (ObjectNode) items.get(random.nextInt(items.size()));
+                    if (random.nextBoolean()) {
+                        item.put("name", "name" + version);
+                    } else if (item.get("empty").size() == 0) {
+                        ((ArrayNode) item.get("empty")).add(version);
+                    } else {
+                        ((ArrayNode) item.get("empty")).removeAll();
+                    }
+                }
+                break;
+        }
+    }
+
+    private static void assertSameJson(ObjectMapper objectMapper, ObjectNode document) throws Exception {
+        JsonNode plain = new ObjectMapper().readTree(new ObjectMapper().writeValueAsString(document));
+        assertEquals(objectMapper.writeValueAsString(plain),
+                new String(objectMapper.writeValueAsBytes(document), "UTF-8"));
+    }
+}
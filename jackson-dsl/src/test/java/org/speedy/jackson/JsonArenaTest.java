@@ -0,0 +1,58 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * An arena reuses its containers between documents, as long as they fit in its field budget
+ */
+class JsonArenaTest {
+
+    @Test
+    void containersAreReused() {
+        JsonArena arena = new JsonArena(JsonNodeFactory.instance, 16, 1024);
+        ObjectNode first = document(arena.context(), 3);
+        ArrayNode firstArray = (ArrayNode) first.get("array");
+        arena.reset();
+        assertEquals(0, first.size());
+        ObjectNode second = document(arena.context(), 3);
+        assertSame(first, second);
+        assertSame(firstArray, second.get("array"));
+        assertEquals(3, second.get("array").size());
+    }
+
+    @Test
+    void containersBeyondTheBudgetAreReplaced() {
+        JsonArena arena = new JsonArena(JsonNodeFactory.instance, 16, 64);
+        ObjectNode first = document(arena.context(), 100);
+        ArrayNode firstArray = (ArrayNode) first.get("array");
+        arena.reset();
+        ObjectNode second = document(arena.context(), 100);
+        assertSame(first, second);
+        assertNotSame(firstArray, second.get("array"));
+        assertEquals(100, second.get("array").size());
+    }
+
+    @Test
+    void spentBudgetDropsContainers() {
+        JsonArena arena = new JsonArena(JsonNodeFactory.instance, 16, 0);
+        ObjectNode first = document(arena.context(), 1);
+        arena.reset();
+        assertEquals(2, arena.getPoolSize());
+        assertNotSame(first, document(arena.context(), 1));
+    }
+
+    private static ObjectNode document(JsonDslContext json, int elements) {
+        String[] values = new String[elements];
+        for (int i = 0; i < elements; i++) {
+            values[i] = "value" + i;
+        }
+        return json.jsonDocument(json.tuple("array", json.array(values)));
+    }
+}
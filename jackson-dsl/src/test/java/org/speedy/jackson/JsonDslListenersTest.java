@@ -0,0 +1,214 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Every call started for a {@link JsonDslCallListener} must end exactly once, also when the call fails
+ */
+class JsonDslListenersTest {
+
+    private static final int CALLS = 1000;
+
+    private final RecordingListener listener = new RecordingListener();
+
+    @BeforeEach
+    void addListener() {
+        JsonDsl.addListener(listener);
+    }
+
+    @AfterEach
+    void removeListener() {
+        JsonDsl.removeListener(listener);
+    }
+
+    @Test
+    void failedBuildsEnd() {
+        for (int i = 0; i < CALLS; i++) {
+            assertThrows(IllegalStateException.class, new Executable() {
+
+                public void execute() {
+                    JsonDsl.jsonDocument(JsonDsl.tuple("name", "value"), new FailingTuple());
+                }
+
+            });
+            assertThrows(IllegalStateException.class, new Executable() {
+
+                public void execute() {
+                    JsonDsl.jsonDocument(JsonNodeFactory.instance, new FailingTuple());
+                }
+
+            });
+            assertThrows(IllegalStateException.class, new Executable() {
+
+                public void execute() {
+                    JsonDsl.with(JsonNodeFactory.instance).jsonDocument(new FailingTuple());
+                }
+
+            });
+        }
+        assertEquals(3 * CALLS, listener.failed.size());
+        assertEquals(0, listener.pending.size());
+    }
+
+    @Test
+    void failedSerializationsEnd() {
+        final JsonStream document = JsonStreamDsl.jsonDocument(JsonStreamDsl.tuple("name", "value"));
+        for (int i = 0; i < CALLS; i++) {
+            assertThrows(IOException.class, new Executable() {
+
+                public void execute() throws IOException {
+                    document.writeTo(new FailingOutputStream());
+                }
+
+            });
+        }
+        assertEquals(CALLS, listener.failed.size());
+        assertEquals(0, listener.pending.size());
+    }
+
+    @Test
+    void constantsAreNotSerializations() throws IOException {
+        JsonStream document = JsonStreamDsl.jsonDocument(JsonStreamDsl.tuple("constant",
+                JsonStreamDsl.constant(JsonStreamDsl.jsonDocument(JsonStreamDsl.tuple("name", "value")))));
+        assertEquals(0, listener.serialized);
+        assertEquals("{\"constant\":{\"name\":\"value\"}}", document.toString());
+        assertEquals(1, listener.serialized);
+    }
+
+    @Test
+    void constantsRejectPlaceholders() {
+        assertThrows(IllegalArgumentException.class, new Executable() {
+
+            public void execute() {
+                JsonStreamDsl.constant(JsonStreamDsl.jsonDocument(
+                        JsonStreamDsl.tuple("name", JsonStreamDsl.placeholder("name"))));
+            }
+
+        });
+        assertEquals(0, listener.pending.size());
+    }
+
+    @Test
+    void nestedCallsEndInnermostFirst() {
+        JsonDsl.jsonDocument(new ComputedTuple("nested") {
+
+            public JsonNode getValue() {
+                return JsonDsl.jsonDocument(JsonDsl.tuple("name", "value"));
+            }
+
+        });
+        assertEquals(0, listener.pending.size());
+        assertEquals(2, listener.ended);
+    }
+
+    /**
+     * tuple of which the value is computed when the document reads it
+     */
+    private abstract static class ComputedTuple implements JsonDsl.Tuple<JsonNode> {
+
+        private final String name;
+
+        ComputedTuple(String name) {
+            this.name = name;
+        }
+
+        public String getLeft() {
+            return name;
+        }
+
+        public JsonNode getRight() {
+            return getValue();
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static final class FailingTuple extends ComputedTuple {
+
+        FailingTuple() {
+            super("failing");
+        }
+
+        public JsonNode getValue() {
+            throw new IllegalStateException("failing tuple");
+        }
+    }
+
+    private static final class FailingOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            throw new IOException("failing stream");
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            throw new IOException("failing stream");
+        }
+    }
+
+    /**
+     * keeps the started calls of the test thread in a stack, like the flight recorder listener does
+     */
+    private static final class RecordingListener implements JsonDslCallListener {
+
+        private final Thread thread = Thread.currentThread();
+        private final List<Call> pending = new ArrayList<Call>();
+        private final List<Call> failed = new ArrayList<Call>();
+        private int ended;
+        private int serialized;
+
+        public void callStarted(Call call) {
+            if (Thread.currentThread() == thread) {
+                pending.add(call);
+            }
+        }
+
+        public void callFailed(Call call) {
+            if (Thread.currentThread() == thread) {
+                end(call);
+                failed.add(call);
+            }
+        }
+
+        public void documentBuilt(ObjectNode document, long nanos) {
+            if (Thread.currentThread() == thread) {
+                end(Call.BUILD);
+                ended++;
+            }
+        }
+
+        public void closureNameResolved(Class<?> closureClass, boolean cacheHit, long nanos) {
+            if (Thread.currentThread() == thread) {
+                end(Call.CLOSURE_NAME);
+            }
+        }
+
+        public void documentSerialized(long bytes, long nanos) {
+            if (Thread.currentThread() == thread) {
+                end(Call.SERIALIZATION);
+                serialized++;
+            }
+        }
+
+        private void end(Call call) {
+            assertEquals(call, pending.remove(pending.size() - 1));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stress test of the factory scope of the static dsl methods <br/>
+ * Many tasks build documents in nested scopes and give up their carrier thread in between, every node must be created
+ * by the factory of the innermost scope of its own task. The tasks run on virtual threads from java 21 on and on a
+ * pool of platform threads before
+ */
+class JsonNodeFactoryScopeTest {
+
+    private static final int TASKS = 10000;
+    private static final int PLATFORM_THREADS = 64;
+
+    private static final MarkingJsonNodeFactory[] factories = {
+            new MarkingJsonNodeFactory(0), new MarkingJsonNodeFactory(1),
+            new MarkingJsonNodeFactory(2), new MarkingJsonNodeFactory(3)
+    };
+
+    @Test
+    void nestedScopesKeepTheirFactoryAcrossThreadSwitches() throws Exception {
+        final Queue<String> failures = new ConcurrentLinkedQueue<String>();
+        ExecutorService executor = newExecutor();
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>(TASKS);
+            for (int i = 0; i < TASKS; i++) {
+                final int task = i;
+                futures.add(executor.submit(new Callable<Void>() {
+
+                    public Void call() throws Exception {
+                        runTask(task, failures);
+                        return null;
+                    }
+
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(failures.isEmpty(), failures.size() + " failures, the first: " + failures.peek());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void deprecatedThreadLocalSetsTheFactoryOutsideOfAScope() throws Exception {
+        final MarkingJsonNodeFactory outer = factories[0];
+        final MarkingJsonNodeFactory inner = factories[1];
+        TupleDsl.jsonNodeFactoryThreadLocal.set(outer);
+        try {
+            assertEquals(outer.mark, mark(JsonDsl.jsonDocument(JsonDsl.tuple("name", "value"))));
+            JsonDsl.withFactory(inner, new Callable<Void>() {
+
+                public Void call() {
+                    assertEquals(inner.mark, mark(JsonDsl.jsonDocument(JsonDsl.tuple("name", "value"))));
+                    return null;
+                }
+
+            });
+            assertEquals(outer.mark, mark(JsonDsl.jsonDocument(JsonDsl.tuple("name", "value"))));
+        } finally {
+            TupleDsl.jsonNodeFactoryThreadLocal.remove();
+        }
+        assertSame(JsonNodeFactory.instance, JsonNodeFactoryScope.current());
+    }
+
+    private static void runTask(final int task, final Queue<String> failures) throws Exception {
+        final MarkingJsonNodeFactory outer = factories[task % factories.length];
+        final MarkingJsonNodeFactory inner = factories[(task + 1) % factories.length];
+        JsonDsl.withFactory(outer, new Callable<Void>() {
+
+            public Void call() throws Exception {
+                check(task, outer, failures);
+                switchThread(task);
+                JsonDsl.withFactory(inner, new Callable<Void>() {
+
+                    public Void call() throws Exception {
+                        check(task, inner, failures);
+                        switchThread(task);
+                        check(task, inner, failures);
+                        return null;
+                    }
+
+                });
+                switchThread(task);
+                check(task, outer, failures);
+                return null;
+            }
+
+        });
+        if (JsonNodeFactoryScope.current() != JsonNodeFactory.instance) {
+            failures.add("task " + task + " kept a factory after its scope");
+        }
+    }
+
+    private static void check(int task, MarkingJsonNodeFactory expected, Queue<String> failures) {
+        ObjectNode document = JsonDsl.jsonDocument(JsonDsl.tuple("task", String.valueOf(task)));
+        int mark = mark(document);
+        if (mark != expected.mark) {
+            failures.add("task " + task + " created its nodes with factory " + mark + " instead of " + expected.mark);
+        }
+    }
+
+    /**
+     * give up the carrier thread, a virtual thread may continue on another carrier
+     */
+    private static void switchThread(int task) throws InterruptedException {
+        if (task % 16 == 0) {
+            Thread.sleep(1);
+        } else {
+            Thread.yield();
+        }
+    }
+
+    private static int mark(JsonNode document) {
+        JsonNode value = document.elements().next();
+        return value instanceof MarkedTextNode ? ((MarkedTextNode) value).mark : -1;
+    }
+
+    /**
+     * @return a virtual thread per task executor on java 21 and higher, a pool of platform threads before
+     */
+    private static ExecutorService newExecutor() throws Exception {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            return Executors.newFixedThreadPool(PLATFORM_THREADS);
+        }
+    }
+
+    private static final class MarkingJsonNodeFactory extends JsonNodeFactory {
+
+        private final int mark;
+
+        MarkingJsonNodeFactory(int mark) {
+            this.mark = mark;
+        }
+
+        @Override
+        public TextNode textNode(String text) {
+            return new MarkedTextNode(text, mark);
+        }
+    }
+
+    private static final class MarkedTextNode extends TextNode {
+
+        private final int mark;
+
+        MarkedTextNode(String text, int mark) {
+            super(text);
+            this.mark = mark;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.speedy.jackson.JsonDsl.*;
+
+/**
+ * A lazy container computes its content once, and a callable which reads the container it computes fails
+ */
+class LazyNodesTest {
+
+    @Test
+    void computedOnce() {
+        final int[] calls = new int[1];
+        ObjectNode lazy = lazyObject(new Callable<ObjectNode>() {
+
+            public ObjectNode call() {
+                calls[0]++;
+                return object(tuple("name", "value"));
+            }
+
+        });
+        assertTrue(LazyNodes.isPending(lazy));
+        assertEquals("value", lazy.get("name").asText());
+        assertEquals(1, lazy.size());
+        assertEquals(1, calls[0]);
+    }
+
+    @Test
+    void selfReadingObjectFails() {
+        final ObjectNode[] lazy = new ObjectNode[1];
+        lazy[0] = lazyObject(new Callable<ObjectNode>() {
+
+            public ObjectNode call() {
+                return object(tuple("size", lazy[0].size()));
+            }
+
+        });
+        IllegalStateException exception = assertThrows(IllegalStateException.class, new Executable() {
+
+            public void execute() {
+                lazy[0].size();
+            }
+
+        });
+        assertTrue(exception.getMessage().startsWith("Cycle in a lazy object"));
+        assertTrue(LazyNodes.isPending(lazy[0]));
+    }
+
+    @Test
+    void cycleThroughAnotherContainerFails() {
+        final ArrayNode[] lazy = new ArrayNode[2];
+        for (int i = 0; i < lazy.length; i++) {
+            final int other = 1 - i;
+            lazy[i] = lazyArray(new Callable<ArrayNode>() {
+
+                public ArrayNode call() {
+                    return array(number(lazy[other].size()));
+                }
+
+            });
+        }
+        IllegalStateException exception = assertThrows(IllegalStateException.class, new Executable() {
+
+            public void execute() {
+                lazy[0].get(0);
+            }
+
+        });
+        assertTrue(exception.getMessage().startsWith("Cycle in a lazy array"));
+    }
+}
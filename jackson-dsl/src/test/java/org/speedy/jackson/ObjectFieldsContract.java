@@ -0,0 +1,163 @@
+package org.speedy.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The map of the fields of an object node must behave like a {@link LinkedHashMap}, below and beyond
+ * {@link CompactObjectMap#THRESHOLD} fields
+ */
+abstract class ObjectFieldsContract {
+
+    private static final int OPERATIONS = 20000;
+    private static final int NAMES = 3 * CompactObjectMap.THRESHOLD;
+
+    /**
+     * @return an empty map of the fields of an object node
+     */
+    abstract Map<String, JsonNode> newFields();
+
+    @Test
+    void randomOperationsMatchLinkedHashMap() {
+        Map<String, JsonNode> fields = newFields();
+        Map<String, JsonNode> expected = new LinkedHashMap<String, JsonNode>();
+        Random random = new Random(42);
+        for (int i = 0; i < OPERATIONS; i++) {
+            // a new string instance, so the names are not only found by reference
+            String name = new String("name" + random.nextInt(NAMES));
+            switch (random.nextInt(10)) {
+                case 0:
+                    assertEquals(expected.remove(name), fields.remove(name));
+                    break;
+                case 1:
+                    removeWithIterator(fields, expected, name);
+                    break;
+                case 2:
+                    if (random.nextInt(20) == 0) {
+                        fields.clear();
+                        expected.clear();
+                    }
+                    break;
+                case 3:
+                    assertEquals(expected.get(name), fields.get(name));
+                    assertEquals(expected.containsKey(name), fields.containsKey(name));
+                    break;
+                default:
+                    JsonNode value = IntNode.valueOf(i);
+                    assertEquals(expected.put(name, value), fields.put(name, value));
+                    break;
+            }
+            assertSameFields(expected, fields);
+        }
+    }
+
+    @Test
+    void unknownNames() {
+        Map<String, JsonNode> fields = newFields();
+        fields.put("name", TextNode.valueOf("value"));
+        assertNull(fields.get(null));
+        assertFalse(fields.containsKey(null));
+        assertFalse(fields.containsKey(1));
+        assertNull(fields.remove("other"));
+        assertEquals(1, fields.size());
+    }
+
+    @Test
+    void entriesWriteThrough() {
+        Map<String, JsonNode> fields = newFields();
+        for (int i = 0; i < NAMES; i++) {
+            fields.put("name" + i, IntNode.valueOf(i));
+            for (Map.Entry<String, JsonNode> entry : fields.entrySet()) {
+                entry.setValue(TextNode.valueOf(entry.getKey()));
+            }
+            for (Map.Entry<String, JsonNode> entry : fields.entrySet()) {
+                assertEquals(entry.getKey(), entry.getValue().asText());
+            }
+        }
+    }
+
+    @Test
+    void iteratorFailsAfterAChange() {
+        for (int size = 1; size < NAMES; size++) {
+            final Map<String, JsonNode> fields = newFields();
+            for (int i = 0; i < size; i++) {
+                fields.put("name" + i, IntNode.valueOf(i));
+            }
+            final Iterator<Map.Entry<String, JsonNode>> iterator = fields.entrySet().iterator();
+            iterator.next();
+            // the change may move the fields to another map, the iterator must not report its stale state
+            fields.put("other", IntNode.valueOf(size));
+            if (size <= CompactObjectMap.THRESHOLD) {
+                // a LinkedHashMap only fails in next()
+                assertThrows(ConcurrentModificationException.class, new Executable() {
+
+                    public void execute() {
+                        iterator.hasNext();
+                    }
+
+                });
+            }
+            assertThrows(ConcurrentModificationException.class, new Executable() {
+
+                public void execute() {
+                    iterator.next();
+                }
+
+            });
+        }
+    }
+
+    @Test
+    void iteratorRemovesEveryField() {
+        Map<String, JsonNode> fields = newFields();
+        for (int i = 0; i < NAMES; i++) {
+            fields.put("name" + i, IntNode.valueOf(i));
+        }
+        int removed = 0;
+        for (Iterator<Map.Entry<String, JsonNode>> iterator = fields.entrySet().iterator(); iterator.hasNext(); ) {
+            assertEquals("name" + removed, iterator.next().getKey());
+            iterator.remove();
+            removed++;
+        }
+        assertEquals(NAMES, removed);
+        assertTrue(fields.isEmpty());
+    }
+
+    private static void removeWithIterator(Map<String, JsonNode> fields, Map<String, JsonNode> expected, String name) {
+        for (Iterator<Map.Entry<String, JsonNode>> iterator = fields.entrySet().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().getKey().equals(name)) {
+                iterator.remove();
+                break;
+            }
+        }
+        expected.remove(name);
+    }
+
+    private static void assertSameFields(Map<String, JsonNode> expected, Map<String, JsonNode> fields) {
+        assertEquals(expected.size(), fields.size());
+        assertEquals(expected, fields);
+        assertEquals(expected.hashCode(), fields.hashCode());
+        List<String> names = new ArrayList<String>();
+        for (Map.Entry<String, JsonNode> entry : fields.entrySet()) {
+            names.add(entry.getKey());
+        }
+        assertEquals(new ArrayList<String>(expected.keySet()), names);
+    }
+}